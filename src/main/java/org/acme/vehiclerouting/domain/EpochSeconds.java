@@ -0,0 +1,37 @@
+package org.acme.vehiclerouting.domain;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Times in the solver's hot path are plain {@code long} seconds since the epoch,
+ * so following a route allocates nothing.
+ * A {@link LocalDateTime} has no zone; it is read as UTC, which keeps its time of day,
+ * and is only built again at the JSON boundary.
+ */
+public final class EpochSeconds {
+
+    /**
+     * Stands for a missing time, such as the arrival at a visit that is not assigned yet.
+     */
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    private EpochSeconds() {
+    }
+
+    /**
+     * @param dateTime null if unknown
+     * @return {@link #UNKNOWN} if the date time is null
+     */
+    public static long of(LocalDateTime dateTime) {
+        return dateTime == null ? UNKNOWN : dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * @param epochSecond {@link #UNKNOWN} if unknown
+     * @return null if the time is unknown
+     */
+    public static LocalDateTime toLocalDateTime(long epochSecond) {
+        return epochSecond == UNKNOWN ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -1,20 +1,33 @@
 package org.acme.vehiclerouting.domain;
 
-import java.util.Map;
+import java.time.LocalDateTime;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import org.acme.vehiclerouting.domain.geo.DrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.DrivingTimeProfile;
+import org.acme.vehiclerouting.domain.jackson.LocationJacksonDeserializer;
 
 @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+@JsonDeserialize(using = LocationJacksonDeserializer.class)
 public class Location {
 
+    /**
+     * Coordinates are compared in millionths of a degree, roughly 0.1 m.
+     */
+    public static final double COORDINATE_PRECISION = 1e-6;
+
     private double latitude;
     private double longitude;
 
     @JsonIgnore
-    private Map<Location, Long> drivingTimeSeconds;
+    private DrivingTimeMatrix drivingTimeMatrix;
+    @JsonIgnore
+    private int matrixIndex = -1;
 
     @JsonCreator
     public Location(@JsonProperty("latitude") double latitude, @JsonProperty("longitude") double longitude) {
@@ -30,27 +43,131 @@ public class Location {
         return longitude;
     }
 
-    public Map<Location, Long> getDrivingTimeSeconds() {
-        return drivingTimeSeconds;
+    public DrivingTimeMatrix getDrivingTimeMatrix() {
+        return drivingTimeMatrix;
+    }
+
+    public int getMatrixIndex() {
+        return matrixIndex;
     }
 
     /**
-     * Set the driving time map (in seconds).
+     * Set the driving time matrix (in seconds) this location is part of.
      *
-     * @param drivingTimeSeconds a map containing driving time from here to other locations
+     * @param drivingTimeMatrix a matrix containing driving time from here to other locations
+     * @param matrixIndex the index of this location in {@code drivingTimeMatrix}
      */
-    public void setDrivingTimeSeconds(Map<Location, Long> drivingTimeSeconds) {
-        this.drivingTimeSeconds = drivingTimeSeconds;
+    public void setDrivingTimeMatrix(DrivingTimeMatrix drivingTimeMatrix, int matrixIndex) {
+        this.drivingTimeMatrix = drivingTimeMatrix;
+        this.matrixIndex = matrixIndex;
     }
 
     /**
      * Driving time to the given location in seconds.
+     * Both locations must belong to the same {@link DrivingTimeMatrix}.
      *
      * @param location other location
      * @return driving time in seconds
      */
     public long getDrivingTimeTo(Location location) {
-        return drivingTimeSeconds.get(location);
+        return drivingTimeMatrix.getDrivingTime(matrixIndex, location.matrixIndex);
+    }
+
+    /**
+     * Driving time to the given location in seconds, when leaving here at the given time.
+     * Both locations must belong to the same {@link DrivingTimeMatrix}.
+     *
+     * @param location other location
+     * @param departureTime null if unknown, in which case the time of day is ignored
+     * @return driving time in seconds
+     */
+    public long getDrivingTimeTo(Location location, LocalDateTime departureTime) {
+        return getDrivingTimeTo(location, EpochSeconds.of(departureTime));
+    }
+
+    /**
+     * Driving time to the given location in seconds, when leaving here at the given time.
+     * Both locations must belong to the same {@link DrivingTimeMatrix}.
+     *
+     * @param location other location
+     * @param departureEpochSecond {@link EpochSeconds#UNKNOWN} if unknown, in which case the time of day is ignored
+     * @return driving time in seconds
+     */
+    public long getDrivingTimeTo(Location location, long departureEpochSecond) {
+        if (departureEpochSecond == EpochSeconds.UNKNOWN) {
+            return getDrivingTimeTo(location);
+        }
+        return drivingTimeMatrix.getDrivingTime(matrixIndex, location.matrixIndex, departureEpochSecond);
+    }
+
+    /**
+     * Driving time to the given location in seconds, for a kind of vehicle, when leaving here at the given time.
+     * Both locations must belong to the same {@link DrivingTimeMatrix}.
+     *
+     * @param location other location
+     * @param drivingTimeProfile never null
+     * @param departureEpochSecond {@link EpochSeconds#UNKNOWN} if unknown, in which case the time of day is ignored
+     * @return driving time in seconds
+     */
+    public long getDrivingTimeTo(Location location, DrivingTimeProfile drivingTimeProfile,
+            long departureEpochSecond) {
+        return drivingTimeProfile.apply(getDrivingTimeTo(location, departureEpochSecond));
+    }
+
+    /**
+     * Driving time to the given location in seconds, for a kind of vehicle, when leaving here at the given time.
+     * Both locations must belong to the same {@link DrivingTimeMatrix}.
+     *
+     * @param location other location
+     * @param drivingTimeProfile never null
+     * @param departureTime null if unknown, in which case the time of day is ignored
+     * @return driving time in seconds
+     */
+    public long getDrivingTimeTo(Location location, DrivingTimeProfile drivingTimeProfile,
+            LocalDateTime departureTime) {
+        return drivingTimeProfile.apply(getDrivingTimeTo(location, departureTime));
+    }
+
+    /**
+     * Driving distance to the given location in meters.
+     * Both locations must belong to the same {@link DrivingTimeMatrix}, which must
+     * {@link DrivingTimeMatrix#hasDistances() have distances}.
+     *
+     * @param location other location
+     * @return distance in meters
+     */
+    public long getDistanceTo(Location location) {
+        return drivingTimeMatrix.getDistance(matrixIndex, location.matrixIndex);
+    }
+
+    /**
+     * Both coordinates rounded to {@link #COORDINATE_PRECISION} and packed into one {@code long}.
+     */
+    static long coordinateKey(double latitude, double longitude) {
+        long latitudeKey = Math.round(latitude / COORDINATE_PRECISION);
+        long longitudeKey = Math.round(longitude / COORDINATE_PRECISION);
+        return (latitudeKey << 32) ^ (longitudeKey & 0xFFFFFFFFL);
+    }
+
+    long coordinateKey() {
+        return coordinateKey(latitude, longitude);
+    }
+
+    /**
+     * Locations are equal if their coordinates are equal after rounding to {@link #COORDINATE_PRECISION}.
+     * Their driving time matrix is not taken into account.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Location other && coordinateKey() == other.coordinateKey();
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(coordinateKey());
     }
 
     @Override
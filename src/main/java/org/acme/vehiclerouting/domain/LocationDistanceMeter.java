@@ -2,6 +2,12 @@ package org.acme.vehiclerouting.domain;
 
 import ai.timefold.solver.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
 
+/**
+ * Orders the candidate destinations of a moved visit by driving time, for nearby selection.
+ * The solver calls this once per pair to build its sorted neighbour list per origin,
+ * which it then shares between all move threads. Each call is a single read from the driving time matrix,
+ * so building that list for every visit is cheap next to solving.
+ */
 public class LocationDistanceMeter implements NearbyDistanceMeter<Visit, LocationAware> {
 
     @Override
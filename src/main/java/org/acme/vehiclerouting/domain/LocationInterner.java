@@ -0,0 +1,42 @@
+package org.acme.vehiclerouting.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out one {@link Location} instance per point, so duplicate points in the input share one matrix index.
+ * Points are the same if their coordinates are equal after rounding to {@link Location#COORDINATE_PRECISION}.
+ * <p>
+ * Use one interner per plan: a location belongs to one driving time matrix at a time,
+ * so it must not be shared by plans that each get their own matrix.
+ * Not thread-safe.
+ */
+public final class LocationInterner {
+
+    private final Map<Long, Location> locations = new HashMap<>();
+
+    /**
+     * @param latitude in degrees
+     * @param longitude in degrees
+     * @return never null, the same instance for every call with the same rounded coordinates
+     */
+    public Location intern(double latitude, double longitude) {
+        return locations.computeIfAbsent(Location.coordinateKey(latitude, longitude),
+                key -> new Location(latitude, longitude));
+    }
+
+    /**
+     * @param location never null
+     * @return never null, either {@code location} or the instance already interned for the same point
+     */
+    public Location intern(Location location) {
+        return locations.computeIfAbsent(location.coordinateKey(), key -> location);
+    }
+
+    /**
+     * @return number of distinct points
+     */
+    public int size() {
+        return locations.size();
+    }
+}
@@ -12,6 +12,9 @@ import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import ai.timefold.solver.core.api.domain.entity.PlanningEntity;
 import ai.timefold.solver.core.api.domain.variable.PlanningListVariable;
 
+import org.acme.vehiclerouting.domain.geo.DrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.DrivingTimeProfile;
+
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
@@ -22,11 +25,20 @@ public class Vehicle implements LocationAware {
 
     private String id;
     private String style;
+    @JsonIgnore
+    private DrivingTimeProfile drivingTimeProfile;
     private Location homeLocation;
     private int capacity;
+    /**
+     * Capacity per load dimension, in the order of {@link Visit#getLoads()}.
+     * Null if only the {@link #capacity} applies; a dimension beyond its length is unlimited.
+     */
+    private int[] capacities;
     
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime departureTime;
+    @JsonIgnore
+    private long departureEpochSecond = EpochSeconds.UNKNOWN;
     
     @JsonIdentityReference(alwaysAsId = true)
     @PlanningListVariable
@@ -38,7 +50,7 @@ public class Vehicle implements LocationAware {
         this.style = style;
         this.homeLocation = homeLocation;
         this.capacity = capacity;
-        this.departureTime = departureTime; 
+        setDepartureTime(departureTime);
         this.visits = new ArrayList<>();
     }
 
@@ -81,7 +93,7 @@ public class Vehicle implements LocationAware {
         this.id = id;
         this.homeLocation = homeLocation;
         this.style = style;
-        this.departureTime = departureTime;
+        setDepartureTime(departureTime);
         this.visits = new ArrayList<>();
         switch (style) {
             case "van":
@@ -126,7 +138,21 @@ public class Vehicle implements LocationAware {
     public void setId(String id) { this.id = id; }
 
     public String getStyle() { return style; }
-    public void setStyle(String style) { this.style = style; }
+    public void setStyle(String style) {
+        this.style = style;
+        this.drivingTimeProfile = null;
+    }
+
+    /**
+     * @return never null, derived from the {@link #getStyle() style} once and then kept
+     */
+    @JsonIgnore
+    public DrivingTimeProfile getDrivingTimeProfile() {
+        if (drivingTimeProfile == null) {
+            drivingTimeProfile = DrivingTimeProfile.forStyle(style);
+        }
+        return drivingTimeProfile;
+    }
 
     public Location getHomeLocation() { return homeLocation; }
     public void setHomeLocation(Location homeLocation) { 
@@ -136,9 +162,21 @@ public class Vehicle implements LocationAware {
     public int getCapacity() { return capacity; }
     public void setCapacity(int capacity) { this.capacity = capacity; }
 
+    public int[] getCapacities() { return capacities; }
+    public void setCapacities(int[] capacities) { this.capacities = capacities; }
+
     public LocalDateTime getDepartureTime() { return departureTime; }
-    public void setDepartureTime(LocalDateTime departureTime) { 
-        this.departureTime = departureTime; 
+    public void setDepartureTime(LocalDateTime departureTime) {
+        this.departureTime = departureTime;
+        this.departureEpochSecond = EpochSeconds.of(departureTime);
+    }
+
+    /**
+     * @return {@link EpochSeconds#UNKNOWN} if there is no departure time
+     */
+    @JsonIgnore
+    public long getDepartureEpochSecond() {
+        return departureEpochSecond;
     }
 
     public List<Visit> getVisits() { return visits; }
@@ -161,17 +199,43 @@ public class Vehicle implements LocationAware {
         }
 
         long totalDrivingTime = 0;
+        DrivingTimeProfile drivingTimeProfile = getDrivingTimeProfile();
         Location previousLocation = homeLocation;
+        long previousDepartureEpochSecond = departureEpochSecond;
 
         for (Visit visit : visits) {
-            totalDrivingTime += previousLocation.getDrivingTimeTo(visit.getLocation());
+            totalDrivingTime += previousLocation.getDrivingTimeTo(visit.getLocation(), drivingTimeProfile,
+                    previousDepartureEpochSecond);
             previousLocation = visit.getLocation();
+            previousDepartureEpochSecond = visit.getDepartureEpochSecond();
         }
-        totalDrivingTime += previousLocation.getDrivingTimeTo(homeLocation);
+        totalDrivingTime += previousLocation.getDrivingTimeTo(homeLocation, drivingTimeProfile,
+                previousDepartureEpochSecond);
 
         return totalDrivingTime;
     }
 
+    /**
+     * @return null if the driving time matrix has no distances
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Long getTotalDistanceMeters() {
+        DrivingTimeMatrix drivingTimeMatrix = homeLocation == null ? null : homeLocation.getDrivingTimeMatrix();
+        if (drivingTimeMatrix == null || !drivingTimeMatrix.hasDistances()) {
+            return null;
+        }
+        long totalDistance = 0L;
+        Location previousLocation = homeLocation;
+        for (Visit visit : visits) {
+            totalDistance += previousLocation.getDistanceTo(visit.getLocation());
+            previousLocation = visit.getLocation();
+        }
+        if (!visits.isEmpty()) {
+            totalDistance += previousLocation.getDistanceTo(homeLocation);
+        }
+        return totalDistance;
+    }
+
     public LocalDateTime getArrivalTime() { return arrivalTime; }
     public void setArrivalTime(LocalDateTime arrivalTime) { this.arrivalTime = arrivalTime; }
 
@@ -10,9 +10,10 @@ import ai.timefold.solver.core.api.solver.SolverStatus;
 import java.util.List;
 import java.util.stream.Stream;
 
-import org.acme.vehiclerouting.domain.geo.DrivingTimeCalculator;
-import org.acme.vehiclerouting.domain.geo.HaversineDrivingTimeCalculator;
+import org.acme.vehiclerouting.domain.geo.DrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.SpatialIndex;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.LocalDateTime;
@@ -42,6 +43,14 @@ public class VehicleRoutePlan {
     private SolverStatus solverStatus;
     private String scoreExplanation;
 
+    // Attached by DrivingTimeMatrixRegistry, shared with every clone and derived plan
+    @JsonIgnore
+    private DrivingTimeMatrix drivingTimeMatrix;
+
+    // Built on first use, shared with every clone until the vehicles or visits are replaced
+    @JsonIgnore
+    private SpatialIndex spatialIndex;
+
     // Default constructor for Timefold
     public VehicleRoutePlan() {
         this.visits = new ArrayList<>();
@@ -50,25 +59,12 @@ public class VehicleRoutePlan {
         this.southWestCorner = new Location(10.033064, 72.784115);
         this.northEastCorner = new Location(30.929584, 88.395507);
         this.solverStatus = SolverStatus.NOT_SOLVING;
-
-        List<Location> locations = Stream.concat(
-                vehicles.stream().map(Vehicle::getHomeLocation),
-                visits.stream().map(Visit::getLocation)).toList();
-
-        DrivingTimeCalculator drivingTimeCalculator = HaversineDrivingTimeCalculator.getInstance();
-        drivingTimeCalculator.initDrivingTimeMaps(locations);
     }
 
     public VehicleRoutePlan(String name, HardSoftLongScore score, SolverStatus solverStatus) {
         this.name = name;
         this.score = score;
         this.solverStatus = solverStatus;
-        List<Location> locations = Stream.concat(
-                vehicles.stream().map(Vehicle::getHomeLocation),
-                visits.stream().map(Visit::getLocation)).toList();
-
-        DrivingTimeCalculator drivingTimeCalculator = HaversineDrivingTimeCalculator.getInstance();
-        drivingTimeCalculator.initDrivingTimeMaps(locations);
     }
 
     public VehicleRoutePlan(List<Visit> visits, List<Vehicle> vehicles) {
@@ -78,13 +74,6 @@ public class VehicleRoutePlan {
         this.southWestCorner = new Location(10.033064, 72.784115);
         this.northEastCorner = new Location(30.929584, 88.395507);
         this.solverStatus = SolverStatus.NOT_SOLVING;
-
-        List<Location> locations = Stream.concat(
-                vehicles.stream().map(Vehicle::getHomeLocation),
-                visits.stream().map(Visit::getLocation)).toList();
-
-        DrivingTimeCalculator drivingTimeCalculator = HaversineDrivingTimeCalculator.getInstance();
-        drivingTimeCalculator.initDrivingTimeMaps(locations);
     }
 
     // Constructor that template expects
@@ -99,13 +88,32 @@ public class VehicleRoutePlan {
         this.vehicles = vehicles != null ? vehicles : new ArrayList<>();
         this.visits = visits != null ? visits : new ArrayList<>();
         this.solverStatus = SolverStatus.NOT_SOLVING;
+    }
 
-        List<Location> locations = Stream.concat(
-                vehicles.stream().map(Vehicle::getHomeLocation),
-                visits.stream().map(Visit::getLocation)).toList();
+    /**
+     * Every vehicle home location and visit location, in that order.
+     * A location shared by several vehicles or visits occurs more than once.
+     */
+    @JsonIgnore
+    public List<Location> getLocations() {
+        Stream<Location> homeLocations = vehicles == null ? Stream.empty()
+                : vehicles.stream().map(Vehicle::getHomeLocation);
+        Stream<Location> visitLocations = visits == null ? Stream.empty()
+                : visits.stream().map(Visit::getLocation);
+        return Stream.concat(homeLocations, visitLocations).toList();
+    }
 
-        DrivingTimeCalculator drivingTimeCalculator = HaversineDrivingTimeCalculator.getInstance();
-        drivingTimeCalculator.initDrivingTimeMaps(locations);
+    /**
+     * Nearest, radius and bounding box queries over {@link #getLocations()}, instead of scanning every visit.
+     */
+    @JsonIgnore
+    public SpatialIndex getSpatialIndex() {
+        SpatialIndex spatialIndex = this.spatialIndex;
+        if (spatialIndex == null) {
+            spatialIndex = SpatialIndex.of(getLocations());
+            this.spatialIndex = spatialIndex;
+        }
+        return spatialIndex;
     }
 
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
@@ -115,10 +123,16 @@ public class VehicleRoutePlan {
 
     // Getters and setters
     public List<Visit> getVisits() { return visits; }
-    public void setVisits(List<Visit> visits) { this.visits = visits; }
+    public void setVisits(List<Visit> visits) {
+        this.visits = visits;
+        this.spatialIndex = null;
+    }
 
     public List<Vehicle> getVehicles() { return vehicles; }
-    public void setVehicles(List<Vehicle> vehicles) { this.vehicles = vehicles; }
+    public void setVehicles(List<Vehicle> vehicles) {
+        this.vehicles = vehicles;
+        this.spatialIndex = null;
+    }
 
     public HardSoftLongScore getScore() { return score; }
     public void setScore(HardSoftLongScore score) { this.score = score; }
@@ -143,6 +157,11 @@ public class VehicleRoutePlan {
     public void setScoreExplanation(String scoreExplanation) { this.scoreExplanation = scoreExplanation; }
 
 
+    public DrivingTimeMatrix getDrivingTimeMatrix() { return drivingTimeMatrix; }
+    public void setDrivingTimeMatrix(DrivingTimeMatrix drivingTimeMatrix) {
+        this.drivingTimeMatrix = drivingTimeMatrix;
+    }
+
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
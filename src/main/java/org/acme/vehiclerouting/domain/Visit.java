@@ -2,13 +2,13 @@ package org.acme.vehiclerouting.domain;
 
 import ai.timefold.solver.core.api.domain.entity.PlanningEntity;
 import ai.timefold.solver.core.api.domain.variable.InverseRelationShadowVariable;
+import ai.timefold.solver.core.api.domain.variable.NextElementShadowVariable;
 import ai.timefold.solver.core.api.domain.variable.PreviousElementShadowVariable;
 import ai.timefold.solver.core.api.domain.variable.ShadowSources;
 import ai.timefold.solver.core.api.domain.variable.ShadowVariable;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
@@ -19,11 +19,16 @@ import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 
 @JsonIdentityInfo(scope = Visit.class, generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @PlanningEntity
-public class Visit {
+public class Visit implements LocationAware {
     private String id;
     private String name;
     private Location location;
     private int demand;
+    /**
+     * Demand per load dimension, such as weight, volume and parcels, in the order of {@link Vehicle#getCapacities()}.
+     * Null if the visit only has a {@link #demand}.
+     */
+    private int[] loads;
     private Duration serviceDuration;
     
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
@@ -31,6 +36,23 @@ public class Visit {
     
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss") 
     private LocalDateTime maxEndTime;
+
+    /**
+     * When the service should be finished. Finishing later is allowed, but penalized, up to {@link #maxEndTime}.
+     * Null if only the max end time matters.
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime softMaxEndTime;
+
+    // The same in epoch seconds, kept in step by the setters, so the shadow chain never converts.
+    @JsonIgnore
+    private long minStartEpochSecond = EpochSeconds.UNKNOWN;
+    @JsonIgnore
+    private long maxEndEpochSecond = EpochSeconds.UNKNOWN;
+    @JsonIgnore
+    private long softMaxEndEpochSecond = EpochSeconds.UNKNOWN;
+    @JsonIgnore
+    private long serviceSeconds;
     
 
     @JsonIdentityReference(alwaysAsId = true)
@@ -40,17 +62,19 @@ public class Visit {
     @JsonIdentityReference(alwaysAsId = true)
     @PreviousElementShadowVariable(sourceVariableName = "visits")
     private Visit previousVisit;
+
+    @JsonIdentityReference(alwaysAsId = true)
+    @NextElementShadowVariable(sourceVariableName = "visits")
+    private Visit nextVisit;
     
-    // Shadow variables (auto-calculated)
-    @ShadowVariable(supplierName = "arrivalTimeSupplier")
-    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
-    private LocalDateTime arrivalTime;
-    
-    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
-    private LocalDateTime departureTime;
-    
-    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
-    private LocalDateTime startServiceTime;
+    // Shadow variables (auto-calculated), in epoch seconds; only the JSON getters build LocalDateTimes.
+    @JsonIgnore
+    @ShadowVariable(supplierName = "arrivalEpochSecondSupplier")
+    private Long arrivalEpochSecond;
+
+    @JsonIgnore
+    @ShadowVariable(supplierName = "departureEpochSecondSupplier")
+    private Long departureEpochSecond;
     
     // CRITICAL: Must have ALL getters and setters
     public Vehicle getVehicle() { return vehicle; }
@@ -62,6 +86,12 @@ public class Visit {
         this.previousVisit = previousVisit;
     }
 
+    public Visit getNextVisit() { return nextVisit; }
+
+    public void setNextVisit(Visit nextVisit) {
+        this.nextVisit = nextVisit;
+    }
+
 
     // Default constructor
     public Visit() {
@@ -82,9 +112,9 @@ public class Visit {
         this.name = name;
         this.location = location;
         this.demand = demand;
-        this.minStartTime = minStartTime;
-        this.maxEndTime = maxEndTime;
-        this.serviceDuration = Duration.ofMinutes(30); // default 30 minutes
+        setMinStartTime(minStartTime);
+        setMaxEndTime(maxEndTime);
+        setServiceDuration(Duration.ofMinutes(30)); // default 30 minutes
     }
 
     public Visit(String id, String name, Location location, int demand,
@@ -93,10 +123,9 @@ public class Visit {
         this.name = name;
         this.location = location;
         this.demand = demand;
-        this.minStartTime = minStartTime;
-        this.maxEndTime = maxEndTime;
-        // Convert Duration to seconds
-        this.serviceDuration = serviceDuration != null ? serviceDuration : Duration.ofMinutes(30);
+        setMinStartTime(minStartTime);
+        setMaxEndTime(maxEndTime);
+        setServiceDuration(serviceDuration != null ? serviceDuration : Duration.ofMinutes(30));
     }
 
     // SAFE getters that don't do calculations
@@ -106,110 +135,183 @@ public class Visit {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
+    @Override
     public Location getLocation() { return location; }
     public void setLocation(Location location) { this.location = location; }
 
     public int getDemand() { return demand; }
     public void setDemand(int demand) { this.demand = demand; }
 
+    public int[] getLoads() { return loads; }
+    public void setLoads(int[] loads) { this.loads = loads; }
+
     public LocalDateTime getMinStartTime() { return minStartTime; }
     public void setMinStartTime(LocalDateTime minStartTime) { 
-        this.minStartTime = minStartTime; 
+        this.minStartTime = minStartTime;
+        this.minStartEpochSecond = EpochSeconds.of(minStartTime);
     }
 
     public LocalDateTime getMaxEndTime() { return maxEndTime; }
     public void setMaxEndTime(LocalDateTime maxEndTime) { 
-        this.maxEndTime = maxEndTime; 
+        this.maxEndTime = maxEndTime;
+        this.maxEndEpochSecond = EpochSeconds.of(maxEndTime);
+    }
+
+    public LocalDateTime getSoftMaxEndTime() { return softMaxEndTime; }
+    public void setSoftMaxEndTime(LocalDateTime softMaxEndTime) {
+        this.softMaxEndTime = softMaxEndTime;
+        this.softMaxEndEpochSecond = EpochSeconds.of(softMaxEndTime);
     }
 
     public Duration getServiceDuration() { return serviceDuration; }
     public void setServiceDuration(Duration serviceDuration) { 
-        this.serviceDuration = serviceDuration; 
+        this.serviceDuration = serviceDuration;
+        this.serviceSeconds = serviceDuration == null ? 0L : serviceDuration.getSeconds();
     }
 
-    public LocalDateTime getArrivalTime() { return arrivalTime; }
-    public void setArrivalTime(LocalDateTime arrivalTime) { 
-        this.arrivalTime = arrivalTime; 
+    @JsonIgnore
+    public long getMinStartEpochSecond() {
+        return minStartEpochSecond;
     }
 
-    /**
-     * FIXED: Safe departure time getter - no calculations, just return stored value
-     */
-    public void setDepartureTime(LocalDateTime departureTime) { 
-        this.departureTime = departureTime; 
+    @JsonIgnore
+    public long getMaxEndEpochSecond() {
+        return maxEndEpochSecond;
     }
 
-    public void setStartServiceTime(LocalDateTime startServiceTime) { 
-        this.startServiceTime = startServiceTime; 
+    @JsonIgnore
+    public long getSoftMaxEndEpochSecond() {
+        return softMaxEndEpochSecond;
+    }
+
+    @JsonIgnore
+    public long getServiceSeconds() {
+        return serviceSeconds;
     }
 
     /**
-     * Helper method to calculate departure time safely (for internal use)
+     * @return {@link EpochSeconds#UNKNOWN} until the shadow variables are initialized
      */
     @JsonIgnore
-    public LocalDateTime calculateDepartureTime() {
-        if (arrivalTime != null && serviceDuration.getSeconds() > 0) {
-            return arrivalTime.plus(serviceDuration);
-        }
-        return departureTime; // fallback to stored value
+    public long getArrivalEpochSecond() {
+        return arrivalEpochSecond == null ? EpochSeconds.UNKNOWN : arrivalEpochSecond;
+    }
+
+    /**
+     * Stored like the arrival, so the next visit reads it instead of recalculating it.
+     *
+     * @return {@link EpochSeconds#UNKNOWN} until the shadow variables are initialized
+     */
+    @JsonIgnore
+    public long getDepartureEpochSecond() {
+        return departureEpochSecond == null ? EpochSeconds.UNKNOWN : departureEpochSecond;
+    }
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    public LocalDateTime getArrivalTime() {
+        return EpochSeconds.toLocalDateTime(getArrivalEpochSecond());
     }
 
     /**
-     * Helper method to set departure time based on arrival + service duration
+     * Also sets the departure, as the solver would.
      */
-    public void updateDepartureTime() {
-        if (arrivalTime != null && serviceDuration.getSeconds() > 0) {
-            this.departureTime = arrivalTime.plus(serviceDuration);
+    public void setArrivalTime(LocalDateTime arrivalTime) {
+        long arrival = EpochSeconds.of(arrivalTime);
+        this.arrivalEpochSecond = arrival == EpochSeconds.UNKNOWN ? null : arrival;
+        this.departureEpochSecond = calculateDepartureEpochSecond(arrivalEpochSecond);
+    }
+
+    @SuppressWarnings("unused")
+    @ShadowSources({"vehicle", "previousVisit.departureEpochSecond"})
+    private Long arrivalEpochSecondSupplier() {
+        if (vehicle == null) {
+            return null;
+        }
+        long departure = getPreviousStandstillDepartureEpochSecond();
+        if (departure == EpochSeconds.UNKNOWN) {
+            return null;
         }
+        return departure + getDrivingTimeSecondsFromPreviousStandstill(departure);
     }
 
-   @SuppressWarnings("unused")
-    @ShadowSources({"vehicle", "previousVisit.arrivalTime"})
-    private LocalDateTime arrivalTimeSupplier() {
-        if (previousVisit == null && vehicle == null) {
+    @SuppressWarnings("unused")
+    @ShadowSources("arrivalEpochSecond")
+    private Long departureEpochSecondSupplier() {
+        return calculateDepartureEpochSecond(arrivalEpochSecond);
+    }
+
+    private Long calculateDepartureEpochSecond(Long arrival) {
+        if (arrival == null) {
             return null;
         }
-        LocalDateTime departureTime = previousVisit == null ? vehicle.getDepartureTime() : previousVisit.getDepartureTime();
-        return departureTime != null ? departureTime.plusSeconds(getDrivingTimeSecondsFromPreviousStandstill()) : null;
+        return Math.max(arrival, minStartEpochSecond) + serviceSeconds;
     }
 
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     public LocalDateTime getDepartureTime() {
-        if (arrivalTime == null) {
-            return null;
-        }
-        return getStartServiceTime().plus(serviceDuration);
+        return EpochSeconds.toLocalDateTime(getDepartureEpochSecond());
     }
 
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     public LocalDateTime getStartServiceTime() {
-        if (arrivalTime == null) {
+        if (arrivalEpochSecond == null) {
             return null;
         }
-        return arrivalTime.isBefore(minStartTime) ? minStartTime : arrivalTime;
+        return EpochSeconds.toLocalDateTime(Math.max(arrivalEpochSecond, minStartEpochSecond));
     }
 
+    /**
+     * Compares the stored departure with the max end time, so it is a single comparison of primitives.
+     */
     @JsonIgnore
     public boolean isServiceFinishedAfterMaxEndTime() {
-        return arrivalTime != null
-                && arrivalTime.plus(serviceDuration).isAfter(maxEndTime);
+        return departureEpochSecond != null && maxEndEpochSecond != EpochSeconds.UNKNOWN
+                && departureEpochSecond > maxEndEpochSecond;
     }
 
+    /**
+     * @return how late the service finishes, rounded up to whole minutes, 0 if it is not late
+     */
     @JsonIgnore
     public long getServiceFinishedDelayInMinutes() {
-        if (arrivalTime == null) {
-            return 0;
+        if (!isServiceFinishedAfterMaxEndTime()) {
+            return 0L;
+        }
+        return (departureEpochSecond - maxEndEpochSecond + 59L) / 60L;
+    }
+
+    /**
+     * As {@link #isServiceFinishedAfterMaxEndTime()}, for the soft max end time.
+     */
+    @JsonIgnore
+    public boolean isServiceFinishedAfterSoftMaxEndTime() {
+        return departureEpochSecond != null && softMaxEndEpochSecond != EpochSeconds.UNKNOWN
+                && departureEpochSecond > softMaxEndEpochSecond;
+    }
+
+    /**
+     * @return how late the service finishes past the soft max end time, rounded up to whole minutes,
+     *         0 if it is not late or there is no soft max end time
+     */
+    @JsonIgnore
+    public long getServiceFinishedSoftDelayInMinutes() {
+        if (!isServiceFinishedAfterSoftMaxEndTime()) {
+            return 0L;
         }
-        return roundDurationToNextOrEqualMinutes(Duration.between(maxEndTime, arrivalTime.plus(serviceDuration)));
+        return (departureEpochSecond - softMaxEndEpochSecond + 59L) / 60L;
     }
 
-    private static long roundDurationToNextOrEqualMinutes(Duration duration) {
-        var remainder = duration.minus(duration.truncatedTo(ChronoUnit.MINUTES));
-        var minutes = duration.toMinutes();
-        if (remainder.equals(Duration.ZERO)) {
-            return minutes;
+    /**
+     * @return seconds between the arrival and the min start time, 0 if the service starts on arrival
+     */
+    @JsonIgnore
+    public long getWaitingSeconds() {
+        if (arrivalEpochSecond == null || minStartEpochSecond == EpochSeconds.UNKNOWN) {
+            return 0L;
         }
-        return minutes + 1;
+        return Math.max(0L, minStartEpochSecond - arrivalEpochSecond);
     }
 
     @JsonIgnore
@@ -218,10 +320,49 @@ public class Visit {
             throw new IllegalStateException(
                     "This method must not be called when the shadow variables are not initialized yet.");
         }
-        if (previousVisit == null) {
-            return vehicle.getHomeLocation().getDrivingTimeTo(location);
+        return getDrivingTimeSecondsFromPreviousStandstill(getPreviousStandstillDepartureEpochSecond());
+    }
+
+    /**
+     * Driving time from the previous standstill for the assigned vehicle's profile,
+     * in the traffic of the bucket the previous standstill is left in.
+     *
+     * @param departureEpochSecond {@link EpochSeconds#UNKNOWN} if unknown, in which case the time of day is ignored
+     */
+    private long getDrivingTimeSecondsFromPreviousStandstill(long departureEpochSecond) {
+        Location previousLocation = previousVisit == null ? vehicle.getHomeLocation() : previousVisit.getLocation();
+        return previousLocation.getDrivingTimeTo(location, vehicle.getDrivingTimeProfile(), departureEpochSecond);
+    }
+
+    /**
+     * Driving time back to the home location of the assigned vehicle, leaving when this visit is done.
+     */
+    @JsonIgnore
+    public long getDrivingTimeSecondsToVehicleHome() {
+        if (vehicle == null) {
+            throw new IllegalStateException(
+                    "This method must not be called when the shadow variables are not initialized yet.");
         }
-        return previousVisit.getLocation().getDrivingTimeTo(location);
+        return location.getDrivingTimeTo(vehicle.getHomeLocation(), vehicle.getDrivingTimeProfile(),
+                getDepartureEpochSecond());
+    }
+
+    /**
+     * The driving time this visit adds to its route: the leg from the previous standstill,
+     * plus the leg back home if it is the last visit.
+     * Only reads this visit's own variables, so a move only rescores the visits whose legs it changed,
+     * whatever the length of the route.
+     *
+     * @see Vehicle#getTotalDrivingTimeSeconds()
+     */
+    @JsonIgnore
+    public long getLegDrivingTimeSeconds() {
+        long drivingTime = getDrivingTimeSecondsFromPreviousStandstill();
+        return nextVisit == null ? drivingTime + getDrivingTimeSecondsToVehicleHome() : drivingTime;
+    }
+
+    private long getPreviousStandstillDepartureEpochSecond() {
+        return previousVisit == null ? vehicle.getDepartureEpochSecond() : previousVisit.getDepartureEpochSecond();
     }
 
     // Required by the web UI even before the solution has been initialized.
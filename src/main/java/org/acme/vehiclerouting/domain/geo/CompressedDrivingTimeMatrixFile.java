@@ -0,0 +1,115 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Cold storage for a full matrix: row by row, each driving time as a zigzag varint of its difference
+ * to the previous cell of its row. Neighboring columns of nearby locations differ by little,
+ * so most cells take 1 or 2 bytes instead of 8.
+ * A {@link SymmetricDrivingTimeMatrix} only stores its upper triangle and reads back as one.
+ * Not randomly accessible: {@link #read} decodes the whole file, row by row, into an on-heap matrix.
+ */
+final class CompressedDrivingTimeMatrixFile {
+
+    private static final int MAGIC = 0x44564D5A; // "DVMZ"
+    private static final int UPPER_TRIANGLE_MAGIC = 0x44564D54; // "DVMT"
+
+    private CompressedDrivingTimeMatrixFile() {
+    }
+
+    static void write(DrivingTimeMatrix drivingTimeMatrix, Path file) throws IOException {
+        int size = drivingTimeMatrix.size();
+        boolean upperTriangle = drivingTimeMatrix instanceof SymmetricDrivingTimeMatrix;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(upperTriangle ? UPPER_TRIANGLE_MAGIC : MAGIC);
+            out.writeInt(size);
+            for (int fromIndex = 0; fromIndex < size; fromIndex++) {
+                long previousDrivingTime = 0L;
+                for (int toIndex = upperTriangle ? fromIndex : 0; toIndex < size; toIndex++) {
+                    long drivingTime = drivingTimeMatrix.getDrivingTime(fromIndex, toIndex);
+                    writeVarint(out, zigzag(drivingTime - previousDrivingTime));
+                    previousDrivingTime = drivingTime;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param size the expected number of locations
+     * @param maxResolutionSeconds see {@link DenseDrivingTimeMatrix#calculate(int, DrivingTimeKernel, long)}
+     * @return never null, a {@link SymmetricDrivingTimeMatrix} if one was written,
+     *         else a {@link DenseDrivingTimeMatrix}
+     * @throws IOException if the file is not a compressed matrix of that size
+     */
+    static DrivingTimeMatrix read(Path file, int size, long maxResolutionSeconds) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != UPPER_TRIANGLE_MAGIC) {
+                throw new IOException("The file (" + file + ") is not a compressed driving time matrix.");
+            }
+            int fileSize = in.readInt();
+            if (fileSize != size) {
+                throw new IOException("The file (" + file + ") holds a matrix of size (" + fileSize
+                        + ") instead of (" + size + ").");
+            }
+            boolean upperTriangle = magic == UPPER_TRIANGLE_MAGIC;
+            DrivingTimeArray.Builder drivingTimes = DrivingTimeArray.builder(upperTriangle
+                    ? SymmetricDrivingTimeMatrix.cellCount(size) : Math.multiplyExact(size, size));
+            long[] row = new long[size];
+            for (int fromIndex = 0; fromIndex < size; fromIndex++) {
+                int rowStartIndex = upperTriangle ? fromIndex : 0;
+                long drivingTime = 0L;
+                for (int toIndex = rowStartIndex; toIndex < size; toIndex++) {
+                    drivingTime += unzigzag(readVarint(in));
+                    row[toIndex - rowStartIndex] = drivingTime;
+                }
+                drivingTimes.put(upperTriangle
+                        ? SymmetricDrivingTimeMatrix.rowOffset(fromIndex, size) + fromIndex
+                        : fromIndex * size, row, 0, size - rowStartIndex);
+            }
+            DrivingTimeArray encodedDrivingTimes = drivingTimes.build(maxResolutionSeconds);
+            return upperTriangle ? new SymmetricDrivingTimeMatrix(size, encodedDrivingTimes)
+                    : new DenseDrivingTimeMatrix(size, encodedDrivingTimes);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0L) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated compressed driving time matrix.");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in a compressed driving time matrix.");
+    }
+}
@@ -0,0 +1,738 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A {@link RoadNetwork} preprocessed for fast shortest-path queries.
+ * <p>
+ * Nodes are contracted one by one, least important first, adding a shortcut wherever a shortest path ran through
+ * the contracted node. A query then only searches upward, from less to more important nodes,
+ * forward from the source and backward from the target, and the two searches meet at the most important node
+ * of the shortest path. Upward search spaces are small, typically a few hundred nodes, even for a whole country.
+ * <p>
+ * The hierarchy is always used from a file, so a later startup only maps it.
+ * The file starts with a header of {@value #HEADER_BYTES} bytes (magic number, format version, node count,
+ * forward and backward edge counts, then the {@link Source} it was built from), followed by little-endian
+ * {@code int} sections:
+ * latitudes and longitudes in 1e-7 degrees, then the forward and the backward upward graph,
+ * each as first edge per node, edge targets and edge weights in milliseconds.
+ */
+final class ContractionHierarchy {
+
+    static final int MAGIC = 0x48435644; // "DVCH" in little-endian
+    static final int FORMAT_VERSION = 2;
+    static final int HEADER_BYTES = 56;
+    private static final int SOURCE_OFFSET = 24;
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * A witness search gives up after settling this many nodes and adds the shortcut anyway.
+     * Superfluous shortcuts cost a little query time, never correctness.
+     */
+    static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final int nodeCount;
+    private final long sourceFingerprint;
+    private final IntBuffer latitudesE7;
+    private final IntBuffer longitudesE7;
+    private final IntBuffer forwardFirst;
+    private final IntBuffer forwardTarget;
+    private final IntBuffer forwardWeight;
+    private final IntBuffer backwardFirst;
+    private final IntBuffer backwardTarget;
+    private final IntBuffer backwardWeight;
+    /**
+     * Every thread that runs queries gets its own search space, sized by the nodes its searches reach,
+     * not by the whole graph.
+     */
+    private final ThreadLocal<SearchSpace> searchSpaces;
+
+    private ContractionHierarchy(int nodeCount, long sourceFingerprint, IntBuffer[] sections) {
+        this.nodeCount = nodeCount;
+        this.sourceFingerprint = sourceFingerprint;
+        this.latitudesE7 = sections[0];
+        this.longitudesE7 = sections[1];
+        this.forwardFirst = sections[2];
+        this.forwardTarget = sections[3];
+        this.forwardWeight = sections[4];
+        this.backwardFirst = sections[5];
+        this.backwardTarget = sections[6];
+        this.backwardWeight = sections[7];
+        this.searchSpaces = ThreadLocal.withInitial(SearchSpace::new);
+    }
+
+    /**
+     * Contract the road network and write the hierarchy to a file.
+     *
+     * @param roadNetwork never null
+     * @param file never null, overwritten if it exists
+     * @param source never null, what the road network was read from
+     * @throws IOException if the file cannot be written
+     */
+    static void write(RoadNetwork roadNetwork, Path file, Source source) throws IOException {
+        Contractor contractor = new Contractor(roadNetwork);
+        contractor.contractAll();
+        int[][] forward = contractor.forwardUpwardGraph();
+        int[][] backward = contractor.backwardUpwardGraph();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(roadNetwork.nodeCount())
+                    .putInt(forward[1].length).putInt(backward[1].length).putInt(0);
+            source.writeTo(header);
+            header.flip();
+            channel.write(header, 0L);
+            channel.position(HEADER_BYTES);
+            for (int[] section : new int[][] { roadNetwork.latitudesE7(), roadNetwork.longitudesE7(),
+                    forward[0], forward[1], forward[2], backward[0], backward[1], backward[2] }) {
+                writeInts(channel, section);
+            }
+        }
+    }
+
+    private static void writeInts(FileChannel channel, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        int position = 0;
+        while (position < values.length) {
+            int length = Math.min(values.length - position, buffer.capacity() / Integer.BYTES);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, position, length);
+            buffer.limit(length * Integer.BYTES);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            position += length;
+        }
+    }
+
+    /**
+     * Read only the header of a file written by {@link #write(RoadNetwork, Path, Source)}.
+     *
+     * @param file never null
+     * @return never null, what the hierarchy was built from
+     * @throws IOException if the file cannot be read or is not a contraction hierarchy
+     */
+    static Source readSource(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, file);
+            return Source.readFrom(header.position(SOURCE_OFFSET));
+        }
+    }
+
+    /**
+     * Overwrite the source in the header of a file written by {@link #write(RoadNetwork, Path, Source)},
+     * such as after the extract was touched without changing its content. The graph sections stay as they are.
+     *
+     * @param file never null
+     * @param source never null
+     * @throws IOException if the file cannot be written
+     */
+    static void updateSource(Path file, Source source) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            readHeader(channel, file);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES - SOURCE_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+            source.writeTo(buffer);
+            buffer.flip();
+            channel.write(buffer, SOURCE_OFFSET);
+        }
+    }
+
+    /**
+     * @return positioned after the format version
+     */
+    private static ByteBuffer readHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0L);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException("The file (" + file + ") is not a contraction hierarchy.");
+        }
+        return header;
+    }
+
+    /**
+     * Map a file written by {@link #write(RoadNetwork, Path, Source)} read-only.
+     *
+     * @param file never null
+     * @param expectedSourceFingerprint the {@link Source#fingerprint()} the hierarchy must have been built from
+     * @return never null
+     * @throws IOException if the file cannot be read, is incomplete, or was built from another source
+     */
+    static ContractionHierarchy open(Path file, long expectedSourceFingerprint) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel, file);
+            int nodeCount = header.getInt();
+            int forwardEdgeCount = header.getInt();
+            int backwardEdgeCount = header.getInt();
+            header.getInt();
+            long sourceFingerprint = header.getLong();
+            if (sourceFingerprint != expectedSourceFingerprint) {
+                throw new IOException("The file (" + file + ") was built from another road network.");
+            }
+            int[] sectionLengths = { nodeCount, nodeCount, nodeCount + 1, forwardEdgeCount, forwardEdgeCount,
+                    nodeCount + 1, backwardEdgeCount, backwardEdgeCount };
+            long expectedBytes = HEADER_BYTES + Arrays.stream(sectionLengths).asLongStream().sum() * Integer.BYTES;
+            if (channel.size() != expectedBytes) {
+                throw new IOException("The file (" + file + ") has (" + channel.size() + ") bytes, expected ("
+                        + expectedBytes + ") bytes.");
+            }
+            IntBuffer[] sections = new IntBuffer[sectionLengths.length];
+            long position = HEADER_BYTES;
+            for (int i = 0; i < sections.length; i++) {
+                long bytes = (long) sectionLengths[i] * Integer.BYTES;
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                position += bytes;
+            }
+            return new ContractionHierarchy(nodeCount, sourceFingerprint, sections);
+        }
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    long sourceFingerprint() {
+        return sourceFingerprint;
+    }
+
+    double latitude(int node) {
+        return latitudesE7.get(node) / 1e7;
+    }
+
+    double longitude(int node) {
+        return longitudesE7.get(node) / 1e7;
+    }
+
+    /**
+     * Find the node closest to a coordinate, by scanning ever wider rings of grid cells around it.
+     *
+     * @param latitude in degrees
+     * @param longitude in degrees
+     * @param maxRing how many cells away from the coordinate's own cell to look at most
+     * @return -1 if no node lies within {@code maxRing} cells
+     */
+    int findNearestNode(double latitude, double longitude, int maxRing) {
+        int latitudeE7 = (int) Math.round(latitude * 1e7);
+        int longitudeE7 = (int) Math.round(longitude * 1e7);
+        int centerKey = RoadNetwork.cellKey(latitudeE7, longitudeE7);
+        int centerLatitudeCell = centerKey / RoadNetwork.LONGITUDE_CELL_COUNT;
+        int centerLongitudeCell = centerKey % RoadNetwork.LONGITUDE_CELL_COUNT;
+        double longitudeScale = Math.cos(Math.toRadians(latitude));
+        int nearestNode = -1;
+        double nearestDistanceSquared = Double.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int latitudeCell = centerLatitudeCell - ring; latitudeCell <= centerLatitudeCell + ring;
+                    latitudeCell++) {
+                boolean edgeRow = Math.abs(latitudeCell - centerLatitudeCell) == ring;
+                int longitudeStep = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int longitudeCell = centerLongitudeCell - ring; longitudeCell <= centerLongitudeCell + ring;
+                        longitudeCell += longitudeStep) {
+                    int key = latitudeCell * RoadNetwork.LONGITUDE_CELL_COUNT
+                            + Math.floorMod(longitudeCell, RoadNetwork.LONGITUDE_CELL_COUNT);
+                    for (int node = firstNodeInCell(key); node < nodeCount
+                            && RoadNetwork.cellKey(latitudesE7.get(node), longitudesE7.get(node)) == key; node++) {
+                        double dLatitude = latitudesE7.get(node) - latitudeE7;
+                        double dLongitude = (longitudesE7.get(node) - longitudeE7) * longitudeScale;
+                        double distanceSquared = dLatitude * dLatitude + dLongitude * dLongitude;
+                        if (distanceSquared < nearestDistanceSquared) {
+                            nearestDistanceSquared = distanceSquared;
+                            nearestNode = node;
+                        }
+                    }
+                }
+            }
+            // Every node in the next ring is at least this many cells away.
+            double ringDistance = ring * (double) RoadNetwork.CELL_SIZE_E7 * longitudeScale;
+            if (nearestNode >= 0 && nearestDistanceSquared <= ringDistance * ringDistance) {
+                break;
+            }
+        }
+        return nearestNode;
+    }
+
+    private int firstNodeInCell(int key) {
+        int low = 0;
+        int high = nodeCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (RoadNetwork.cellKey(latitudesE7.get(middle), longitudesE7.get(middle)) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Run an upward search from a node and report every node it settles, with its distance.
+     *
+     * @param node the source of a forward search, the target of a backward search
+     * @param forward true to follow edges forward, false to follow them backward
+     * @param consumer never null, called once per settled node, in order of distance
+     */
+    void searchUpward(int node, boolean forward, SettledNodeConsumer consumer) {
+        IntBuffer first = forward ? forwardFirst : backwardFirst;
+        IntBuffer target = forward ? forwardTarget : backwardTarget;
+        IntBuffer weight = forward ? forwardWeight : backwardWeight;
+        SearchSpace searchSpace = searchSpaces.get();
+        try {
+            searchSpace.reach(node, 0);
+            while (!searchSpace.heap.isEmpty()) {
+                long entry = searchSpace.heap.pop();
+                int settledNode = (int) entry;
+                int distance = (int) (entry >>> 32);
+                if (distance > searchSpace.distance(settledNode)) {
+                    continue; // Stale entry, the node was reached again at a shorter distance.
+                }
+                consumer.accept(settledNode, distance);
+                for (int edge = first.get(settledNode), end = first.get(settledNode + 1); edge < end; edge++) {
+                    searchSpace.reach(target.get(edge), saturatedAdd(distance, weight.get(edge)));
+                }
+            }
+        } finally {
+            searchSpace.reset();
+        }
+    }
+
+    static int saturatedAdd(int a, int b) {
+        long sum = (long) a + b;
+        return sum >= UNREACHABLE ? UNREACHABLE : (int) sum;
+    }
+
+    /**
+     * What a hierarchy was built from.
+     *
+     * @param fingerprint a hash over the content of the extract and every setting the hierarchy is built with
+     * @param contentHash a hash over the content of the extract only
+     * @param size the size of the extract in bytes, to tell whether its content must be hashed again
+     * @param lastModifiedMillis the modification time of the extract, to tell whether its content must be hashed
+     *        again
+     */
+    record Source(long fingerprint, long contentHash, long size, long lastModifiedMillis) {
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putLong(fingerprint).putLong(contentHash).putLong(size).putLong(lastModifiedMillis);
+        }
+
+        static Source readFrom(ByteBuffer buffer) {
+            return new Source(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    @FunctionalInterface
+    interface SettledNodeConsumer {
+
+        void accept(int node, int distanceMillis);
+    }
+
+    /**
+     * Dijkstra state: the distance of every node a search reached, in an open-addressing hash map.
+     * Upward searches reach a few hundred nodes and witness searches stop early,
+     * so the map stays small however large the graph is.
+     * Reset after each search by emptying only the slots the search used.
+     */
+    private static final class SearchSpace {
+
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int EMPTY = -1;
+
+        final LongHeap heap = new LongHeap();
+        private int[] nodes;
+        private int[] distances;
+        private int[] usedSlots;
+        private int size = 0;
+
+        SearchSpace() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            nodes = new int[capacity];
+            Arrays.fill(nodes, EMPTY);
+            distances = new int[capacity];
+            usedSlots = new int[capacity / 2];
+        }
+
+        /**
+         * @return {@link #UNREACHABLE} if the search did not reach the node
+         */
+        int distance(int node) {
+            int slot = findSlot(node);
+            return nodes[slot] == EMPTY ? UNREACHABLE : distances[slot];
+        }
+
+        void reach(int node, int distance) {
+            if (distance == UNREACHABLE) {
+                return;
+            }
+            int slot = findSlot(node);
+            if (nodes[slot] == EMPTY) {
+                // At most half full, so probes stay short.
+                if (size == usedSlots.length) {
+                    grow();
+                    slot = findSlot(node);
+                }
+                nodes[slot] = node;
+                usedSlots[size++] = slot;
+            } else if (distance >= distances[slot]) {
+                return;
+            }
+            distances[slot] = distance;
+            heap.push(((long) distance << 32) | node);
+        }
+
+        private int findSlot(int node) {
+            int mask = nodes.length - 1;
+            int hash = node * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (nodes[slot] != EMPTY && nodes[slot] != node) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldNodes = nodes;
+            int[] oldDistances = distances;
+            int[] oldUsedSlots = usedSlots;
+            int oldSize = size;
+            allocate(oldNodes.length * 2);
+            size = 0;
+            for (int i = 0; i < oldSize; i++) {
+                int oldSlot = oldUsedSlots[i];
+                int slot = findSlot(oldNodes[oldSlot]);
+                nodes[slot] = oldNodes[oldSlot];
+                distances[slot] = oldDistances[oldSlot];
+                usedSlots[size++] = slot;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < size; i++) {
+                nodes[usedSlots[i]] = EMPTY;
+            }
+            size = 0;
+            heap.clear();
+        }
+    }
+
+    /**
+     * Binary min-heap of longs. Dijkstra entries pack the distance in the high and the node in the low 32 bits,
+     * and are never updated in place: a shorter distance is pushed again and the stale entry skipped when popped.
+     */
+    private static final class LongHeap {
+
+        private long[] entries = new long[256];
+        private int size = 0;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long peek() {
+            return entries[0];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (entries[parent] <= entry) {
+                    break;
+                }
+                entries[index] = entries[parent];
+                index = parent;
+            }
+            entries[index] = entry;
+        }
+
+        long pop() {
+            long top = entries[0];
+            long last = entries[--size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && entries[child + 1] < entries[child]) {
+                    child++;
+                }
+                if (last <= entries[child]) {
+                    break;
+                }
+                entries[index] = entries[child];
+                index = child;
+            }
+            entries[index] = last;
+            return top;
+        }
+    }
+
+    /**
+     * Contracts the nodes in order of edge difference (shortcuts added minus edges removed),
+     * plus the number of already contracted neighbors to spread the contraction evenly over the map.
+     * Priorities are updated lazily: a node whose recalculated priority is no longer the lowest is put back.
+     */
+    private static final class Contractor {
+
+        private static final long PRIORITY_OFFSET = 1L << 30;
+
+        private final int nodeCount;
+        private final int[][] outTargets;
+        private final int[][] outWeights;
+        private final int[] outSizes;
+        private final int[][] inTargets;
+        private final int[][] inWeights;
+        private final int[] inSizes;
+        private final boolean[] contracted;
+        private final int[] contractedNeighborCounts;
+        private final SearchSpace witnessSearchSpace;
+
+        // Upward edges in the order they are emitted, per contracted node.
+        private int upwardEdgeCount = 0;
+        private int[] upwardSources = new int[1024];
+        private int[] upwardTargets = new int[1024];
+        private int[] upwardWeights = new int[1024];
+        private boolean[] upwardForward = new boolean[1024];
+
+        Contractor(RoadNetwork roadNetwork) {
+            nodeCount = roadNetwork.nodeCount();
+            outTargets = new int[nodeCount][];
+            outWeights = new int[nodeCount][];
+            outSizes = new int[nodeCount];
+            inTargets = new int[nodeCount][];
+            inWeights = new int[nodeCount][];
+            inSizes = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                outTargets[node] = new int[4];
+                outWeights[node] = new int[4];
+                inTargets[node] = new int[4];
+                inWeights[node] = new int[4];
+            }
+            contracted = new boolean[nodeCount];
+            contractedNeighborCounts = new int[nodeCount];
+            witnessSearchSpace = new SearchSpace();
+            for (int node = 0; node < nodeCount; node++) {
+                for (int edge = roadNetwork.firstEdge(node), end = roadNetwork.firstEdge(node + 1); edge < end;
+                        edge++) {
+                    if (roadNetwork.edgeTarget(edge) != node) {
+                        addEdge(node, roadNetwork.edgeTarget(edge), roadNetwork.edgeWeight(edge));
+                    }
+                }
+            }
+        }
+
+        void contractAll() {
+            LongHeap queue = new LongHeap();
+            for (int node = 0; node < nodeCount; node++) {
+                queue.push(encode(calculatePriority(node), node));
+            }
+            while (!queue.isEmpty()) {
+                int node = (int) queue.pop();
+                int priority = calculatePriority(node);
+                if (!queue.isEmpty() && encode(priority, node) > queue.peek()) {
+                    queue.push(encode(priority, node));
+                    continue;
+                }
+                contract(node);
+            }
+        }
+
+        private static long encode(int priority, int node) {
+            return ((priority + PRIORITY_OFFSET) << 32) | node;
+        }
+
+        private int calculatePriority(int node) {
+            int edgeCount = 0;
+            for (int i = 0; i < outSizes[node]; i++) {
+                edgeCount += contracted[outTargets[node][i]] ? 0 : 1;
+            }
+            for (int i = 0; i < inSizes[node]; i++) {
+                edgeCount += contracted[inTargets[node][i]] ? 0 : 1;
+            }
+            return processShortcuts(node, false) - edgeCount + contractedNeighborCounts[node];
+        }
+
+        private void contract(int node) {
+            processShortcuts(node, true);
+            for (int i = 0; i < outSizes[node]; i++) {
+                int target = outTargets[node][i];
+                if (!contracted[target]) {
+                    emitUpwardEdge(node, target, outWeights[node][i], true);
+                    contractedNeighborCounts[target]++;
+                }
+            }
+            for (int i = 0; i < inSizes[node]; i++) {
+                int source = inTargets[node][i];
+                if (!contracted[source]) {
+                    emitUpwardEdge(node, source, inWeights[node][i], false);
+                    contractedNeighborCounts[source]++;
+                }
+            }
+            contracted[node] = true;
+        }
+
+        /**
+         * @param add true to add the shortcuts, false to only count them
+         * @return the number of shortcuts needed to contract the node
+         */
+        private int processShortcuts(int node, boolean add) {
+            int shortcutCount = 0;
+            for (int i = 0; i < inSizes[node]; i++) {
+                int source = inTargets[node][i];
+                if (contracted[source]) {
+                    continue;
+                }
+                int inWeight = inWeights[node][i];
+                int maxWeight = -1;
+                for (int j = 0; j < outSizes[node]; j++) {
+                    int target = outTargets[node][j];
+                    if (target != source && !contracted[target]) {
+                        maxWeight = Math.max(maxWeight, saturatedAdd(inWeight, outWeights[node][j]));
+                    }
+                }
+                if (maxWeight < 0) {
+                    continue;
+                }
+                searchWitnesses(source, node, maxWeight);
+                for (int j = 0; j < outSizes[node]; j++) {
+                    int target = outTargets[node][j];
+                    int shortcutWeight = saturatedAdd(inWeight, outWeights[node][j]);
+                    if (target != source && !contracted[target]
+                            && witnessSearchSpace.distance(target) > shortcutWeight) {
+                        shortcutCount++;
+                        if (add) {
+                            addEdge(source, target, shortcutWeight);
+                        }
+                    }
+                }
+                witnessSearchSpace.reset();
+            }
+            return shortcutCount;
+        }
+
+        /**
+         * Dijkstra from {@code source} over the remaining graph without {@code via}.
+         * Leaves its distances in the witness search space, for the caller to reset.
+         */
+        private void searchWitnesses(int source, int via, int maxWeight) {
+            SearchSpace searchSpace = witnessSearchSpace;
+            searchSpace.reach(source, 0);
+            int settledCount = 0;
+            while (!searchSpace.heap.isEmpty() && settledCount < WITNESS_SETTLE_LIMIT) {
+                long entry = searchSpace.heap.pop();
+                int settledNode = (int) entry;
+                int distance = (int) (entry >>> 32);
+                if (distance > searchSpace.distance(settledNode)) {
+                    continue;
+                }
+                if (distance > maxWeight) {
+                    break;
+                }
+                settledCount++;
+                for (int i = 0; i < outSizes[settledNode]; i++) {
+                    int target = outTargets[settledNode][i];
+                    if (target != via && !contracted[target]) {
+                        searchSpace.reach(target, saturatedAdd(distance, outWeights[settledNode][i]));
+                    }
+                }
+            }
+            searchSpace.heap.clear();
+        }
+
+        private void addEdge(int source, int target, int weight) {
+            for (int i = 0; i < outSizes[source]; i++) {
+                if (outTargets[source][i] == target) {
+                    if (weight < outWeights[source][i]) {
+                        outWeights[source][i] = weight;
+                        for (int j = 0; j < inSizes[target]; j++) {
+                            if (inTargets[target][j] == source) {
+                                inWeights[target][j] = weight;
+                            }
+                        }
+                    }
+                    return;
+                }
+            }
+            if (outSizes[source] == outTargets[source].length) {
+                outTargets[source] = Arrays.copyOf(outTargets[source], outSizes[source] * 2);
+                outWeights[source] = Arrays.copyOf(outWeights[source], outSizes[source] * 2);
+            }
+            outTargets[source][outSizes[source]] = target;
+            outWeights[source][outSizes[source]++] = weight;
+            if (inSizes[target] == inTargets[target].length) {
+                inTargets[target] = Arrays.copyOf(inTargets[target], inSizes[target] * 2);
+                inWeights[target] = Arrays.copyOf(inWeights[target], inSizes[target] * 2);
+            }
+            inTargets[target][inSizes[target]] = source;
+            inWeights[target][inSizes[target]++] = weight;
+        }
+
+        private void emitUpwardEdge(int source, int target, int weight, boolean forward) {
+            if (upwardEdgeCount == upwardSources.length) {
+                upwardSources = Arrays.copyOf(upwardSources, upwardEdgeCount * 2);
+                upwardTargets = Arrays.copyOf(upwardTargets, upwardEdgeCount * 2);
+                upwardWeights = Arrays.copyOf(upwardWeights, upwardEdgeCount * 2);
+                upwardForward = Arrays.copyOf(upwardForward, upwardEdgeCount * 2);
+            }
+            upwardSources[upwardEdgeCount] = source;
+            upwardTargets[upwardEdgeCount] = target;
+            upwardWeights[upwardEdgeCount] = weight;
+            upwardForward[upwardEdgeCount] = forward;
+            upwardEdgeCount++;
+        }
+
+        /**
+         * @return first edge per node, edge targets and edge weights
+         */
+        int[][] forwardUpwardGraph() {
+            return upwardGraph(true);
+        }
+
+        int[][] backwardUpwardGraph() {
+            return upwardGraph(false);
+        }
+
+        private int[][] upwardGraph(boolean forward) {
+            int[] first = new int[nodeCount + 1];
+            int edgeCount = 0;
+            for (int i = 0; i < upwardEdgeCount; i++) {
+                if (upwardForward[i] == forward) {
+                    first[upwardSources[i] + 1]++;
+                    edgeCount++;
+                }
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                first[node + 1] += first[node];
+            }
+            int[] next = Arrays.copyOf(first, nodeCount);
+            int[] targets = new int[edgeCount];
+            int[] weights = new int[edgeCount];
+            for (int i = 0; i < upwardEdgeCount; i++) {
+                if (upwardForward[i] == forward) {
+                    int edge = next[upwardSources[i]]++;
+                    targets[edge] = upwardTargets[i];
+                    weights[edge] = upwardWeights[i];
+                }
+            }
+            return new int[][] { first, targets, weights };
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.acme.vehiclerouting.domain.geo;
+
+/**
+ * Stores all driving times in a single row-major primitive array,
+ * so a lookup is one multiplication and one array read.
+ */
+public final class DenseDrivingTimeMatrix implements DrivingTimeMatrix {
+
+    private final int size;
+    private final DrivingTimeArray drivingTimes;
+
+    public DenseDrivingTimeMatrix(int size) {
+        this(size, DrivingTimeArray.ofLongs(new long[Math.multiplyExact(size, size)]));
+    }
+
+    DenseDrivingTimeMatrix(int size, DrivingTimeArray drivingTimes) {
+        this.size = size;
+        this.drivingTimes = drivingTimes;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getDrivingTime(int fromIndex, int toIndex) {
+        return drivingTimes.get(fromIndex * size + toIndex);
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the matrix was {@link #calculate calculated}
+     *         into an encoding narrower than {@link DrivingTimeEncoding#LONG}
+     */
+    public void setDrivingTime(int fromIndex, int toIndex, long drivingTime) {
+        drivingTimes.set(fromIndex * size + toIndex, drivingTime);
+    }
+
+    public DrivingTimeEncoding getEncoding() {
+        return drivingTimes.getEncoding();
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return drivingTimes.getHeapBytes();
+    }
+
+    /**
+     * As {@link #calculate(int, DrivingTimeKernel, long)} at the configured resolution.
+     *
+     * @see DrivingTimeEncoding#configuredResolutionSeconds()
+     */
+    public static DenseDrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel) {
+        return calculate(size, drivingTimeKernel, DrivingTimeEncoding.configuredResolutionSeconds());
+    }
+
+    /**
+     * Fill a matrix tile by tile, spreading the tiles over the common fork-join pool,
+     * storing each driving time straight in the narrowest {@link DrivingTimeEncoding} that holds it.
+     *
+     * @param size number of locations
+     * @param drivingTimeKernel never null
+     * @param maxResolutionSeconds how coarse a {@link DrivingTimeEncoding#SHORT} encoding may round, at least 1
+     * @return never null, read-only unless it needed {@link DrivingTimeEncoding#LONG}
+     */
+    public static DenseDrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel,
+            long maxResolutionSeconds) {
+        DrivingTimeArray.Builder drivingTimes = DrivingTimeArray.builder(Math.multiplyExact(size, size));
+        MatrixTiling.forEachTile(size, false, drivingTimeKernel,
+                (fromStartIndex, fromEndIndex, toStartIndex, toEndIndex) -> {
+            long[] row = new long[toEndIndex - toStartIndex];
+            for (int fromIndex = fromStartIndex; fromIndex < fromEndIndex; fromIndex++) {
+                drivingTimeKernel.calculateDrivingTimes(fromIndex, toStartIndex, toEndIndex, row, 0);
+                drivingTimes.put(fromIndex * size + toStartIndex, row, 0, row.length);
+            }
+        });
+        return new DenseDrivingTimeMatrix(size, drivingTimes.build(maxResolutionSeconds));
+    }
+}
@@ -0,0 +1,255 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The driving times of an on-heap matrix, in one primitive array of a {@link DrivingTimeEncoding}.
+ * A process typically only uses one encoding, which keeps lookups monomorphic.
+ */
+abstract class DrivingTimeArray {
+
+    private static final int SHORT_MAX_VALUE = Character.MAX_VALUE;
+
+    /**
+     * @param drivingTimes never null, the array is used, not copied
+     * @return never null, writable
+     */
+    static DrivingTimeArray ofLongs(long[] drivingTimes) {
+        return new LongDrivingTimeArray(drivingTimes);
+    }
+
+    /**
+     * @param length number of driving times
+     * @return never null, stores each driving time straight in the narrowest encoding that holds it
+     */
+    static Builder builder(int length) {
+        return new Builder(length);
+    }
+
+    abstract DrivingTimeEncoding getEncoding();
+
+    abstract long get(int index);
+
+    abstract int length();
+
+    long getHeapBytes() {
+        return (long) length() * getEncoding().getBytesPerDrivingTime();
+    }
+
+    void set(int index, long drivingTime) {
+        throw new UnsupportedOperationException("A matrix encoded as (" + getEncoding() + ") is read-only.");
+    }
+
+    static final class LongDrivingTimeArray extends DrivingTimeArray {
+
+        private final long[] drivingTimes;
+
+        LongDrivingTimeArray(long[] drivingTimes) {
+            this.drivingTimes = drivingTimes;
+        }
+
+        @Override
+        DrivingTimeEncoding getEncoding() {
+            return DrivingTimeEncoding.LONG;
+        }
+
+        @Override
+        long get(int index) {
+            return drivingTimes[index];
+        }
+
+        @Override
+        int length() {
+            return drivingTimes.length;
+        }
+
+        @Override
+        void set(int index, long drivingTime) {
+            drivingTimes[index] = drivingTime;
+        }
+    }
+
+    static final class IntDrivingTimeArray extends DrivingTimeArray {
+
+        private final int[] drivingTimes;
+
+        IntDrivingTimeArray(int[] drivingTimes) {
+            this.drivingTimes = drivingTimes;
+        }
+
+        @Override
+        DrivingTimeEncoding getEncoding() {
+            return DrivingTimeEncoding.INT;
+        }
+
+        @Override
+        long get(int index) {
+            return drivingTimes[index];
+        }
+
+        @Override
+        int length() {
+            return drivingTimes.length;
+        }
+    }
+
+    /**
+     * Unsigned 16-bit values in a {@code char[]}, in units of {@code scale} seconds.
+     */
+    static final class ShortDrivingTimeArray extends DrivingTimeArray {
+
+        private final char[] drivingTimes;
+        private final int scale;
+
+        ShortDrivingTimeArray(char[] drivingTimes, int scale) {
+            this.drivingTimes = drivingTimes;
+            this.scale = scale;
+        }
+
+        int getScale() {
+            return scale;
+        }
+
+        @Override
+        DrivingTimeEncoding getEncoding() {
+            return DrivingTimeEncoding.SHORT;
+        }
+
+        @Override
+        long get(int index) {
+            return (long) drivingTimes[index] * scale;
+        }
+
+        @Override
+        int length() {
+            return drivingTimes.length;
+        }
+    }
+
+    /**
+     * Collects driving times from several threads at once without a full {@code long[]} next to the result.
+     * Starts as exact {@link DrivingTimeEncoding#SHORT} and only widens when a driving time does not fit,
+     * so the widest copy ever held is the one the largest driving time needs.
+     * {@link #build(long)} picks the same encoding as a full {@code long[]} would get:
+     * a scaled {@link DrivingTimeEncoding#SHORT} if the resolution allows it,
+     * else {@link DrivingTimeEncoding#INT} or {@link DrivingTimeEncoding#LONG}.
+     */
+    static final class Builder {
+
+        private final int length;
+        // Writers hold the read lock, they write disjoint cells. Widening holds the write lock.
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongAccumulator maxDrivingTime = new LongAccumulator(Math::max, 0L);
+        private DrivingTimeEncoding encoding = DrivingTimeEncoding.SHORT;
+        private char[] shortDrivingTimes;
+        private int[] intDrivingTimes;
+        private long[] longDrivingTimes;
+
+        private Builder(int length) {
+            this.length = length;
+            this.shortDrivingTimes = new char[length];
+        }
+
+        /**
+         * Thread-safe as long as concurrent calls write disjoint ranges.
+         *
+         * @param index position of the first driving time
+         * @param drivingTimes never null
+         * @param offset position in {@code drivingTimes} of the first driving time to store
+         * @param count number of driving times to store
+         */
+        void put(int index, long[] drivingTimes, int offset, int count) {
+            long max = 0L;
+            for (int i = offset; i < offset + count; i++) {
+                // Only the widest encoding keeps a negative value.
+                max = Math.max(max, drivingTimes[i] < 0L ? Long.MAX_VALUE : drivingTimes[i]);
+            }
+            maxDrivingTime.accumulate(max);
+            DrivingTimeEncoding needed = max <= SHORT_MAX_VALUE ? DrivingTimeEncoding.SHORT
+                    : max <= Integer.MAX_VALUE ? DrivingTimeEncoding.INT : DrivingTimeEncoding.LONG;
+            while (true) {
+                lock.readLock().lock();
+                try {
+                    if (encoding.compareTo(needed) >= 0) {
+                        switch (encoding) {
+                            case SHORT -> {
+                                for (int i = 0; i < count; i++) {
+                                    shortDrivingTimes[index + i] = (char) drivingTimes[offset + i];
+                                }
+                            }
+                            case INT -> {
+                                for (int i = 0; i < count; i++) {
+                                    intDrivingTimes[index + i] = (int) drivingTimes[offset + i];
+                                }
+                            }
+                            case LONG -> System.arraycopy(drivingTimes, offset, longDrivingTimes, index, count);
+                        }
+                        return;
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                widen(needed);
+            }
+        }
+
+        private void widen(DrivingTimeEncoding needed) {
+            lock.writeLock().lock();
+            try {
+                if (encoding.compareTo(needed) >= 0) {
+                    return;
+                }
+                if (needed == DrivingTimeEncoding.INT) {
+                    intDrivingTimes = new int[length];
+                    for (int i = 0; i < length; i++) {
+                        intDrivingTimes[i] = shortDrivingTimes[i];
+                    }
+                } else {
+                    longDrivingTimes = new long[length];
+                    for (int i = 0; i < length; i++) {
+                        longDrivingTimes[i] = encoding == DrivingTimeEncoding.SHORT ? shortDrivingTimes[i]
+                                : intDrivingTimes[i];
+                    }
+                    intDrivingTimes = null;
+                }
+                shortDrivingTimes = null;
+                encoding = needed;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Call once, after every {@link #put} returned.
+         *
+         * @param maxResolutionSeconds how coarse a {@link DrivingTimeEncoding#SHORT} scale may be, at least 1
+         * @return never null, read-only unless it is {@link DrivingTimeEncoding#LONG}
+         */
+        DrivingTimeArray build(long maxResolutionSeconds) {
+            lock.writeLock().lock();
+            try {
+                long max = maxDrivingTime.get();
+                long scale = Math.max(1L, max / SHORT_MAX_VALUE + (max % SHORT_MAX_VALUE == 0L ? 0L : 1L));
+                if (encoding == DrivingTimeEncoding.SHORT) {
+                    return new ShortDrivingTimeArray(shortDrivingTimes, 1);
+                }
+                if (scale <= maxResolutionSeconds) {
+                    char[] scaledDrivingTimes = new char[length];
+                    long halfScale = scale / 2L;
+                    for (int i = 0; i < length; i++) {
+                        long drivingTime = encoding == DrivingTimeEncoding.INT ? intDrivingTimes[i]
+                                : longDrivingTimes[i];
+                        scaledDrivingTimes[i] = (char) Math.min(SHORT_MAX_VALUE, (drivingTime + halfScale) / scale);
+                    }
+                    return new ShortDrivingTimeArray(scaledDrivingTimes, (int) scale);
+                }
+                return encoding == DrivingTimeEncoding.INT ? new IntDrivingTimeArray(intDrivingTimes)
+                        : new LongDrivingTimeArray(longDrivingTimes);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
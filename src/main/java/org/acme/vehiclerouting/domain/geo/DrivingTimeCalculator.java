@@ -1,7 +1,13 @@
 package org.acme.vehiclerouting.domain.geo;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -18,6 +24,26 @@ public interface DrivingTimeCalculator {
      */
     long calculateDrivingTime(Location from, Location to);
 
+    /**
+     * Whether the driving time from {@code a} to {@code b} always equals the driving time from {@code b} to {@code a}.
+     * Symmetric calculators only need half a matrix.
+     *
+     * @return false by default
+     */
+    default boolean isSymmetric() {
+        return false;
+    }
+
+    /**
+     * Identifies this calculator and every setting that influences its results,
+     * so a persisted matrix is only reused by a calculator that would calculate the same one.
+     * There is no default: the class name alone would share cache entries between differently configured instances.
+     *
+     * @return never null
+     * @see DrivingTimeMatrixCache
+     */
+    String getCacheKey();
+
     /**
      * Bulk calculation of driving time.
      * Typically, much more scalable than {@link #calculateDrivingTime(Location, Location)} iteratively.
@@ -36,13 +62,80 @@ public interface DrivingTimeCalculator {
                         to -> calculateDrivingTime(from, to)))));
     }
 
+    /**
+     * Prepare the given locations for calculating many driving times between them.
+     * The default implementation delegates to {@link #calculateDrivingTime(Location, Location)},
+     * which therefore needs to be thread-safe.
+     *
+     * @param locations never null
+     * @return never null
+     */
+    default DrivingTimeKernel createDrivingTimeKernel(List<Location> locations) {
+        return (fromIndex, toIndex) -> calculateDrivingTime(locations.get(fromIndex), locations.get(toIndex));
+    }
+
+    /**
+     * Calculate the driving time matrix for the given list of locations, in the
+     * {@link DrivingTimeMatrixStorage#configured() configured storage}.
+     * The location at position {@code i} in the list gets matrix index {@code i}.
+     *
+     * @param locations never null, without duplicates
+     * @return never null
+     */
+    default DrivingTimeMatrix calculateDrivingTimeMatrix(List<Location> locations) {
+        return calculateDrivingTimeMatrix(locations, DrivingTimeMatrixStorage.configured());
+    }
+
+    /**
+     * As {@link #calculateDrivingTimeMatrix(List)}, in the given storage.
+     * A full matrix comes from the {@link DrivingTimeMatrixCache#configured() configured cache}, if any,
+     * unless distances are {@link InterleavedDrivingTimeMatrix#isConfigured() kept}: cached matrices have none.
+     *
+     * @param locations never null, without duplicates
+     * @param storage never null
+     * @return never null
+     */
+    default DrivingTimeMatrix calculateDrivingTimeMatrix(List<Location> locations, DrivingTimeMatrixStorage storage) {
+        if (storage.isFull() && !InterleavedDrivingTimeMatrix.isConfigured()) {
+            Optional<DrivingTimeMatrixCache> drivingTimeMatrixCache = DrivingTimeMatrixCache.configured();
+            if (drivingTimeMatrixCache.isPresent()) {
+                return drivingTimeMatrixCache.get().getOrCalculate(this, locations, storage);
+            }
+        }
+        return storage.calculate(locations.size(), createDrivingTimeKernel(locations), isSymmetric());
+    }
+
     /**
      * Calculate driving time matrix for the given list of locations and assign driving time maps accordingly.
+     * A location instance that occurs more than once gets a single matrix index.
+     * Matrix indices follow the {@link HilbertCurve}, so nearby locations get nearby indices.
      *
      * @param locations locations list
      */
     default void initDrivingTimeMaps(Collection<Location> locations) {
-        Map<Location, Map<Location, Long>> drivingTimeMatrix = calculateBulkDrivingTime(locations, locations);
-        locations.forEach(location -> location.setDrivingTimeSeconds(drivingTimeMatrix.get(location)));
+        initDrivingTimeMaps(locations, this::calculateDrivingTimeMatrix);
+    }
+
+    /**
+     * As {@link #initDrivingTimeMaps(Collection)}, with the matrix from the given factory.
+     *
+     * @param locations locations list
+     * @param drivingTimeMatrixFactory never null, gets the distinct locations in matrix index order
+     * @see SharedDrivingTimeMatrixCache
+     */
+    default void initDrivingTimeMaps(Collection<Location> locations,
+            Function<List<Location>, DrivingTimeMatrix> drivingTimeMatrixFactory) {
+        Set<Location> seen = Collections.newSetFromMap(new IdentityHashMap<>(locations.size()));
+        List<Location> distinctLocations = new ArrayList<>(locations.size());
+        for (Location location : locations) {
+            if (seen.add(location)) {
+                distinctLocations.add(location);
+            }
+        }
+        distinctLocations = HilbertCurve.sort(distinctLocations, Function.identity());
+        DrivingTimeMatrix drivingTimeMatrix = drivingTimeMatrixFactory.apply(distinctLocations);
+        for (int i = 0; i < distinctLocations.size(); i++) {
+            distinctLocations.get(i).setDrivingTimeMatrix(drivingTimeMatrix, i);
+        }
     }
 }
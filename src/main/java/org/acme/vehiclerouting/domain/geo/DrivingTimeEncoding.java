@@ -0,0 +1,44 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * The primitive type an on-heap matrix stores its driving times in.
+ * Calculated matrices pick the narrowest encoding that holds their largest driving time
+ * at the {@link #configuredResolutionSeconds() configured resolution}.
+ *
+ * @see DenseDrivingTimeMatrix#getEncoding()
+ * @see SymmetricDrivingTimeMatrix#getEncoding()
+ */
+public enum DrivingTimeEncoding {
+    /**
+     * An unsigned 16-bit value, multiplied by a per-matrix scale. Exact up to about 18 hours,
+     * which covers any trip within a city.
+     */
+    SHORT(Character.BYTES),
+    INT(Integer.BYTES),
+    LONG(Long.BYTES);
+
+    public static final String RESOLUTION_CONFIG_PROPERTY = "vehicle-routing.matrix.resolution-seconds";
+
+    private final int bytesPerDrivingTime;
+
+    DrivingTimeEncoding(int bytesPerDrivingTime) {
+        this.bytesPerDrivingTime = bytesPerDrivingTime;
+    }
+
+    /**
+     * How coarse a {@link #SHORT} encoding may round driving times to fit.
+     * The default of 1 second only allows exact encodings.
+     *
+     * @return at least 1
+     */
+    public static long configuredResolutionSeconds() {
+        return Math.max(1L, ConfigProvider.getConfig().getOptionalValue(RESOLUTION_CONFIG_PROPERTY, Long.class)
+                .orElse(1L));
+    }
+
+    public int getBytesPerDrivingTime() {
+        return bytesPerDrivingTime;
+    }
+}
@@ -0,0 +1,67 @@
+package org.acme.vehiclerouting.domain.geo;
+
+/**
+ * Driving time calculation over a fixed list of locations, addressed by their position in that list.
+ * Lets a {@link DrivingTimeCalculator} convert every location once, instead of once per pair.
+ * Implementations must be thread-safe, because matrices are filled by several threads at once.
+ *
+ * @see DrivingTimeCalculator#createDrivingTimeKernel(java.util.List)
+ */
+public interface DrivingTimeKernel {
+
+    /**
+     * @param fromIndex position of the starting location
+     * @param toIndex position of the target location
+     * @return driving time in seconds
+     */
+    long calculateDrivingTime(int fromIndex, int toIndex);
+
+    /**
+     * Calculate the driving times from one location to a contiguous range of locations.
+     *
+     * @param fromIndex position of the starting location
+     * @param toStartIndex position of the first target location, inclusive
+     * @param toEndIndex position of the last target location, exclusive
+     * @param drivingTimes receives the driving time to {@code toStartIndex + i} at {@code offset + i}
+     * @param offset position in {@code drivingTimes} of the first result
+     */
+    default void calculateDrivingTimes(int fromIndex, int toStartIndex, int toEndIndex, long[] drivingTimes,
+            int offset) {
+        for (int toIndex = toStartIndex; toIndex < toEndIndex; toIndex++) {
+            drivingTimes[offset++] = calculateDrivingTime(fromIndex, toIndex);
+        }
+    }
+
+    /**
+     * @return true if calculating a few targets costs about as much as calculating the whole row,
+     *         so matrices should be filled row by row instead of tile by tile, false by default
+     */
+    default boolean calculatesWholeRows() {
+        return false;
+    }
+
+    /**
+     * @return true if this kernel also knows the driving distances, false by default
+     */
+    default boolean hasDistances() {
+        return false;
+    }
+
+    /**
+     * Calculate the driving times and distances from one location to a contiguous range of locations,
+     * interleaved: the driving time in seconds to {@code toStartIndex + i} at {@code offset + 2 * i},
+     * its distance in meters right after it.
+     * Only supported if {@link #hasDistances()}.
+     *
+     * @param fromIndex position of the starting location
+     * @param toStartIndex position of the first target location, inclusive
+     * @param toEndIndex position of the last target location, exclusive
+     * @param drivingTimesAndDistances receives the results
+     * @param offset position in {@code drivingTimesAndDistances} of the first result
+     */
+    default void calculateDrivingTimesAndDistances(int fromIndex, int toStartIndex, int toEndIndex,
+            int[] drivingTimesAndDistances, int offset) {
+        throw new UnsupportedOperationException("The driving time kernel (" + getClass().getSimpleName()
+                + ") has no distances.");
+    }
+}
@@ -0,0 +1,83 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Driving times (in seconds) between a fixed set of locations.
+ * Every location is addressed by its dense matrix index, in the range {@code [0, size())}.
+ *
+ * @see DrivingTimeCalculator#initDrivingTimeMaps(java.util.Collection)
+ */
+public interface DrivingTimeMatrix {
+
+    /**
+     * @return number of locations in this matrix
+     */
+    int size();
+
+    /**
+     * Driving time between two locations of this matrix in seconds.
+     *
+     * @param fromIndex matrix index of the starting location
+     * @param toIndex matrix index of the target location
+     * @return driving time in seconds
+     */
+    long getDrivingTime(int fromIndex, int toIndex);
+
+    /**
+     * Driving time between two locations of this matrix in seconds, when leaving at the given time.
+     *
+     * @param fromIndex matrix index of the starting location
+     * @param toIndex matrix index of the target location
+     * @param departureTime never null
+     * @return driving time in seconds, the same at any time of day by default
+     * @see TimeDependentDrivingTimeMatrix
+     */
+    default long getDrivingTime(int fromIndex, int toIndex, LocalDateTime departureTime) {
+        return getDrivingTime(fromIndex, toIndex, departureTime.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Driving time between two locations of this matrix in seconds, when leaving at the given time.
+     * Allocation free, for the solver's hot path.
+     *
+     * @param fromIndex matrix index of the starting location
+     * @param toIndex matrix index of the target location
+     * @param departureEpochSecond seconds since the epoch, in UTC
+     * @return driving time in seconds, the same at any time of day by default
+     * @see TimeDependentDrivingTimeMatrix
+     */
+    default long getDrivingTime(int fromIndex, int toIndex, long departureEpochSecond) {
+        return getDrivingTime(fromIndex, toIndex);
+    }
+
+    /**
+     * @return true if {@link #getDistance(int, int)} is supported, false by default
+     * @see InterleavedDrivingTimeMatrix
+     */
+    default boolean hasDistances() {
+        return false;
+    }
+
+    /**
+     * Driving distance between two locations of this matrix in meters.
+     *
+     * @param fromIndex matrix index of the starting location
+     * @param toIndex matrix index of the target location
+     * @return distance in meters
+     * @throws UnsupportedOperationException unless {@link #hasDistances()}
+     */
+    default long getDistance(int fromIndex, int toIndex) {
+        throw new UnsupportedOperationException("The driving time matrix (" + getClass().getSimpleName()
+                + ") has no distances.");
+    }
+
+    /**
+     * @return estimated number of heap bytes this matrix keeps alive, by default that of a full {@code long[]}
+     * @see SharedDrivingTimeMatrixCache
+     */
+    default long getHeapBytes() {
+        return (long) size() * size() * Long.BYTES;
+    }
+}
@@ -0,0 +1,165 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persists full driving time matrices as {@link MappedDrivingTimeMatrix} files,
+ * named after a fingerprint of the calculator settings and the ordered location coordinates.
+ * Reloading the same locations maps the existing file instead of calculating the matrix again,
+ * also after a restart.
+ * Enabled by configuring {@value #DIRECTORY_CONFIG_PROPERTY}.
+ * With {@value #COMPRESSED_CONFIG_PROPERTY}, files are delta-varint compressed instead,
+ * and decoded into an on-heap {@link DenseDrivingTimeMatrix} on load.
+ * Either way, a matrix is handed out in the requested {@link DrivingTimeMatrixStorage}:
+ * a mapped file is copied onto the heap for {@link DrivingTimeMatrixStorage#DENSE}
+ * and a decoded matrix into a mapped file for {@link DrivingTimeMatrixStorage#MAPPED}.
+ */
+public final class DrivingTimeMatrixCache {
+
+    public static final String DIRECTORY_CONFIG_PROPERTY = "vehicle-routing.matrix.cache.directory";
+    public static final String COMPRESSED_CONFIG_PROPERTY = "vehicle-routing.matrix.cache.compressed";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DrivingTimeMatrixCache.class);
+    private static final String FILE_EXTENSION = ".matrix";
+    private static final String COMPRESSED_FILE_EXTENSION = ".matrix.dvz";
+
+    private final Path directory;
+    private final boolean compressed;
+
+    public DrivingTimeMatrixCache(Path directory) {
+        this(directory, false);
+    }
+
+    public DrivingTimeMatrixCache(Path directory, boolean compressed) {
+        this.directory = directory;
+        this.compressed = compressed;
+    }
+
+    /**
+     * @return empty if no cache directory is configured
+     */
+    public static Optional<DrivingTimeMatrixCache> configured() {
+        return ConfigProvider.getConfig().getOptionalValue(DIRECTORY_CONFIG_PROPERTY, String.class)
+                .map(directory -> new DrivingTimeMatrixCache(Path.of(directory),
+                        ConfigProvider.getConfig().getOptionalValue(COMPRESSED_CONFIG_PROPERTY, Boolean.class)
+                                .orElse(false)));
+    }
+
+    /**
+     * Load the cached matrix for these locations, or calculate it and add it to the cache.
+     *
+     * @param drivingTimeCalculator never null
+     * @param locations never null, without duplicates
+     * @param storage never null, {@link DrivingTimeMatrixStorage#isFull() full}
+     * @return never null, in the given storage
+     */
+    public DrivingTimeMatrix getOrCalculate(DrivingTimeCalculator drivingTimeCalculator, List<Location> locations,
+            DrivingTimeMatrixStorage storage) {
+        if (!storage.isFull()) {
+            throw new IllegalArgumentException("The storage (" + storage + ") does not hold every pair, "
+                    + "so it cannot be cached.");
+        }
+        String fingerprint = fingerprint(drivingTimeCalculator, locations);
+        DrivingTimeMatrix drivingTimeMatrix = compressed
+                ? getOrCalculateCompressed(drivingTimeCalculator, locations, fingerprint)
+                : getOrCalculateMapped(drivingTimeCalculator, locations, fingerprint);
+        if ((drivingTimeMatrix instanceof MappedDrivingTimeMatrix) == (storage == DrivingTimeMatrixStorage.MAPPED)) {
+            return drivingTimeMatrix;
+        }
+        return storage.calculate(drivingTimeMatrix.size(), drivingTimeMatrix::getDrivingTime,
+                drivingTimeCalculator.isSymmetric());
+    }
+
+    private DrivingTimeMatrix getOrCalculateMapped(DrivingTimeCalculator drivingTimeCalculator,
+            List<Location> locations, String fingerprint) {
+        Path file = directory.resolve(fingerprint + FILE_EXTENSION);
+        if (Files.isRegularFile(file)) {
+            try {
+                return MappedDrivingTimeMatrix.open(file, locations.size());
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring unreadable cached driving time matrix ({}).", file, e);
+            }
+        }
+        try {
+            Files.createDirectories(directory);
+            // Write under a temporary name, so other readers never see a partial file.
+            Path temporaryFile = Files.createTempFile(directory, fingerprint, ".tmp");
+            try {
+                MappedDrivingTimeMatrix drivingTimeMatrix = MappedDrivingTimeMatrix.calculate(temporaryFile,
+                        locations.size(), drivingTimeCalculator.createDrivingTimeKernel(locations),
+                        MappedDrivingTimeMatrix.MAX_SEGMENT_BYTES);
+                drivingTimeMatrix.force();
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return drivingTimeMatrix;
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed caching a driving time matrix in (" + directory + ").", e);
+        }
+    }
+
+    private DrivingTimeMatrix getOrCalculateCompressed(DrivingTimeCalculator drivingTimeCalculator,
+            List<Location> locations, String fingerprint) {
+        Path file = directory.resolve(fingerprint + COMPRESSED_FILE_EXTENSION);
+        long maxResolutionSeconds = DrivingTimeEncoding.configuredResolutionSeconds();
+        if (Files.isRegularFile(file)) {
+            try {
+                return CompressedDrivingTimeMatrixFile.read(file, locations.size(), maxResolutionSeconds);
+            } catch (IOException e) {
+                LOGGER.warn("Ignoring unreadable cached driving time matrix ({}).", file, e);
+            }
+        }
+        DrivingTimeMatrix drivingTimeMatrix = DrivingTimeMatrixStorage.DENSE.calculate(locations.size(),
+                drivingTimeCalculator.createDrivingTimeKernel(locations), drivingTimeCalculator.isSymmetric());
+        try {
+            Files.createDirectories(directory);
+            Path temporaryFile = Files.createTempFile(directory, fingerprint, ".tmp");
+            try {
+                CompressedDrivingTimeMatrixFile.write(drivingTimeMatrix, temporaryFile);
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed caching a driving time matrix in (" + directory + ").", e);
+        }
+        return drivingTimeMatrix;
+    }
+
+    /**
+     * @return a hex SHA-256 over {@link DrivingTimeCalculator#getCacheKey()} and the ordered coordinates
+     */
+    static String fingerprint(DrivingTimeCalculator drivingTimeCalculator, List<Location> locations) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every JVM supports SHA-256.", e);
+        }
+        digest.update(drivingTimeCalculator.getCacheKey().getBytes(StandardCharsets.UTF_8));
+        ByteBuffer coordinates = ByteBuffer.allocate(Integer.BYTES + 2 * Double.BYTES * locations.size());
+        coordinates.putInt(locations.size());
+        for (Location location : locations) {
+            coordinates.putDouble(location.getLatitude()).putDouble(location.getLongitude());
+        }
+        digest.update(coordinates.flip());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
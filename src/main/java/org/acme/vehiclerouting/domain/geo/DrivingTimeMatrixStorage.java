@@ -0,0 +1,83 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Where a {@link DrivingTimeMatrix} keeps its driving times.
+ * Selected with the {@value #CONFIG_PROPERTY} configuration property.
+ */
+public enum DrivingTimeMatrixStorage {
+
+    /**
+     * A primitive array on the heap. Fastest, as long as the matrix fits next to the working solution.
+     * Symmetric matrices only keep their upper triangle.
+     * With {@value InterleavedDrivingTimeMatrix#DISTANCES_CONFIG_PROPERTY}, distances are kept
+     * next to the driving times in a full matrix.
+     */
+    DENSE(true) {
+        @Override
+        public DrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel, boolean symmetric) {
+            if (drivingTimeKernel.hasDistances() && InterleavedDrivingTimeMatrix.isConfigured()) {
+                return InterleavedDrivingTimeMatrix.calculate(size, drivingTimeKernel);
+            }
+            return symmetric
+                    ? SymmetricDrivingTimeMatrix.calculate(size, drivingTimeKernel)
+                    : DenseDrivingTimeMatrix.calculate(size, drivingTimeKernel);
+        }
+    },
+    /**
+     * A memory-mapped file in {@value MappedDrivingTimeMatrix#DIRECTORY_CONFIG_PROPERTY}.
+     * Pages are loaded on demand by the operating system and the garbage collector never scans the matrix.
+     * Always stores the full matrix, so every row is one contiguous range of the file.
+     */
+    MAPPED(true) {
+        @Override
+        public DrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel, boolean symmetric) {
+            return MappedDrivingTimeMatrix.calculate(MappedDrivingTimeMatrix.configuredDirectory(), size,
+                    drivingTimeKernel);
+        }
+    },
+    /**
+     * Only the driving times to the nearest locations, any other pair is calculated on demand.
+     * For problems too large for a full matrix in any storage.
+     *
+     * @see SparseDrivingTimeMatrix#NEIGHBOR_COUNT_CONFIG_PROPERTY
+     */
+    SPARSE(false) {
+        @Override
+        public DrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel, boolean symmetric) {
+            return SparseDrivingTimeMatrix.calculate(size, drivingTimeKernel, symmetric);
+        }
+    };
+
+    public static final String CONFIG_PROPERTY = "vehicle-routing.matrix.storage";
+
+    private final boolean full;
+
+    DrivingTimeMatrixStorage(boolean full) {
+        this.full = full;
+    }
+
+    /**
+     * @return the configured storage, {@link #DENSE} if none is configured
+     */
+    public static DrivingTimeMatrixStorage configured() {
+        return ConfigProvider.getConfig().getOptionalValue(CONFIG_PROPERTY, DrivingTimeMatrixStorage.class)
+                .orElse(DENSE);
+    }
+
+    /**
+     * @return true if this storage holds every pair, so it can be served from a {@link DrivingTimeMatrixCache}
+     */
+    public boolean isFull() {
+        return full;
+    }
+
+    /**
+     * @param size number of locations
+     * @param drivingTimeKernel never null
+     * @param symmetric true if {@code drivingTimeKernel} returns the same driving time in both directions
+     * @return never null
+     */
+    public abstract DrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel, boolean symmetric);
+}
@@ -0,0 +1,92 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * How a kind of vehicle converts the driving times of the shared matrix into its own.
+ * Every profile reads the same matrix; a profile only holds its speed function, never a matrix of its own.
+ * <p>
+ * The speed function is piecewise linear: the first {@value #URBAN_LEG_SECONDS} seconds of a leg are mostly
+ * city streets and scaled by the urban factor, the rest is mostly main roads and scaled by the highway factor.
+ * For example, a scooter weaves through city traffic faster than a van, but is much slower on a highway.
+ * <p>
+ * The factors of each style can be configured, such as {@code vehicle-routing.profile.van.urban=1.15} and
+ * {@code vehicle-routing.profile.van.highway=1.0}, and are read once, when the profiles are first used.
+ * Set both to 1.0 to drive a style like the matrix.
+ */
+public enum DrivingTimeProfile {
+    /**
+     * The matrix as calculated, not configurable.
+     */
+    DEFAULT(null, 1000, 1000),
+    VAN("van", 1150, 1000),
+    MOTORCYCLE("motorcycle", 850, 1050),
+    SCOOTER("scooter", 900, 1400);
+
+    public static final String CONFIG_PROPERTY_PREFIX = "vehicle-routing.profile.";
+
+    static final long URBAN_LEG_SECONDS = 15 * 60;
+
+    private final long urbanFactorPerMille;
+    private final long highwayFactorPerMille;
+
+    /**
+     * @param style null if not configurable
+     */
+    DrivingTimeProfile(String style, long defaultUrbanFactorPerMille, long defaultHighwayFactorPerMille) {
+        this.urbanFactorPerMille = style == null ? defaultUrbanFactorPerMille
+                : configuredFactorPerMille(style + ".urban", defaultUrbanFactorPerMille);
+        this.highwayFactorPerMille = style == null ? defaultHighwayFactorPerMille
+                : configuredFactorPerMille(style + ".highway", defaultHighwayFactorPerMille);
+    }
+
+    private static long configuredFactorPerMille(String key, long defaultFactorPerMille) {
+        String property = CONFIG_PROPERTY_PREFIX + key;
+        return ConfigProvider.getConfig().getOptionalValue(property, Double.class)
+                .map(factor -> toFactorPerMille(property, factor))
+                .orElse(defaultFactorPerMille);
+    }
+
+    /**
+     * @param property the configuration property of the factor, for the error message
+     * @param factor the driving time multiplier
+     * @return the factor in thousandths, so scaling a driving time stays in integer arithmetic
+     * @throws IllegalArgumentException if the factor is not positive
+     */
+    static long toFactorPerMille(String property, double factor) {
+        if (!(factor > 0.0)) {
+            throw new IllegalArgumentException("The driving time profile factor (" + factor + ") of property ("
+                    + property + ") is not positive.");
+        }
+        return Math.round(factor * 1000.0);
+    }
+
+    /**
+     * @param style a {@link org.acme.vehiclerouting.domain.Vehicle#getStyle() vehicle style}, null allowed
+     * @return never null, {@link #DEFAULT} for an unknown style
+     */
+    public static DrivingTimeProfile forStyle(String style) {
+        if (style == null) {
+            return DEFAULT;
+        }
+        return switch (style) {
+            case "van" -> VAN;
+            case "motorcycle" -> MOTORCYCLE;
+            case "scooter" -> SCOOTER;
+            default -> DEFAULT;
+        };
+    }
+
+    /**
+     * @param drivingTime driving time in seconds, as in the shared matrix
+     * @return driving time in seconds for this kind of vehicle
+     */
+    public long apply(long drivingTime) {
+        if (this == DEFAULT) {
+            return drivingTime;
+        }
+        long urbanSeconds = Math.min(drivingTime, URBAN_LEG_SECONDS);
+        long highwaySeconds = drivingTime - urbanSeconds;
+        return (urbanSeconds * urbanFactorPerMille + highwaySeconds * highwayFactorPerMille + 500L) / 1000L;
+    }
+}
@@ -0,0 +1,135 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * As {@link HaversineDrivingTimeCalculator}, but short hops use an equirectangular projection:
+ * one square root per pair instead of a square root and an arcsine.
+ * Pairs further apart than {@code maxDistanceMeters} fall back to the great-circle distance.
+ * <p>
+ * Up to the {@link #DEFAULT_MAX_DISTANCE_METERS default maximum distance}, and below 70 degrees latitude,
+ * a driving time is at most {@value #MAX_ERROR_SECONDS} second off from the Haversine driving time.
+ * Enabled by configuring {@value #MAX_DISTANCE_CONFIG_PROPERTY}.
+ */
+public final class EquirectangularDrivingTimeCalculator implements DrivingTimeCalculator {
+
+    public static final String MAX_DISTANCE_CONFIG_PROPERTY = "vehicle-routing.equirectangular.max-distance-meters";
+    public static final double DEFAULT_MAX_DISTANCE_METERS = 20_000.0;
+    public static final long MAX_ERROR_SECONDS = 1L;
+
+    private final double maxDistanceMeters;
+    /**
+     * The same limit as an angle in radians, squared, so the common case needs no square root to check.
+     */
+    private final double maxAngleSquared;
+
+    public EquirectangularDrivingTimeCalculator(double maxDistanceMeters) {
+        if (!(maxDistanceMeters >= 0.0)) {
+            throw new IllegalArgumentException("The maxDistanceMeters (" + maxDistanceMeters
+                    + ") must not be negative.");
+        }
+        this.maxDistanceMeters = maxDistanceMeters;
+        double maxAngle = maxDistanceMeters / HaversineDrivingTimeCalculator.EARTH_RADIUS_IN_M;
+        this.maxAngleSquared = maxAngle * maxAngle;
+    }
+
+    /**
+     * @return empty if {@value #MAX_DISTANCE_CONFIG_PROPERTY} is not configured
+     */
+    public static Optional<EquirectangularDrivingTimeCalculator> configured() {
+        return ConfigProvider.getConfig().getOptionalValue(MAX_DISTANCE_CONFIG_PROPERTY, Double.class)
+                .map(EquirectangularDrivingTimeCalculator::new);
+    }
+
+    @Override
+    public long calculateDrivingTime(Location from, Location to) {
+        if (from.equals(to)) {
+            return 0L;
+        }
+        return createDrivingTimeKernel(List.of(from, to)).calculateDrivingTime(0, 1);
+    }
+
+    @Override
+    public String getCacheKey() {
+        return getClass().getName() + ";averageSpeedKmph=" + HaversineDrivingTimeCalculator.AVERAGE_SPEED_KMPH
+                + ";maxDistanceMeters=" + maxDistanceMeters;
+    }
+
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    /**
+     * Keeps both the angles for the projection and the Cartesian coordinates for the fallback,
+     * in structure-of-arrays form.
+     */
+    @Override
+    public DrivingTimeKernel createDrivingTimeKernel(List<Location> locations) {
+        int size = locations.size();
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        double[] halfCosLatitudes = new double[size];
+        double[] x = new double[size];
+        double[] y = new double[size];
+        double[] z = new double[size];
+        for (int i = 0; i < size; i++) {
+            double latitude = Math.toRadians(locations.get(i).getLatitude());
+            double longitude = Math.toRadians(locations.get(i).getLongitude());
+            double cosLatitude = Math.cos(latitude);
+            latitudes[i] = latitude;
+            longitudes[i] = longitude;
+            halfCosLatitudes[i] = 0.5 * cosLatitude;
+            // Normalized for a sphere of diameter 1.0, as in HaversineDrivingTimeCalculator
+            x[i] = 0.5 * cosLatitude * Math.sin(longitude);
+            y[i] = 0.5 * cosLatitude * Math.cos(longitude);
+            z[i] = 0.5 * Math.sin(latitude);
+        }
+        return new EquirectangularDrivingTimeKernel(maxAngleSquared, latitudes, longitudes, halfCosLatitudes,
+                x, y, z);
+    }
+
+    private record EquirectangularDrivingTimeKernel(double maxAngleSquared, double[] latitudes, double[] longitudes,
+            double[] halfCosLatitudes, double[] x, double[] y, double[] z) implements DrivingTimeKernel {
+
+        @Override
+        public long calculateDrivingTime(int fromIndex, int toIndex) {
+            return HaversineDrivingTimeCalculator.metersToDrivingSeconds(calculateDistance(fromIndex, toIndex));
+        }
+
+        @Override
+        public boolean hasDistances() {
+            return true;
+        }
+
+        @Override
+        public void calculateDrivingTimesAndDistances(int fromIndex, int toStartIndex, int toEndIndex,
+                int[] drivingTimesAndDistances, int offset) {
+            for (int toIndex = toStartIndex; toIndex < toEndIndex; toIndex++) {
+                long meters = calculateDistance(fromIndex, toIndex);
+                drivingTimesAndDistances[offset++] =
+                        (int) HaversineDrivingTimeCalculator.metersToDrivingSeconds(meters);
+                drivingTimesAndDistances[offset++] = (int) meters;
+            }
+        }
+
+        private long calculateDistance(int fromIndex, int toIndex) {
+            // The mean of the cosines instead of the cosine of the mean latitude: no trigonometry per pair,
+            // and the difference is negligible for pairs within the maximum distance.
+            double dX = (longitudes[toIndex] - longitudes[fromIndex])
+                    * (halfCosLatitudes[fromIndex] + halfCosLatitudes[toIndex]);
+            double dY = latitudes[toIndex] - latitudes[fromIndex];
+            double angleSquared = dX * dX + dY * dY;
+            if (angleSquared > maxAngleSquared) {
+                // Also catches pairs across the antimeridian, whose longitude difference is close to 2 pi.
+                return HaversineDrivingTimeCalculator.calculateDistance(x[fromIndex] - x[toIndex],
+                        y[fromIndex] - y[toIndex], z[fromIndex] - z[toIndex]);
+            }
+            return Math.round(HaversineDrivingTimeCalculator.EARTH_RADIUS_IN_M * Math.sqrt(angleSquared));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * A matrix supplied by the customer, for example exported from their own routing engine,
+ * memory-mapped read-only from a file in the format below. Rows are identified by vehicle and visit ids,
+ * not by coordinates: binding it to a plan gives every vehicle home and visit location the row of its id.
+ * <p>
+ * File format, all numbers little-endian:
+ * <ol>
+ * <li>{@code int} magic number {@value #MAGIC}, {@code int} format version {@value #FORMAT_VERSION},
+ * {@code int} size {@code n}, {@code int} flags (bit 0 set if distances follow the driving times),
+ * {@code long} offset of the driving times, a multiple of 8;</li>
+ * <li>{@code n} ids, each an {@code int} byte length followed by that many UTF-8 bytes, padded with zeros
+ * up to the driving times;</li>
+ * <li>{@code n * n} row-major {@code int} driving times in seconds;</li>
+ * <li>if flagged, {@code n * n} row-major {@code int} distances in meters.</li>
+ * </ol>
+ * {@link ExternalDrivingTimeMatrixCsvConverter} writes this format from CSV files.
+ */
+public final class ExternalDrivingTimeMatrix implements DrivingTimeMatrix {
+
+    public static final String FILE_CONFIG_PROPERTY = "vehicle-routing.matrix.external-file";
+
+    static final int MAGIC = 0x4D544458; // "XDTM" in little-endian
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final int DISTANCES_FLAG = 1;
+    static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final Path file;
+    private final List<String> ids;
+    private final Map<String, Integer> indices;
+    private final int size;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final IntBuffer[] drivingTimeSegments;
+    /**
+     * Null if the file has no distances.
+     */
+    private final IntBuffer[] distanceSegments;
+
+    private ExternalDrivingTimeMatrix(Path file, List<String> ids, Map<String, Integer> indices, int segmentShift,
+            IntBuffer[] drivingTimeSegments, IntBuffer[] distanceSegments) {
+        this.file = file;
+        this.ids = ids;
+        this.indices = indices;
+        this.size = ids.size();
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+        this.drivingTimeSegments = drivingTimeSegments;
+        this.distanceSegments = distanceSegments;
+    }
+
+    /**
+     * @return empty if no {@value #FILE_CONFIG_PROPERTY} is configured
+     * @throws UncheckedIOException if the configured file is not a valid matrix
+     */
+    public static Optional<ExternalDrivingTimeMatrix> configured() {
+        return ConfigProvider.getConfig().getOptionalValue(FILE_CONFIG_PROPERTY, String.class)
+                .map(file -> {
+                    try {
+                        return open(Path.of(file));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed opening the external driving time matrix (" + file
+                                + ").", e);
+                    }
+                });
+    }
+
+    /**
+     * Map a matrix file read-only, after validating its header, ids and length.
+     *
+     * @param file never null
+     * @return never null
+     * @throws IOException if the file cannot be read or is not a complete matrix
+     */
+    public static ExternalDrivingTimeMatrix open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0L);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC
+                    || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("The file (" + file + ") is not an external driving time matrix.");
+            }
+            int size = header.getInt();
+            int flags = header.getInt();
+            long dataOffset = header.getLong();
+            if (size < 0 || dataOffset < HEADER_BYTES || dataOffset % Long.BYTES != 0L
+                    || dataOffset > channel.size()) {
+                throw new IOException("The file (" + file + ") has an invalid header: size (" + size
+                        + "), data offset (" + dataOffset + ").");
+            }
+            boolean hasDistances = (flags & DISTANCES_FLAG) != 0;
+            long sectionBytes = (long) size * size * Integer.BYTES;
+            long expectedBytes = dataOffset + (hasDistances ? 2 * sectionBytes : sectionBytes);
+            if (channel.size() != expectedBytes) {
+                throw new IOException("The file (" + file + ") holds a matrix of size (" + size + ") and ("
+                        + channel.size() + ") bytes, expected (" + expectedBytes + ") bytes.");
+            }
+            String[] ids = readIds(file, channel, size, dataOffset);
+            Map<String, Integer> indices = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                Integer duplicateIndex = indices.put(ids[i], i);
+                if (duplicateIndex != null) {
+                    throw new IOException("The file (" + file + ") has the id (" + ids[i] + ") at rows ("
+                            + duplicateIndex + ") and (" + i + ").");
+                }
+            }
+            long rowBytes = Math.max(1L, (long) size * Integer.BYTES);
+            int rowsPerSegment = Integer.highestOneBit(
+                    (int) Math.max(1L, Math.min(MAX_SEGMENT_BYTES / rowBytes, 1L << 30)));
+            return new ExternalDrivingTimeMatrix(file, List.of(ids), Collections.unmodifiableMap(indices),
+                    Integer.numberOfTrailingZeros(rowsPerSegment),
+                    mapSection(channel, dataOffset, size, rowsPerSegment),
+                    hasDistances ? mapSection(channel, dataOffset + sectionBytes, size, rowsPerSegment) : null);
+        }
+    }
+
+    private static String[] readIds(Path file, FileChannel channel, int size, long dataOffset) throws IOException {
+        ByteBuffer idBytes = ByteBuffer.allocate(Math.toIntExact(dataOffset - HEADER_BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(idBytes, HEADER_BYTES);
+        idBytes.flip();
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            int length = idBytes.remaining() >= Integer.BYTES ? idBytes.getInt() : -1;
+            if (length < 0 || length > idBytes.remaining()) {
+                throw new IOException("The file (" + file + ") has fewer than (" + size
+                        + ") ids before its driving times.");
+            }
+            ids[i] = new String(idBytes.array(), idBytes.position(), length, StandardCharsets.UTF_8);
+            idBytes.position(idBytes.position() + length);
+        }
+        return ids;
+    }
+
+    private static IntBuffer[] mapSection(FileChannel channel, long sectionOffset, int size, int rowsPerSegment)
+            throws IOException {
+        long rowBytes = (long) size * Integer.BYTES;
+        int segmentCount = (size + rowsPerSegment - 1) / rowsPerSegment;
+        IntBuffer[] segments = new IntBuffer[segmentCount];
+        for (int segment = 0; segment < segmentCount; segment++) {
+            long firstRow = (long) segment * rowsPerSegment;
+            long rowCount = Math.min(rowsPerSegment, size - firstRow);
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, sectionOffset + firstRow * rowBytes,
+                    rowCount * rowBytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        return segments;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return never null, the id of every row, in row order
+     */
+    public List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * @param id never null
+     * @return the row of that id, -1 if the matrix has no such row
+     */
+    public int indexOf(String id) {
+        return indices.getOrDefault(id, -1);
+    }
+
+    @Override
+    public boolean hasDistances() {
+        return distanceSegments != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 0, the driving times are in the page cache, not on the heap
+     */
+    @Override
+    public long getHeapBytes() {
+        return 0L;
+    }
+
+    @Override
+    public long getDrivingTime(int fromIndex, int toIndex) {
+        return drivingTimeSegments[fromIndex >>> segmentShift].get((fromIndex & segmentMask) * size + toIndex);
+    }
+
+    /**
+     * @throws UnsupportedOperationException if the file has no distances
+     */
+    @Override
+    public long getDistance(int fromIndex, int toIndex) {
+        if (distanceSegments == null) {
+            throw new UnsupportedOperationException("The external matrix (" + file + ") has no distances.");
+        }
+        return distanceSegments[fromIndex >>> segmentShift].get((fromIndex & segmentMask) * size + toIndex);
+    }
+}
@@ -0,0 +1,138 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts CSV matrices into the {@link ExternalDrivingTimeMatrix} file format, one row at a time,
+ * so matrices far larger than the heap can be converted.
+ * <p>
+ * A CSV matrix has a header line with an empty first cell followed by the ids,
+ * then one line per id in the same order: the id followed by one whole number per column.
+ * Driving times are in seconds, distances in meters. A distance file must have the same ids in the same order.
+ */
+public final class ExternalDrivingTimeMatrixCsvConverter {
+
+    private ExternalDrivingTimeMatrixCsvConverter() {
+    }
+
+    /**
+     * @param drivingTimeCsvFile never null
+     * @param distanceCsvFile null if there are no distances
+     * @param matrixFile never null, overwritten
+     * @return the number of ids
+     * @throws IOException if a CSV file cannot be read or is not a square matrix of non-negative whole numbers
+     */
+    public static int convert(Path drivingTimeCsvFile, Path distanceCsvFile, Path matrixFile) throws IOException {
+        try (BufferedReader drivingTimeReader = Files.newBufferedReader(drivingTimeCsvFile, StandardCharsets.UTF_8);
+                FileChannel channel = FileChannel.open(matrixFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<String> ids = readIds(drivingTimeCsvFile, drivingTimeReader);
+            byte[][] idBytes = new byte[ids.size()][];
+            long idSectionBytes = 0L;
+            for (int i = 0; i < idBytes.length; i++) {
+                idBytes[i] = ids.get(i).getBytes(StandardCharsets.UTF_8);
+                idSectionBytes += Integer.BYTES + idBytes[i].length;
+            }
+            long dataOffset = (ExternalDrivingTimeMatrix.HEADER_BYTES + idSectionBytes + Long.BYTES - 1)
+                    / Long.BYTES * Long.BYTES;
+            ByteBuffer header = ByteBuffer.allocate(Math.toIntExact(dataOffset)).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(ExternalDrivingTimeMatrix.MAGIC)
+                    .putInt(ExternalDrivingTimeMatrix.FORMAT_VERSION)
+                    .putInt(ids.size())
+                    .putInt(distanceCsvFile == null ? 0 : ExternalDrivingTimeMatrix.DISTANCES_FLAG)
+                    .putLong(dataOffset);
+            for (byte[] id : idBytes) {
+                header.putInt(id.length).put(id);
+            }
+            header.position(header.capacity()).flip();
+            writeFully(channel, header);
+            writeRows(drivingTimeCsvFile, drivingTimeReader, ids, channel);
+            if (distanceCsvFile != null) {
+                try (BufferedReader distanceReader = Files.newBufferedReader(distanceCsvFile,
+                        StandardCharsets.UTF_8)) {
+                    List<String> distanceIds = readIds(distanceCsvFile, distanceReader);
+                    if (!distanceIds.equals(ids)) {
+                        throw new IOException("The distance file (" + distanceCsvFile
+                                + ") does not have the same ids in the same order as the driving time file ("
+                                + drivingTimeCsvFile + ").");
+                    }
+                    writeRows(distanceCsvFile, distanceReader, ids, channel);
+                }
+            }
+            return ids.size();
+        }
+    }
+
+    private static List<String> readIds(Path csvFile, BufferedReader reader) throws IOException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            throw new IOException("The CSV matrix (" + csvFile + ") is empty.");
+        }
+        String[] cells = headerLine.split(",", -1);
+        List<String> ids = new ArrayList<>(cells.length - 1);
+        for (int i = 1; i < cells.length; i++) {
+            ids.add(cells[i].trim());
+        }
+        return ids;
+    }
+
+    private static void writeRows(Path csvFile, BufferedReader reader, List<String> ids, FileChannel channel)
+            throws IOException {
+        int size = ids.size();
+        ByteBuffer row = ByteBuffer.allocate(size * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+            int lineNumber = rowIndex + 2;
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("The CSV matrix (" + csvFile + ") ends at line (" + lineNumber + "), expected ("
+                        + size + ") rows.");
+            }
+            String[] cells = line.split(",", -1);
+            if (cells.length != size + 1 || !cells[0].trim().equals(ids.get(rowIndex))) {
+                throw new IOException("The CSV matrix (" + csvFile + ") line (" + lineNumber + ") must be the id ("
+                        + ids.get(rowIndex) + ") followed by (" + size + ") values, but is " + Arrays.toString(
+                                Arrays.copyOf(cells, Math.min(cells.length, 3))) + "...");
+            }
+            row.clear();
+            for (int column = 1; column <= size; column++) {
+                row.putInt(parseValue(csvFile, lineNumber, cells[column]));
+            }
+            row.flip();
+            writeFully(channel, row);
+        }
+        if (reader.readLine() != null) {
+            throw new IOException("The CSV matrix (" + csvFile + ") has more than (" + size + ") rows.");
+        }
+    }
+
+    private static int parseValue(Path csvFile, int lineNumber, String cell) throws IOException {
+        try {
+            long value = Math.round(Double.parseDouble(cell.trim()));
+            if (value < 0L || value > Integer.MAX_VALUE) {
+                throw new IOException("The CSV matrix (" + csvFile + ") line (" + lineNumber + ") has a value ("
+                        + cell + ") outside 0.." + Integer.MAX_VALUE + ".");
+            }
+            return (int) value;
+        } catch (NumberFormatException e) {
+            throw new IOException("The CSV matrix (" + csvFile + ") line (" + lineNumber + ") has a value (" + cell
+                    + ") that is not a number.", e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
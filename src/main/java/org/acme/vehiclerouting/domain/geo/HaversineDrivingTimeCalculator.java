@@ -1,5 +1,7 @@
 package org.acme.vehiclerouting.domain.geo;
 
+import java.util.List;
+
 import org.acme.vehiclerouting.domain.Location;
 
 /**
@@ -12,7 +14,7 @@ public final class HaversineDrivingTimeCalculator implements DrivingTimeCalculat
 
     public static final int AVERAGE_SPEED_KMPH = 50;
 
-    private static final int EARTH_RADIUS_IN_M = 6371000;
+    static final int EARTH_RADIUS_IN_M = 6371000;
     private static final int TWICE_EARTH_RADIUS_IN_M = 2 * EARTH_RADIUS_IN_M;
 
     static long metersToDrivingSeconds(long meters) {
@@ -37,7 +39,39 @@ public final class HaversineDrivingTimeCalculator implements DrivingTimeCalculat
         return metersToDrivingSeconds(calculateDistance(fromCartesian, toCartesian));
     }
 
-    private long calculateDistance(CartesianCoordinate from, CartesianCoordinate to) {
+    @Override
+    public String getCacheKey() {
+        return getClass().getName() + ";averageSpeedKmph=" + AVERAGE_SPEED_KMPH;
+    }
+
+    /**
+     * The great-circle distance is the same in both directions.
+     */
+    @Override
+    public boolean isSymmetric() {
+        return true;
+    }
+
+    /**
+     * Converts every location to Cartesian coordinates once and keeps them in structure-of-arrays form,
+     * so filling a row only streams through three primitive arrays.
+     */
+    @Override
+    public DrivingTimeKernel createDrivingTimeKernel(List<Location> locations) {
+        int size = locations.size();
+        double[] x = new double[size];
+        double[] y = new double[size];
+        double[] z = new double[size];
+        for (int i = 0; i < size; i++) {
+            CartesianCoordinate cartesian = locationToCartesian(locations.get(i));
+            x[i] = cartesian.x;
+            y[i] = cartesian.y;
+            z[i] = cartesian.z;
+        }
+        return new HaversineDrivingTimeKernel(x, y, z);
+    }
+
+    private static long calculateDistance(CartesianCoordinate from, CartesianCoordinate to) {
         if (from.equals(to)) {
             return 0L;
         }
@@ -45,13 +79,34 @@ public final class HaversineDrivingTimeCalculator implements DrivingTimeCalculat
         double dX = from.x - to.x;
         double dY = from.y - to.y;
         double dZ = from.z - to.z;
+        return calculateDistance(dX, dY, dZ);
+    }
+
+    /**
+     * @return the great-circle distance in meters
+     */
+    static long calculateDistance(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        CartesianCoordinate from = toCartesian(fromLatitude, fromLongitude);
+        CartesianCoordinate to = toCartesian(toLatitude, toLongitude);
+        return calculateDistance(from, to);
+    }
+
+    /**
+     * @return the great-circle distance in meters between two points on a sphere of diameter 1.0,
+     *         given the difference of their Cartesian coordinates
+     */
+    static long calculateDistance(double dX, double dY, double dZ) {
         double r = Math.sqrt((dX * dX) + (dY * dY) + (dZ * dZ));
         return Math.round(TWICE_EARTH_RADIUS_IN_M * Math.asin(r));
     }
 
-    private CartesianCoordinate locationToCartesian(Location location) {
-        double latitudeInRads = Math.toRadians(location.getLatitude());
-        double longitudeInRads = Math.toRadians(location.getLongitude());
+    private static CartesianCoordinate locationToCartesian(Location location) {
+        return toCartesian(location.getLatitude(), location.getLongitude());
+    }
+
+    private static CartesianCoordinate toCartesian(double latitude, double longitude) {
+        double latitudeInRads = Math.toRadians(latitude);
+        double longitudeInRads = Math.toRadians(longitude);
         // Cartesian coordinates, normalized for a sphere of diameter 1.0
         double cartesianX = 0.5 * Math.cos(latitudeInRads) * Math.sin(longitudeInRads);
         double cartesianY = 0.5 * Math.cos(latitudeInRads) * Math.cos(longitudeInRads);
@@ -62,4 +117,46 @@ public final class HaversineDrivingTimeCalculator implements DrivingTimeCalculat
     private record CartesianCoordinate(double x, double y, double z) {
 
     }
+
+    private record HaversineDrivingTimeKernel(double[] x, double[] y, double[] z) implements DrivingTimeKernel {
+
+        @Override
+        public long calculateDrivingTime(int fromIndex, int toIndex) {
+            return metersToDrivingSeconds(
+                    calculateDistance(x[fromIndex] - x[toIndex], y[fromIndex] - y[toIndex], z[fromIndex] - z[toIndex]));
+        }
+
+        @Override
+        public void calculateDrivingTimes(int fromIndex, int toStartIndex, int toEndIndex, long[] drivingTimes,
+                int offset) {
+            double fromX = x[fromIndex];
+            double fromY = y[fromIndex];
+            double fromZ = z[fromIndex];
+            for (int toIndex = toStartIndex; toIndex < toEndIndex; toIndex++) {
+                drivingTimes[offset++] = metersToDrivingSeconds(
+                        calculateDistance(fromX - x[toIndex], fromY - y[toIndex], fromZ - z[toIndex]));
+            }
+        }
+
+        /**
+         * The driving time is derived from the distance, so the distance costs nothing extra.
+         */
+        @Override
+        public boolean hasDistances() {
+            return true;
+        }
+
+        @Override
+        public void calculateDrivingTimesAndDistances(int fromIndex, int toStartIndex, int toEndIndex,
+                int[] drivingTimesAndDistances, int offset) {
+            double fromX = x[fromIndex];
+            double fromY = y[fromIndex];
+            double fromZ = z[fromIndex];
+            for (int toIndex = toStartIndex; toIndex < toEndIndex; toIndex++) {
+                long meters = calculateDistance(fromX - x[toIndex], fromY - y[toIndex], fromZ - z[toIndex]);
+                drivingTimesAndDistances[offset++] = (int) metersToDrivingSeconds(meters);
+                drivingTimesAndDistances[offset++] = (int) meters;
+            }
+        }
+    }
 }
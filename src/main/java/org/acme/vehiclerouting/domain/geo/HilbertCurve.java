@@ -0,0 +1,86 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.acme.vehiclerouting.domain.Location;
+
+/**
+ * Orders locations along a Hilbert curve over the whole globe: locations close on the curve are close on the map,
+ * and a contiguous stretch of the curve covers a compact area.
+ * Giving locations matrix indices in this order keeps the rows of nearby locations, and the nearby columns
+ * within a row, in nearby cache lines.
+ */
+public final class HilbertCurve {
+
+    /**
+     * Bits per axis: cells of about 1 centimeter, finer than {@link Location#COORDINATE_PRECISION}.
+     */
+    static final int ORDER = 31;
+
+    private HilbertCurve() {
+    }
+
+    /**
+     * @return the position on the curve, not negative
+     */
+    public static long index(double latitude, double longitude) {
+        long cellCount = 1L << ORDER;
+        long x = Math.min(cellCount - 1, (long) ((longitude + 180.0) / 360.0 * cellCount));
+        long y = Math.min(cellCount - 1, (long) ((latitude + 90.0) / 180.0 * cellCount));
+        return index(Math.max(0L, x), Math.max(0L, y), ORDER);
+    }
+
+    /**
+     * @param x column, in {@code [0, 2^order)}
+     * @param y row, in {@code [0, 2^order)}
+     * @param order at most 31
+     * @return the position of the cell on a curve through {@code 2^order x 2^order} cells
+     */
+    static long index(long x, long y, int order) {
+        long index = 0L;
+        for (long half = 1L << (order - 1); half > 0L; half >>= 1) {
+            long quadrantX = (x & half) != 0L ? 1L : 0L;
+            long quadrantY = (y & half) != 0L ? 1L : 0L;
+            index += half * half * ((3L * quadrantX) ^ quadrantY);
+            // Rotate the quadrant, so the sub-curve inside it connects to its neighbors.
+            if (quadrantY == 0L) {
+                if (quadrantX == 1L) {
+                    x = half - 1 - (x & (half - 1));
+                    y = half - 1 - (y & (half - 1));
+                }
+                long swap = x;
+                x = y;
+                y = swap;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @param elements never null
+     * @param locationFunction never null, may return null for an element without a location, which sorts last
+     * @return never null, a new list with the elements in curve order, equal positions in their original order
+     */
+    public static <T> List<T> sort(Collection<T> elements, Function<T, Location> locationFunction) {
+        List<T> elementList = new ArrayList<>(elements);
+        // Calculate every index once, not once per comparison.
+        long[] indices = new long[elementList.size()];
+        Integer[] order = new Integer[elementList.size()];
+        for (int i = 0; i < indices.length; i++) {
+            Location location = locationFunction.apply(elementList.get(i));
+            indices[i] = location == null ? Long.MAX_VALUE : index(location.getLatitude(), location.getLongitude());
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> indices[i]));
+        List<T> sorted = new ArrayList<>(order.length);
+        for (Integer i : order) {
+            sorted.add(elementList.get(i));
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,179 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * A full matrix that grows and shrinks with the plan, for real-time order intake.
+ * Adding a location only calculates its own row and column, so it costs {@code O(size)} instead of
+ * recalculating the whole matrix. Removing a location calculates nothing: its index is reused by the next addition.
+ * <p>
+ * Rows are stored with spare capacity, which grows by half when it runs out, like an {@link ArrayList}.
+ * Lookups between attached locations may run concurrently with additions:
+ * a new location only gets its index once its row and column are published,
+ * and an addition only writes the cells of new indices.
+ * A removed index is overwritten by a later addition, so a location must not be removed
+ * while anything still looks it up, such as a solver job over a plan that still has it.
+ * Attached plans get one, instead of a shared matrix, if {@value #CONFIG_PROPERTY} is configured.
+ */
+public final class IncrementalDrivingTimeMatrix implements DrivingTimeMatrix {
+
+    public static final String CONFIG_PROPERTY = "vehicle-routing.matrix.incremental";
+
+    private final DrivingTimeCalculator drivingTimeCalculator;
+    /**
+     * The location at every index, including removed ones whose index has not been reused yet.
+     */
+    private final List<Location> locations;
+    private final Deque<Integer> freeIndices = new ArrayDeque<>();
+    /**
+     * Array and row stride change together when growing, so readers get both from one volatile read.
+     */
+    private volatile Rows rows;
+
+    private IncrementalDrivingTimeMatrix(DrivingTimeCalculator drivingTimeCalculator, int capacity) {
+        this.drivingTimeCalculator = drivingTimeCalculator;
+        this.locations = new ArrayList<>(capacity);
+        this.rows = new Rows(new long[Math.multiplyExact(capacity, capacity)], capacity);
+    }
+
+    /**
+     * @return true if {@value #CONFIG_PROPERTY} is configured, false by default
+     */
+    public static boolean isConfigured() {
+        return ConfigProvider.getConfig().getOptionalValue(CONFIG_PROPERTY, Boolean.class).orElse(false);
+    }
+
+    /**
+     * Calculate a matrix for the given locations and assign it to them, like
+     * {@link DrivingTimeCalculator#initDrivingTimeMaps(Collection)}.
+     *
+     * @param drivingTimeCalculator never null, used for every later addition too
+     * @param locations never null
+     * @return never null
+     */
+    public static IncrementalDrivingTimeMatrix create(DrivingTimeCalculator drivingTimeCalculator,
+            Collection<Location> locations) {
+        IncrementalDrivingTimeMatrix drivingTimeMatrix = new IncrementalDrivingTimeMatrix(drivingTimeCalculator,
+                locations.size());
+        drivingTimeMatrix.addLocations(locations);
+        return drivingTimeMatrix;
+    }
+
+    /**
+     * Give every new location an index and calculate its row and column.
+     * Locations that already belong to this matrix are ignored.
+     *
+     * @param addedLocations never null
+     */
+    public synchronized void addLocations(Collection<Location> addedLocations) {
+        Map<Location, Integer> addedIndices = new IdentityHashMap<>(addedLocations.size());
+        for (Location location : addedLocations) {
+            if (contains(location) || addedIndices.containsKey(location)) {
+                continue;
+            }
+            int index;
+            if (freeIndices.isEmpty()) {
+                index = locations.size();
+                locations.add(location);
+            } else {
+                index = freeIndices.pop();
+                locations.set(index, location);
+            }
+            addedIndices.put(location, index);
+        }
+        if (addedIndices.isEmpty()) {
+            return;
+        }
+        int size = locations.size();
+        Rows currentRows = ensureCapacity(size);
+        long[] drivingTimes = currentRows.drivingTimes;
+        int stride = currentRows.stride;
+        DrivingTimeKernel drivingTimeKernel = drivingTimeCalculator.createDrivingTimeKernel(locations);
+        for (int addedIndex : addedIndices.values()) {
+            drivingTimeKernel.calculateDrivingTimes(addedIndex, 0, size, drivingTimes, addedIndex * stride);
+        }
+        for (int fromIndex = 0; fromIndex < size; fromIndex++) {
+            for (int addedIndex : addedIndices.values()) {
+                drivingTimes[fromIndex * stride + addedIndex] =
+                        drivingTimeKernel.calculateDrivingTime(fromIndex, addedIndex);
+            }
+        }
+        // Publish the new driving times before any location can be looked up by its new index.
+        rows = currentRows;
+        addedIndices.forEach((location, index) -> location.setDrivingTimeMatrix(this, index));
+    }
+
+    /**
+     * Detach the given locations from this matrix and free their indices.
+     * Locations that do not belong to this matrix are ignored.
+     *
+     * @param removedLocations never null
+     */
+    public synchronized void removeLocations(Collection<Location> removedLocations) {
+        for (Location location : removedLocations) {
+            if (!contains(location)) {
+                continue;
+            }
+            freeIndices.push(location.getMatrixIndex());
+            location.setDrivingTimeMatrix(null, -1);
+        }
+    }
+
+    /**
+     * Decided by the own index bookkeeping, not by {@link Location#getDrivingTimeMatrix()},
+     * so locations behind a wrapper such as a {@link TimeDependentDrivingTimeMatrix} still count.
+     */
+    private boolean contains(Location location) {
+        int index = location.getMatrixIndex();
+        return index >= 0 && index < locations.size() && locations.get(index) == location;
+    }
+
+    private Rows ensureCapacity(int size) {
+        Rows currentRows = rows;
+        if (size <= currentRows.stride) {
+            return currentRows;
+        }
+        int stride = Math.max(size, currentRows.stride + (currentRows.stride >> 1));
+        long[] drivingTimes = new long[Math.multiplyExact(stride, stride)];
+        for (int fromIndex = 0; fromIndex < currentRows.stride; fromIndex++) {
+            System.arraycopy(currentRows.drivingTimes, fromIndex * currentRows.stride, drivingTimes,
+                    fromIndex * stride, currentRows.stride);
+        }
+        return new Rows(drivingTimes, stride);
+    }
+
+    /**
+     * @return the highest index ever given out plus one, including indices that are free for reuse
+     */
+    @Override
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    @Override
+    public long getDrivingTime(int fromIndex, int toIndex) {
+        Rows currentRows = rows;
+        return currentRows.drivingTimes[fromIndex * currentRows.stride + toIndex];
+    }
+
+    /**
+     * Includes the spare capacity.
+     */
+    @Override
+    public long getHeapBytes() {
+        return (long) rows.drivingTimes.length * Long.BYTES;
+    }
+
+    private record Rows(long[] drivingTimes, int stride) {
+
+    }
+}
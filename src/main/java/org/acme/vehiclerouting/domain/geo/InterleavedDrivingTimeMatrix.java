@@ -0,0 +1,78 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Stores the driving time and the distance of every pair side by side in a single row-major {@code int[]}:
+ * the driving time in seconds at {@code 2 * (fromIndex * size + toIndex)}, the distance in meters right after it.
+ * Both values of a pair share a cache line, so reading the distance next to the driving time is free.
+ * Used by {@link DrivingTimeMatrixStorage#DENSE} if {@value #DISTANCES_CONFIG_PROPERTY} is enabled
+ * and the calculator {@link DrivingTimeKernel#hasDistances() knows distances}.
+ */
+public final class InterleavedDrivingTimeMatrix implements DrivingTimeMatrix {
+
+    public static final String DISTANCES_CONFIG_PROPERTY = "vehicle-routing.matrix.distances";
+
+    private final int size;
+    private final int[] drivingTimesAndDistances;
+
+    private InterleavedDrivingTimeMatrix(int size) {
+        this.size = size;
+        this.drivingTimesAndDistances = new int[Math.multiplyExact(2, Math.multiplyExact(size, size))];
+    }
+
+    /**
+     * @return true if matrices should keep distances next to driving times
+     */
+    public static boolean isConfigured() {
+        return ConfigProvider.getConfig().getOptionalValue(DISTANCES_CONFIG_PROPERTY, Boolean.class).orElse(false);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getDrivingTime(int fromIndex, int toIndex) {
+        return drivingTimesAndDistances[(fromIndex * size + toIndex) << 1];
+    }
+
+    @Override
+    public boolean hasDistances() {
+        return true;
+    }
+
+    @Override
+    public long getDistance(int fromIndex, int toIndex) {
+        return drivingTimesAndDistances[((fromIndex * size + toIndex) << 1) + 1];
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return (long) drivingTimesAndDistances.length * Integer.BYTES;
+    }
+
+    /**
+     * Fill a matrix tile by tile, spreading the tiles over the common fork-join pool.
+     *
+     * @param size number of locations
+     * @param drivingTimeKernel never null, must {@link DrivingTimeKernel#hasDistances() know distances}
+     * @return never null
+     */
+    public static InterleavedDrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel) {
+        if (!drivingTimeKernel.hasDistances()) {
+            throw new IllegalArgumentException("The driving time kernel ("
+                    + drivingTimeKernel.getClass().getSimpleName() + ") has no distances.");
+        }
+        InterleavedDrivingTimeMatrix drivingTimeMatrix = new InterleavedDrivingTimeMatrix(size);
+        MatrixTiling.forEachTile(size, false, drivingTimeKernel,
+                (fromStartIndex, fromEndIndex, toStartIndex, toEndIndex) -> {
+            for (int fromIndex = fromStartIndex; fromIndex < fromEndIndex; fromIndex++) {
+                drivingTimeKernel.calculateDrivingTimesAndDistances(fromIndex, toStartIndex, toEndIndex,
+                        drivingTimeMatrix.drivingTimesAndDistances, (fromIndex * size + toStartIndex) << 1);
+            }
+        });
+        return drivingTimeMatrix;
+    }
+}
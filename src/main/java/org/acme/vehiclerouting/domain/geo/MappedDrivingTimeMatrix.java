@@ -0,0 +1,185 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Keeps the driving times off-heap, in a memory-mapped file.
+ * <p>
+ * The file starts with a header of {@value #HEADER_BYTES} bytes (magic number, format version, size),
+ * followed by the row-major driving times as little-endian {@code long}s.
+ * Because a single mapping cannot exceed 2 GB, the rows are mapped in segments of a power-of-two row count.
+ */
+public final class MappedDrivingTimeMatrix implements DrivingTimeMatrix {
+
+    public static final String DIRECTORY_CONFIG_PROPERTY = "vehicle-routing.matrix.directory";
+
+    static final int MAGIC = 0x4D545644; // "DVTM" in little-endian
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final int size;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final MappedByteBuffer[] mappings;
+    private final LongBuffer[] segments;
+
+    private MappedDrivingTimeMatrix(int size, int segmentShift, MappedByteBuffer[] mappings) {
+        this.size = size;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1 << segmentShift) - 1;
+        this.mappings = mappings;
+        this.segments = new LongBuffer[mappings.length];
+        for (int i = 0; i < mappings.length; i++) {
+            segments[i] = mappings[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+    }
+
+    /**
+     * @return the configured directory, the system's temporary directory if none is configured
+     */
+    public static Path configuredDirectory() {
+        return ConfigProvider.getConfig().getOptionalValue(DIRECTORY_CONFIG_PROPERTY, String.class)
+                .map(Path::of)
+                .orElseGet(() -> Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Fill a matrix in a new temporary file, which is deleted as soon as it has been mapped.
+     * The mapping stays valid until the matrix is garbage collected.
+     *
+     * @param directory never null, where to create the temporary file
+     * @param size number of locations
+     * @param drivingTimeKernel never null
+     * @return never null
+     */
+    public static MappedDrivingTimeMatrix calculate(Path directory, int size, DrivingTimeKernel drivingTimeKernel) {
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "driving-time-matrix-", ".bin");
+            try {
+                return calculate(file, size, drivingTimeKernel, MAX_SEGMENT_BYTES);
+            } finally {
+                deleteMappedFile(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed creating a driving time matrix file in (" + directory + ").", e);
+        }
+    }
+
+    static MappedDrivingTimeMatrix calculate(Path file, int size, DrivingTimeKernel drivingTimeKernel,
+            long maxSegmentBytes) throws IOException {
+        MappedDrivingTimeMatrix drivingTimeMatrix = create(file, size, maxSegmentBytes);
+        MatrixTiling.forEachRowBlock(size, (fromStartIndex, fromEndIndex, toStartIndex, toEndIndex) -> {
+            long[] row = new long[size];
+            for (int fromIndex = fromStartIndex; fromIndex < fromEndIndex; fromIndex++) {
+                drivingTimeKernel.calculateDrivingTimes(fromIndex, toStartIndex, toEndIndex, row, 0);
+                drivingTimeMatrix.putRow(fromIndex, row);
+            }
+        });
+        return drivingTimeMatrix;
+    }
+
+    private static MappedDrivingTimeMatrix create(Path file, int size, long maxSegmentBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(size).putInt(0).flip();
+            channel.write(header, 0L);
+            return map(channel, FileChannel.MapMode.READ_WRITE, size, maxSegmentBytes);
+        }
+    }
+
+    /**
+     * Map an existing matrix file read-only, for example one written by {@link DrivingTimeMatrixCache}.
+     *
+     * @param file never null
+     * @param expectedSize number of locations the matrix must have
+     * @return never null
+     * @throws IOException if the file cannot be read, or is not a complete matrix of the expected size
+     */
+    public static MappedDrivingTimeMatrix open(Path file, int expectedSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0L);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC
+                    || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("The file (" + file + ") is not a driving time matrix.");
+            }
+            int size = header.getInt();
+            long expectedBytes = HEADER_BYTES + (long) size * size * Long.BYTES;
+            if (size != expectedSize || channel.size() != expectedBytes) {
+                throw new IOException("The file (" + file + ") holds a matrix of size (" + size + ") and ("
+                        + channel.size() + ") bytes, expected size (" + expectedSize + ") and (" + expectedBytes
+                        + ") bytes.");
+            }
+            return map(channel, FileChannel.MapMode.READ_ONLY, size, MAX_SEGMENT_BYTES);
+        }
+    }
+
+    private static MappedDrivingTimeMatrix map(FileChannel channel, FileChannel.MapMode mapMode, int size,
+            long maxSegmentBytes) throws IOException {
+        long rowBytes = Math.max(1L, (long) size * Long.BYTES);
+        int rowsPerSegment = Integer.highestOneBit((int) Math.max(1L, Math.min(maxSegmentBytes / rowBytes, 1L << 30)));
+        int segmentCount = (size + rowsPerSegment - 1) / rowsPerSegment;
+        MappedByteBuffer[] mappings = new MappedByteBuffer[segmentCount];
+        for (int segment = 0; segment < segmentCount; segment++) {
+            long firstRow = (long) segment * rowsPerSegment;
+            long rowCount = Math.min(rowsPerSegment, size - firstRow);
+            mappings[segment] = channel.map(mapMode, HEADER_BYTES + firstRow * rowBytes, rowCount * rowBytes);
+        }
+        return new MappedDrivingTimeMatrix(size, Integer.numberOfTrailingZeros(rowsPerSegment), mappings);
+    }
+
+    private static void deleteMappedFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Some platforms refuse to delete a file that is still mapped.
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Write all driving times through to the storage device, so the file survives a crash.
+     */
+    void force() {
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+
+    private void putRow(int fromIndex, long[] row) {
+        segments[fromIndex >>> segmentShift].put((fromIndex & segmentMask) * size, row, 0, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 0, the driving times are in the page cache, not on the heap
+     */
+    @Override
+    public long getHeapBytes() {
+        return 0L;
+    }
+
+    @Override
+    public long getDrivingTime(int fromIndex, int toIndex) {
+        return segments[fromIndex >>> segmentShift].get((fromIndex & segmentMask) * size + toIndex);
+    }
+}
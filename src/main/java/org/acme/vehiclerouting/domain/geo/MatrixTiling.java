@@ -0,0 +1,81 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.stream.IntStream;
+
+/**
+ * Splits a matrix fill into tiles of {@code TILE_SIZE x TILE_SIZE} cells and spreads them over the common
+ * fork-join pool. The target locations of a tile stay in the L1 cache while its rows are filled.
+ */
+final class MatrixTiling {
+
+    static final int TILE_SIZE = 256;
+    /**
+     * Below this size, forking costs more than it saves.
+     */
+    static final int PARALLEL_THRESHOLD = 512;
+
+    private MatrixTiling() {
+    }
+
+    /**
+     * @param size number of locations
+     * @param upperTriangle true to skip the tiles that lie entirely below the diagonal
+     * @param tileAction never null, called once per tile, possibly from several threads at once
+     */
+    static void forEachTile(int size, boolean upperTriangle, TileAction tileAction) {
+        int tilesPerRow = (size + TILE_SIZE - 1) / TILE_SIZE;
+        IntStream tiles = IntStream.range(0, tilesPerRow * tilesPerRow);
+        if (upperTriangle) {
+            tiles = tiles.filter(tile -> tile % tilesPerRow >= tile / tilesPerRow);
+        }
+        if (size >= PARALLEL_THRESHOLD) {
+            tiles = tiles.parallel();
+        }
+        tiles.forEach(tile -> {
+            int fromStartIndex = (tile / tilesPerRow) * TILE_SIZE;
+            int toStartIndex = (tile % tilesPerRow) * TILE_SIZE;
+            tileAction.fill(fromStartIndex, Math.min(fromStartIndex + TILE_SIZE, size),
+                    toStartIndex, Math.min(toStartIndex + TILE_SIZE, size));
+        });
+    }
+
+    /**
+     * Like {@link #forEachTile(int, boolean, TileAction)}, but hands out whole rows
+     * if the kernel {@link DrivingTimeKernel#calculatesWholeRows() calculates whole rows anyway}.
+     * Tiles would repeat that work once per tile column.
+     *
+     * @param size number of locations
+     * @param upperTriangle true to skip the tiles that lie entirely below the diagonal,
+     *        the tile action must still skip the cells below the diagonal of a whole row itself
+     * @param drivingTimeKernel never null
+     * @param tileAction never null, called once per tile or row block, possibly from several threads at once
+     */
+    static void forEachTile(int size, boolean upperTriangle, DrivingTimeKernel drivingTimeKernel,
+            TileAction tileAction) {
+        if (drivingTimeKernel.calculatesWholeRows()) {
+            forEachRowBlock(size, tileAction);
+        } else {
+            forEachTile(size, upperTriangle, tileAction);
+        }
+    }
+
+    /**
+     * @param size number of locations
+     * @param rowBlockAction never null, called once per block of {@code TILE_SIZE} rows,
+     *        possibly from several threads at once
+     */
+    static void forEachRowBlock(int size, TileAction rowBlockAction) {
+        IntStream rowBlocks = IntStream.range(0, (size + TILE_SIZE - 1) / TILE_SIZE);
+        if (size >= PARALLEL_THRESHOLD) {
+            rowBlocks = rowBlocks.parallel();
+        }
+        rowBlocks.forEach(rowBlock -> rowBlockAction.fill(rowBlock * TILE_SIZE,
+                Math.min((rowBlock + 1) * TILE_SIZE, size), 0, size));
+    }
+
+    @FunctionalInterface
+    interface TileAction {
+
+        void fill(int fromStartIndex, int fromEndIndex, int toStartIndex, int toEndIndex);
+    }
+}
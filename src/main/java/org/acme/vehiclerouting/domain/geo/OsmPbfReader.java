@@ -0,0 +1,512 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the drivable roads of an OpenStreetMap {@code .pbf} extract into a {@link RoadNetwork}.
+ * <p>
+ * Only the parts of the PBF format that a road graph needs are decoded: raw and zlib blobs,
+ * string tables, dense and plain nodes, and ways.
+ * The file is read twice: the first pass collects the drivable ways, the second the coordinates of their nodes.
+ * Only way end points and nodes shared by several ways become graph nodes;
+ * the geometry in between is folded into the edge weight.
+ */
+final class OsmPbfReader {
+
+    /**
+     * Typical free-flow speed in km/h per {@code highway} value. Ways with other values are not drivable.
+     */
+    static final Map<String, Integer> HIGHWAY_SPEEDS_KMPH = Map.ofEntries(
+            Map.entry("motorway", 80),
+            Map.entry("motorway_link", 50),
+            Map.entry("trunk", 65),
+            Map.entry("trunk_link", 45),
+            Map.entry("primary", 50),
+            Map.entry("primary_link", 40),
+            Map.entry("secondary", 40),
+            Map.entry("secondary_link", 35),
+            Map.entry("tertiary", 30),
+            Map.entry("tertiary_link", 30),
+            Map.entry("unclassified", 25),
+            Map.entry("road", 20),
+            Map.entry("residential", 20),
+            Map.entry("service", 15),
+            Map.entry("living_street", 10));
+
+    private static final int ONEWAY_NONE = 0;
+    private static final int ONEWAY_FORWARD = 1;
+    private static final int ONEWAY_BACKWARD = -1;
+
+    private final Path file;
+
+    // Drivable ways, their node references concatenated.
+    private int wayCount = 0;
+    private int[] wayStart = new int[1025];
+    private int[] waySpeedKmph = new int[1024];
+    private int[] wayOneway = new int[1024];
+    private int refCount = 0;
+    private long[] refs = new long[16384];
+
+    // Distinct referenced node ids, sorted, and what the second pass finds for them.
+    private long[] nodeIds;
+    private int[] nodeLatitudesE7;
+    private int[] nodeLongitudesE7;
+    private boolean[] nodeFound;
+
+    private OsmPbfReader(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param file never null, an OpenStreetMap extract in PBF format
+     * @return never null
+     * @throws IOException if the file cannot be read or uses an unsupported compression
+     */
+    static RoadNetwork read(Path file) throws IOException {
+        OsmPbfReader reader = new OsmPbfReader(file);
+        reader.readBlocks(true);
+        reader.collectNodeIds();
+        reader.readBlocks(false);
+        return reader.buildRoadNetwork();
+    }
+
+    private void readBlocks(boolean waysPass) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int headerLength;
+                try {
+                    headerLength = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                ProtoReader blobHeader = new ProtoReader(readFully(in, headerLength));
+                String type = null;
+                int dataSize = 0;
+                while (blobHeader.hasRemaining()) {
+                    int tag = blobHeader.readTag();
+                    switch (tag) {
+                        case 1 << 3 | 2 -> type = blobHeader.readString();
+                        case 3 << 3 -> dataSize = (int) blobHeader.readVarint();
+                        default -> blobHeader.skip(tag);
+                    }
+                }
+                byte[] blob = readFully(in, dataSize);
+                if ("OSMData".equals(type)) {
+                    readPrimitiveBlock(new ProtoReader(decompress(blob)), waysPass);
+                }
+            }
+        }
+    }
+
+    private static byte[] readFully(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private byte[] decompress(byte[] blobBytes) throws IOException {
+        ProtoReader blob = new ProtoReader(blobBytes);
+        byte[] raw = null;
+        int rawSize = 0;
+        byte[] zlibData = null;
+        while (blob.hasRemaining()) {
+            int tag = blob.readTag();
+            switch (tag) {
+                case 1 << 3 | 2 -> raw = blob.readBytes();
+                case 2 << 3 -> rawSize = (int) blob.readVarint();
+                case 3 << 3 | 2 -> zlibData = blob.readBytes();
+                case 4 << 3 | 2, 5 << 3 | 2, 6 << 3 | 2, 7 << 3 | 2 -> throw new IOException(
+                        "The file (" + file + ") uses a compression other than zlib (field " + (tag >>> 3) + ").");
+                default -> blob.skip(tag);
+            }
+        }
+        if (raw != null) {
+            return raw;
+        }
+        if (zlibData == null) {
+            throw new IOException("The file (" + file + ") contains a blob without data.");
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlibData);
+            byte[] data = new byte[rawSize];
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                length += inflater.inflate(data, length, rawSize - length);
+                if (inflater.needsInput() || inflater.needsDictionary()) {
+                    break;
+                }
+            }
+            if (length != rawSize) {
+                throw new IOException("The file (" + file + ") contains a truncated zlib blob.");
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("The file (" + file + ") contains a corrupt zlib blob.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void readPrimitiveBlock(ProtoReader block, boolean waysPass) {
+        String[] strings = new String[0];
+        long granularity = 100L;
+        long latitudeOffset = 0L;
+        long longitudeOffset = 0L;
+        // The block settings may follow the groups, so find them first.
+        while (block.hasRemaining()) {
+            int tag = block.readTag();
+            switch (tag) {
+                case 1 << 3 | 2 -> strings = readStringTable(block.readMessage());
+                case 17 << 3 -> granularity = block.readVarint();
+                case 19 << 3 -> latitudeOffset = block.readVarint();
+                case 20 << 3 -> longitudeOffset = block.readVarint();
+                default -> block.skip(tag);
+            }
+        }
+        block.rewind();
+        while (block.hasRemaining()) {
+            int tag = block.readTag();
+            if (tag != (2 << 3 | 2)) {
+                block.skip(tag);
+                continue;
+            }
+            ProtoReader group = block.readMessage();
+            while (group.hasRemaining()) {
+                int groupTag = group.readTag();
+                if (waysPass && groupTag == (3 << 3 | 2)) {
+                    readWay(group.readMessage(), strings);
+                } else if (!waysPass && groupTag == (2 << 3 | 2)) {
+                    readDenseNodes(group.readMessage(), granularity, latitudeOffset, longitudeOffset);
+                } else if (!waysPass && groupTag == (1 << 3 | 2)) {
+                    readNode(group.readMessage(), granularity, latitudeOffset, longitudeOffset);
+                } else {
+                    group.skip(groupTag);
+                }
+            }
+        }
+    }
+
+    private static String[] readStringTable(ProtoReader stringTable) {
+        String[] strings = new String[16];
+        int count = 0;
+        while (stringTable.hasRemaining()) {
+            int tag = stringTable.readTag();
+            if (tag == (1 << 3 | 2)) {
+                if (count == strings.length) {
+                    strings = Arrays.copyOf(strings, count * 2);
+                }
+                strings[count++] = stringTable.readString();
+            } else {
+                stringTable.skip(tag);
+            }
+        }
+        return Arrays.copyOf(strings, count);
+    }
+
+    private void readWay(ProtoReader way, String[] strings) {
+        ProtoReader keys = null;
+        ProtoReader values = null;
+        ProtoReader wayRefs = null;
+        while (way.hasRemaining()) {
+            int tag = way.readTag();
+            switch (tag) {
+                case 2 << 3 | 2 -> keys = way.readMessage();
+                case 3 << 3 | 2 -> values = way.readMessage();
+                case 8 << 3 | 2 -> wayRefs = way.readMessage();
+                default -> way.skip(tag);
+            }
+        }
+        if (keys == null || values == null || wayRefs == null) {
+            return;
+        }
+        String highway = null;
+        String maxSpeed = null;
+        String oneway = null;
+        boolean noAccess = false;
+        boolean roundabout = false;
+        while (keys.hasRemaining() && values.hasRemaining()) {
+            String key = strings[(int) keys.readVarint()];
+            String value = strings[(int) values.readVarint()];
+            switch (key) {
+                case "highway" -> highway = value;
+                case "maxspeed" -> maxSpeed = value;
+                case "oneway" -> oneway = value;
+                case "access", "motor_vehicle" -> noAccess |= value.equals("no") || value.equals("private");
+                case "junction" -> roundabout = value.equals("roundabout");
+                default -> {
+                }
+            }
+        }
+        Integer highwaySpeedKmph = highway == null ? null : HIGHWAY_SPEEDS_KMPH.get(highway);
+        if (highwaySpeedKmph == null || noAccess) {
+            return;
+        }
+        int speedKmph = parseMaxSpeedKmph(maxSpeed, highwaySpeedKmph);
+        int direction;
+        if (oneway == null) {
+            direction = highway.equals("motorway") || roundabout ? ONEWAY_FORWARD : ONEWAY_NONE;
+        } else {
+            direction = switch (oneway) {
+                case "yes", "true", "1" -> ONEWAY_FORWARD;
+                case "-1", "reverse" -> ONEWAY_BACKWARD;
+                default -> ONEWAY_NONE;
+            };
+        }
+        int start = refCount;
+        long ref = 0L;
+        while (wayRefs.hasRemaining()) {
+            ref += wayRefs.readSignedVarint();
+            if (refCount == refs.length) {
+                refs = Arrays.copyOf(refs, refCount * 2);
+            }
+            refs[refCount++] = ref;
+        }
+        if (refCount - start < 2) {
+            refCount = start;
+            return;
+        }
+        if (wayCount + 1 == wayStart.length) {
+            wayStart = Arrays.copyOf(wayStart, wayCount * 2 + 1);
+            waySpeedKmph = Arrays.copyOf(waySpeedKmph, wayCount * 2);
+            wayOneway = Arrays.copyOf(wayOneway, wayCount * 2);
+        }
+        wayStart[wayCount] = start;
+        waySpeedKmph[wayCount] = speedKmph;
+        wayOneway[wayCount] = direction;
+        wayCount++;
+        wayStart[wayCount] = refCount;
+    }
+
+    static int parseMaxSpeedKmph(String maxSpeed, int defaultSpeedKmph) {
+        if (maxSpeed == null) {
+            return defaultSpeedKmph;
+        }
+        int digits = 0;
+        while (digits < maxSpeed.length() && Character.isDigit(maxSpeed.charAt(digits))) {
+            digits++;
+        }
+        if (digits == 0 || digits > 3) {
+            return defaultSpeedKmph;
+        }
+        int speed = Integer.parseInt(maxSpeed.substring(0, digits));
+        if (maxSpeed.contains("mph")) {
+            speed = (int) Math.round(speed * 1.609344);
+        }
+        return speed > 0 ? speed : defaultSpeedKmph;
+    }
+
+    private void collectNodeIds() {
+        long[] sortedRefs = Arrays.copyOf(refs, refCount);
+        Arrays.sort(sortedRefs);
+        int distinctCount = 0;
+        for (int i = 0; i < sortedRefs.length; i++) {
+            if (i == 0 || sortedRefs[i] != sortedRefs[i - 1]) {
+                sortedRefs[distinctCount++] = sortedRefs[i];
+            }
+        }
+        nodeIds = Arrays.copyOf(sortedRefs, distinctCount);
+        nodeLatitudesE7 = new int[distinctCount];
+        nodeLongitudesE7 = new int[distinctCount];
+        nodeFound = new boolean[distinctCount];
+    }
+
+    private void readDenseNodes(ProtoReader denseNodes, long granularity, long latitudeOffset, long longitudeOffset) {
+        ProtoReader ids = null;
+        ProtoReader latitudes = null;
+        ProtoReader longitudes = null;
+        while (denseNodes.hasRemaining()) {
+            int tag = denseNodes.readTag();
+            switch (tag) {
+                case 1 << 3 | 2 -> ids = denseNodes.readMessage();
+                case 8 << 3 | 2 -> latitudes = denseNodes.readMessage();
+                case 9 << 3 | 2 -> longitudes = denseNodes.readMessage();
+                default -> denseNodes.skip(tag);
+            }
+        }
+        if (ids == null || latitudes == null || longitudes == null) {
+            return;
+        }
+        long id = 0L;
+        long latitude = 0L;
+        long longitude = 0L;
+        while (ids.hasRemaining()) {
+            id += ids.readSignedVarint();
+            latitude += latitudes.readSignedVarint();
+            longitude += longitudes.readSignedVarint();
+            foundNode(id, latitudeOffset + granularity * latitude, longitudeOffset + granularity * longitude);
+        }
+    }
+
+    private void readNode(ProtoReader node, long granularity, long latitudeOffset, long longitudeOffset) {
+        long id = 0L;
+        long latitude = 0L;
+        long longitude = 0L;
+        while (node.hasRemaining()) {
+            int tag = node.readTag();
+            switch (tag) {
+                case 1 << 3 -> id = node.readSignedVarint();
+                case 8 << 3 -> latitude = node.readSignedVarint();
+                case 9 << 3 -> longitude = node.readSignedVarint();
+                default -> node.skip(tag);
+            }
+        }
+        foundNode(id, latitudeOffset + granularity * latitude, longitudeOffset + granularity * longitude);
+    }
+
+    private void foundNode(long id, long latitudeNanoDegrees, long longitudeNanoDegrees) {
+        int index = Arrays.binarySearch(nodeIds, id);
+        if (index >= 0) {
+            nodeLatitudesE7[index] = (int) (latitudeNanoDegrees / 100L);
+            nodeLongitudesE7[index] = (int) (longitudeNanoDegrees / 100L);
+            nodeFound[index] = true;
+        }
+    }
+
+    private RoadNetwork buildRoadNetwork() {
+        int[] usage = new int[nodeIds.length];
+        for (int i = 0; i < refCount; i++) {
+            usage[Arrays.binarySearch(nodeIds, refs[i])]++;
+        }
+        int[] graphNodes = new int[nodeIds.length];
+        Arrays.fill(graphNodes, -1);
+        RoadNetwork.Builder builder = new RoadNetwork.Builder();
+        for (int way = 0; way < wayCount; way++) {
+            int end = wayStart[way + 1];
+            int previousNode = -1;
+            int previousGraphNode = -1;
+            long weightMillis = 0L;
+            for (int i = wayStart[way]; i < end; i++) {
+                int node = Arrays.binarySearch(nodeIds, refs[i]);
+                if (!nodeFound[node]) {
+                    // Clipped at the border of the extract: the way continues as a separate piece, if at all.
+                    previousNode = -1;
+                    previousGraphNode = -1;
+                    continue;
+                }
+                if (previousNode >= 0) {
+                    long meters = HaversineDrivingTimeCalculator.calculateDistance(
+                            nodeLatitudesE7[previousNode] / 1e7, nodeLongitudesE7[previousNode] / 1e7,
+                            nodeLatitudesE7[node] / 1e7, nodeLongitudesE7[node] / 1e7);
+                    weightMillis += meters * 3600L / waySpeedKmph[way];
+                }
+                boolean junction = previousGraphNode < 0 || usage[node] > 1 || i == end - 1
+                        || !nodeFound[Arrays.binarySearch(nodeIds, refs[i + 1])];
+                if (junction) {
+                    if (graphNodes[node] < 0) {
+                        graphNodes[node] = builder.addNode(nodeLatitudesE7[node], nodeLongitudesE7[node]);
+                    }
+                    if (previousGraphNode >= 0) {
+                        int weight = (int) Math.max(1L, Math.min(weightMillis, Integer.MAX_VALUE - 1));
+                        if (wayOneway[way] != ONEWAY_BACKWARD) {
+                            builder.addEdge(previousGraphNode, graphNodes[node], weight);
+                        }
+                        if (wayOneway[way] != ONEWAY_FORWARD) {
+                            builder.addEdge(graphNodes[node], previousGraphNode, weight);
+                        }
+                    }
+                    previousGraphNode = graphNodes[node];
+                    weightMillis = 0L;
+                }
+                previousNode = node;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decodes protocol buffer wire format in place, without generated classes.
+     */
+    private static final class ProtoReader {
+
+        private final byte[] bytes;
+        private final int start;
+        private final int limit;
+        private int position;
+
+        ProtoReader(byte[] bytes) {
+            this(bytes, 0, bytes.length);
+        }
+
+        private ProtoReader(byte[] bytes, int start, int limit) {
+            this.bytes = bytes;
+            this.start = start;
+            this.limit = limit;
+            this.position = start;
+        }
+
+        boolean hasRemaining() {
+            return position < limit;
+        }
+
+        void rewind() {
+            position = start;
+        }
+
+        int readTag() {
+            return (int) readVarint();
+        }
+
+        long readVarint() {
+            long value = 0L;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        long readSignedVarint() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1L);
+        }
+
+        ProtoReader readMessage() {
+            int length = (int) readVarint();
+            ProtoReader message = new ProtoReader(bytes, position, position + length);
+            position += length;
+            return message;
+        }
+
+        byte[] readBytes() {
+            int length = (int) readVarint();
+            byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return value;
+        }
+
+        String readString() {
+            int length = (int) readVarint();
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void skip(int tag) {
+            switch (tag & 0x7) {
+                case 0 -> readVarint();
+                case 1 -> position += 8;
+                case 2 -> {
+                    int length = (int) readVarint();
+                    position += length;
+                }
+                case 5 -> position += 4;
+                default -> throw new IllegalStateException("Unsupported protocol buffer wire type (" + (tag & 0x7)
+                        + ").");
+            }
+        }
+    }
+}
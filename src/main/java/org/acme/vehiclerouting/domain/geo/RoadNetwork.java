@@ -0,0 +1,138 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.Arrays;
+
+/**
+ * Directed road graph, as read from an OpenStreetMap extract and before it is contracted.
+ * Coordinates are kept in 1e-7 degrees, edge weights in milliseconds.
+ * Nodes are numbered in {@link #cellKey(int, int) grid cell} order, so nodes that are close on the map
+ * are close in memory and a location can be snapped by binary search.
+ *
+ * @see ContractionHierarchy
+ */
+final class RoadNetwork {
+
+    /**
+     * Grid cells are 0.01 degrees, about 1.1 km north to south.
+     */
+    static final int CELL_SIZE_E7 = 100_000;
+    static final int LONGITUDE_CELL_COUNT = 360 * 10_000_000 / CELL_SIZE_E7;
+
+    private final int[] latitudesE7;
+    private final int[] longitudesE7;
+    private final int[] edgeFirst;
+    private final int[] edgeTarget;
+    private final int[] edgeWeight;
+
+    private RoadNetwork(int[] latitudesE7, int[] longitudesE7, int[] edgeFirst, int[] edgeTarget, int[] edgeWeight) {
+        this.latitudesE7 = latitudesE7;
+        this.longitudesE7 = longitudesE7;
+        this.edgeFirst = edgeFirst;
+        this.edgeTarget = edgeTarget;
+        this.edgeWeight = edgeWeight;
+    }
+
+    static int cellKey(int latitudeE7, int longitudeE7) {
+        int latitudeCell = (int) ((latitudeE7 + 900_000_000L) / CELL_SIZE_E7);
+        int longitudeCell = (int) ((longitudeE7 + 1_800_000_000L) / CELL_SIZE_E7);
+        return latitudeCell * LONGITUDE_CELL_COUNT + longitudeCell;
+    }
+
+    int nodeCount() {
+        return latitudesE7.length;
+    }
+
+    int[] latitudesE7() {
+        return latitudesE7;
+    }
+
+    int[] longitudesE7() {
+        return longitudesE7;
+    }
+
+    int edgeCount() {
+        return edgeTarget.length;
+    }
+
+    int firstEdge(int node) {
+        return edgeFirst[node];
+    }
+
+    int edgeTarget(int edge) {
+        return edgeTarget[edge];
+    }
+
+    int edgeWeight(int edge) {
+        return edgeWeight[edge];
+    }
+
+    static final class Builder {
+
+        private int nodeCount = 0;
+        private int[] latitudesE7 = new int[1024];
+        private int[] longitudesE7 = new int[1024];
+        private int edgeCount = 0;
+        private int[] edgeSource = new int[1024];
+        private int[] edgeTarget = new int[1024];
+        private int[] edgeWeight = new int[1024];
+
+        /**
+         * @return the index of the new node, until {@link #build()} renumbers it
+         */
+        int addNode(int latitudeE7, int longitudeE7) {
+            if (nodeCount == latitudesE7.length) {
+                latitudesE7 = Arrays.copyOf(latitudesE7, nodeCount * 2);
+                longitudesE7 = Arrays.copyOf(longitudesE7, nodeCount * 2);
+            }
+            latitudesE7[nodeCount] = latitudeE7;
+            longitudesE7[nodeCount] = longitudeE7;
+            return nodeCount++;
+        }
+
+        void addEdge(int source, int target, int weightMillis) {
+            if (edgeCount == edgeSource.length) {
+                edgeSource = Arrays.copyOf(edgeSource, edgeCount * 2);
+                edgeTarget = Arrays.copyOf(edgeTarget, edgeCount * 2);
+                edgeWeight = Arrays.copyOf(edgeWeight, edgeCount * 2);
+            }
+            edgeSource[edgeCount] = source;
+            edgeTarget[edgeCount] = target;
+            edgeWeight[edgeCount] = weightMillis;
+            edgeCount++;
+        }
+
+        RoadNetwork build() {
+            // Sort by (cell key, original index) packed into one long, then renumber.
+            long[] order = new long[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                order[i] = ((long) cellKey(latitudesE7[i], longitudesE7[i]) << 32) | i;
+            }
+            Arrays.sort(order);
+            int[] newIndex = new int[nodeCount];
+            int[] sortedLatitudesE7 = new int[nodeCount];
+            int[] sortedLongitudesE7 = new int[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                int oldIndex = (int) order[i];
+                newIndex[oldIndex] = i;
+                sortedLatitudesE7[i] = latitudesE7[oldIndex];
+                sortedLongitudesE7[i] = longitudesE7[oldIndex];
+            }
+            int[] first = new int[nodeCount + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                first[newIndex[edgeSource[i]] + 1]++;
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                first[i + 1] += first[i];
+            }
+            int[] next = Arrays.copyOf(first, nodeCount);
+            int[] targets = new int[edgeCount];
+            int[] weights = new int[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                int edge = next[newIndex[edgeSource[i]]]++;
+                targets[edge] = newIndex[edgeTarget[i]];
+                weights[edge] = edgeWeight[i];
+            }
+            return new RoadNetwork(sortedLatitudesE7, sortedLongitudesE7, first, targets, weights);
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calculates driving times over the road network of a local OpenStreetMap extract,
+ * with a speed per road type (or its speed limit).
+ * <p>
+ * The extract is contracted into a {@link ContractionHierarchy} once and persisted next to it,
+ * so a later startup only maps the hierarchy file, as long as the extract keeps its size and modification time.
+ * Many-to-many driving times use the bucket algorithm: one backward search per target fills buckets on the nodes
+ * it settles, then one forward search per source scans the buckets of the nodes it settles.
+ * Both kinds of searches run in parallel. A forward search yields a whole row,
+ * so matrices are filled {@link DrivingTimeKernel#calculatesWholeRows() row by row}.
+ * <p>
+ * Each location is snapped to its nearest road node; the straight line to that node is driven at
+ * {@link HaversineDrivingTimeCalculator#AVERAGE_SPEED_KMPH}.
+ * Locations without a road node nearby, and pairs without a road connection, fall back to Haversine.
+ */
+public final class RoadNetworkDrivingTimeCalculator implements DrivingTimeCalculator {
+
+    public static final String OSM_FILE_CONFIG_PROPERTY = "vehicle-routing.road-network.osm-file";
+    public static final String GRAPH_FILE_CONFIG_PROPERTY = "vehicle-routing.road-network.graph-file";
+
+    /**
+     * Locations more than this many grid cells (about 1 km each) away from every road node are not snapped.
+     */
+    static final int MAX_SNAP_RING = 5;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RoadNetworkDrivingTimeCalculator.class);
+
+    private final ContractionHierarchy contractionHierarchy;
+
+    RoadNetworkDrivingTimeCalculator(ContractionHierarchy contractionHierarchy) {
+        this.contractionHierarchy = contractionHierarchy;
+    }
+
+    /**
+     * @return empty unless {@value #OSM_FILE_CONFIG_PROPERTY} is configured
+     */
+    public static Optional<RoadNetworkDrivingTimeCalculator> configured() {
+        return ConfigProvider.getConfig().getOptionalValue(OSM_FILE_CONFIG_PROPERTY, String.class)
+                .map(Path::of)
+                .map(osmFile -> load(osmFile, ConfigProvider.getConfig()
+                        .getOptionalValue(GRAPH_FILE_CONFIG_PROPERTY, String.class)
+                        .map(Path::of)
+                        .orElseGet(() -> osmFile.resolveSibling(osmFile.getFileName() + ".ch"))));
+    }
+
+    /**
+     * Map the hierarchy file if it was built from this extract, otherwise build it first.
+     * The extract is only read again if its size or modification time changed since the hierarchy was built.
+     *
+     * @param osmFile never null, an OpenStreetMap extract in PBF format
+     * @param graphFile never null, where the contraction hierarchy is persisted
+     * @return never null
+     */
+    public static RoadNetworkDrivingTimeCalculator load(Path osmFile, Path graphFile) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(osmFile, BasicFileAttributes.class);
+            long size = attributes.size();
+            long lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+            ContractionHierarchy.Source source = null;
+            if (Files.exists(graphFile)) {
+                try {
+                    ContractionHierarchy.Source builtFrom = ContractionHierarchy.readSource(graphFile);
+                    if (builtFrom.size() == size && builtFrom.lastModifiedMillis() == lastModifiedMillis) {
+                        source = createSource(builtFrom.contentHash(), size, lastModifiedMillis);
+                    } else {
+                        source = createSource(hashContent(osmFile), size, lastModifiedMillis);
+                        if (source.fingerprint() == builtFrom.fingerprint()) {
+                            // Touched or copied, but the same roads: skip hashing it again next time.
+                            ContractionHierarchy.updateSource(graphFile, source);
+                        }
+                    }
+                    return new RoadNetworkDrivingTimeCalculator(
+                            ContractionHierarchy.open(graphFile, source.fingerprint()));
+                } catch (IOException e) {
+                    LOGGER.warn("Rebuilding unusable road network graph ({}): {}", graphFile, e.getMessage());
+                }
+            }
+            if (source == null) {
+                source = createSource(hashContent(osmFile), size, lastModifiedMillis);
+            }
+            long startMillis = System.currentTimeMillis();
+            RoadNetwork roadNetwork = OsmPbfReader.read(osmFile);
+            Path directory = graphFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporaryFile = Files.createTempFile(directory, graphFile.getFileName().toString(), ".tmp");
+            try {
+                ContractionHierarchy.write(roadNetwork, temporaryFile, source);
+                Files.move(temporaryFile, graphFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+            LOGGER.info("Built road network graph ({}) with {} nodes in {} ms.", graphFile, roadNetwork.nodeCount(),
+                    System.currentTimeMillis() - startMillis);
+            return new RoadNetworkDrivingTimeCalculator(ContractionHierarchy.open(graphFile, source.fingerprint()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed loading the road network (" + osmFile + ").", e);
+        }
+    }
+
+    /**
+     * The fingerprint also covers every setting the hierarchy is built with, so changed road speeds
+     * do not reuse a stale hierarchy.
+     */
+    private static ContractionHierarchy.Source createSource(long contentHash, long size, long lastModifiedMillis) {
+        byte[] settings = ("format=" + ContractionHierarchy.FORMAT_VERSION
+                + ";witnessSettleLimit=" + ContractionHierarchy.WITNESS_SETTLE_LIMIT
+                + ";highwaySpeedsKmph=" + new TreeMap<>(OsmPbfReader.HIGHWAY_SPEEDS_KMPH)
+                + ";content=" + Long.toHexString(contentHash))
+                .getBytes(StandardCharsets.UTF_8);
+        MessageDigest digest = createDigest();
+        digest.update(settings);
+        return new ContractionHierarchy.Source(ByteBuffer.wrap(digest.digest()).getLong(), contentHash, size,
+                lastModifiedMillis);
+    }
+
+    /**
+     * Reads the whole extract, so only done when its size or modification time changed.
+     */
+    private static long hashContent(Path osmFile) throws IOException {
+        MessageDigest digest = createDigest();
+        try (InputStream in = Files.newInputStream(osmFile)) {
+            byte[] buffer = new byte[1 << 16];
+            for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+                digest.update(buffer, 0, length);
+            }
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every JVM supports SHA-256.", e);
+        }
+    }
+
+    /**
+     * One forward search from the source and one backward search from the target, without a kernel or buckets:
+     * the shortest path runs through the node both searches settled with the lowest sum of distances.
+     * Matrices share one kernel over all their locations instead.
+     */
+    @Override
+    public long calculateDrivingTime(Location from, Location to) {
+        if (from.equals(to)) {
+            return 0L;
+        }
+        int fromNode = contractionHierarchy.findNearestNode(from.getLatitude(), from.getLongitude(), MAX_SNAP_RING);
+        int toNode = contractionHierarchy.findNearestNode(to.getLatitude(), to.getLongitude(), MAX_SNAP_RING);
+        int distanceMillis = fromNode < 0 || toNode < 0 ? ContractionHierarchy.UNREACHABLE
+                : searchDistanceMillis(fromNode, toNode);
+        if (distanceMillis == ContractionHierarchy.UNREACHABLE) {
+            return HaversineDrivingTimeCalculator.metersToDrivingSeconds(HaversineDrivingTimeCalculator
+                    .calculateDistance(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude()));
+        }
+        return calculateSnapSeconds(from.getLatitude(), from.getLongitude(), fromNode)
+                + Math.round(distanceMillis / 1000.0)
+                + calculateSnapSeconds(to.getLatitude(), to.getLongitude(), toNode);
+    }
+
+    private int searchDistanceMillis(int fromNode, int toNode) {
+        long[] forward = searchSortedByNode(fromNode, true);
+        long[] backward = searchSortedByNode(toNode, false);
+        int distanceMillis = ContractionHierarchy.UNREACHABLE;
+        int i = 0;
+        int j = 0;
+        while (i < forward.length && j < backward.length) {
+            long forwardNode = forward[i] >>> 32;
+            long backwardNode = backward[j] >>> 32;
+            if (forwardNode < backwardNode) {
+                i++;
+            } else if (forwardNode > backwardNode) {
+                j++;
+            } else {
+                distanceMillis = Math.min(distanceMillis,
+                        ContractionHierarchy.saturatedAdd((int) forward[i], (int) backward[j]));
+                i++;
+                j++;
+            }
+        }
+        return distanceMillis;
+    }
+
+    private long[] searchSortedByNode(int node, boolean forward) {
+        SettledNodeCollector collector = new SettledNodeCollector();
+        contractionHierarchy.searchUpward(node, forward, collector);
+        return collector.toSortedByNode();
+    }
+
+    /**
+     * @return the time to drive the straight line from a location to the road node it snapped to
+     */
+    private long calculateSnapSeconds(double latitude, double longitude, int node) {
+        return HaversineDrivingTimeCalculator.metersToDrivingSeconds(HaversineDrivingTimeCalculator.calculateDistance(
+                latitude, longitude, contractionHierarchy.latitude(node), contractionHierarchy.longitude(node)));
+    }
+
+    @Override
+    public String getCacheKey() {
+        return getClass().getName() + ";graph=" + Long.toHexString(contractionHierarchy.sourceFingerprint())
+                + ";maxSnapRing=" + MAX_SNAP_RING;
+    }
+
+    @Override
+    public Map<Location, Map<Location, Long>> calculateBulkDrivingTime(Collection<Location> fromLocations,
+            Collection<Location> toLocations) {
+        List<Location> locations = new ArrayList<>(fromLocations.size() + toLocations.size());
+        locations.addAll(fromLocations);
+        locations.addAll(toLocations);
+        int fromCount = fromLocations.size();
+        int toCount = toLocations.size();
+        DrivingTimeKernel drivingTimeKernel = createDrivingTimeKernel(locations, fromCount);
+        long[][] rows = new long[fromCount][toCount];
+        IntStream.range(0, fromCount).parallel().forEach(fromIndex -> drivingTimeKernel
+                .calculateDrivingTimes(fromIndex, fromCount, fromCount + toCount, rows[fromIndex], 0));
+        Map<Location, Map<Location, Long>> drivingTimes = new HashMap<>(fromCount * 2);
+        for (int fromIndex = 0; fromIndex < fromCount; fromIndex++) {
+            Map<Location, Long> row = new HashMap<>(toCount * 2);
+            for (int toIndex = 0; toIndex < toCount; toIndex++) {
+                row.put(locations.get(fromCount + toIndex), rows[fromIndex][toIndex]);
+            }
+            drivingTimes.put(locations.get(fromIndex), row);
+        }
+        return drivingTimes;
+    }
+
+    /**
+     * Snaps every location and runs the backward searches up front, so each row only costs one forward search.
+     */
+    @Override
+    public DrivingTimeKernel createDrivingTimeKernel(List<Location> locations) {
+        return createDrivingTimeKernel(locations, 0);
+    }
+
+    /**
+     * @param firstTargetIndex locations before this index are only ever sources, so they get no backward search
+     */
+    private DrivingTimeKernel createDrivingTimeKernel(List<Location> locations, int firstTargetIndex) {
+        int size = locations.size();
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        int[] nodes = new int[size];
+        long[] snapSeconds = new long[size];
+        IntStream indices = IntStream.range(0, size);
+        if (size >= MatrixTiling.PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> {
+            latitudes[i] = locations.get(i).getLatitude();
+            longitudes[i] = locations.get(i).getLongitude();
+            nodes[i] = contractionHierarchy.findNearestNode(latitudes[i], longitudes[i], MAX_SNAP_RING);
+            if (nodes[i] >= 0) {
+                snapSeconds[i] = calculateSnapSeconds(latitudes[i], longitudes[i], nodes[i]);
+            }
+        });
+        int[] targetNodes = nodes.clone();
+        Arrays.fill(targetNodes, 0, firstTargetIndex, -1);
+        return new RoadNetworkDrivingTimeKernel(contractionHierarchy, latitudes, longitudes, nodes, snapSeconds,
+                Buckets.fill(contractionHierarchy, targetNodes));
+    }
+
+    /**
+     * Backward search results of all targets, sorted by the node they were settled at.
+     */
+    private record Buckets(int[] nodes, int[] targets, int[] distancesMillis) {
+
+        static Buckets fill(ContractionHierarchy contractionHierarchy, int[] targetNodes) {
+            int size = targetNodes.length;
+            int[][] searchSpaces = new int[size][];
+            IntStream targets = IntStream.range(0, size);
+            if (size >= MatrixTiling.PARALLEL_THRESHOLD) {
+                targets = targets.parallel();
+            }
+            targets.forEach(target -> {
+                if (targetNodes[target] < 0) {
+                    searchSpaces[target] = new int[0];
+                    return;
+                }
+                SettledNodeCollector collector = new SettledNodeCollector();
+                contractionHierarchy.searchUpward(targetNodes[target], false, collector);
+                searchSpaces[target] = collector.toArray();
+            });
+            int entryCount = 0;
+            for (int[] searchSpace : searchSpaces) {
+                entryCount += searchSpace.length / 2;
+            }
+            // Sort by node, keeping each entry's position in the low bits.
+            long[] order = new long[entryCount];
+            int[] entryTargets = new int[entryCount];
+            int[] entryDistances = new int[entryCount];
+            int entry = 0;
+            for (int target = 0; target < size; target++) {
+                int[] searchSpace = searchSpaces[target];
+                for (int i = 0; i < searchSpace.length; i += 2) {
+                    order[entry] = ((long) searchSpace[i] << 32) | entry;
+                    entryTargets[entry] = target;
+                    entryDistances[entry] = searchSpace[i + 1];
+                    entry++;
+                }
+            }
+            Arrays.parallelSort(order);
+            int[] nodes = new int[entryCount];
+            int[] targetsByNode = new int[entryCount];
+            int[] distancesByNode = new int[entryCount];
+            for (int i = 0; i < entryCount; i++) {
+                int originalEntry = (int) order[i];
+                nodes[i] = (int) (order[i] >>> 32);
+                targetsByNode[i] = entryTargets[originalEntry];
+                distancesByNode[i] = entryDistances[originalEntry];
+            }
+            return new Buckets(nodes, targetsByNode, distancesByNode);
+        }
+
+        int firstEntry(int node) {
+            int low = 0;
+            int high = nodes.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (nodes[middle] < node) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Collects settled nodes and their distances as pairs in one array.
+     */
+    private static final class SettledNodeCollector implements ContractionHierarchy.SettledNodeConsumer {
+
+        private int[] entries = new int[64];
+        private int length = 0;
+
+        @Override
+        public void accept(int node, int distanceMillis) {
+            if (length == entries.length) {
+                entries = Arrays.copyOf(entries, length * 2);
+            }
+            entries[length++] = node;
+            entries[length++] = distanceMillis;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(entries, length);
+        }
+
+        /**
+         * @return each node in the high and its distance in the low 32 bits, sorted by node
+         */
+        long[] toSortedByNode() {
+            long[] sorted = new long[length / 2];
+            for (int i = 0; i < length; i += 2) {
+                sorted[i / 2] = ((long) entries[i] << 32) | entries[i + 1];
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * Every forward search settles the whole upward search space of its source, whatever columns are asked for,
+     * so it always fills the whole row. Each thread keeps its last row, so single pairs from the same source,
+     * such as the new columns of an {@link IncrementalDrivingTimeMatrix}, share one search.
+     */
+    private static final class RoadNetworkDrivingTimeKernel implements DrivingTimeKernel {
+
+        private final ContractionHierarchy contractionHierarchy;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final int[] nodes;
+        private final long[] snapSeconds;
+        private final Buckets buckets;
+        private final ThreadLocal<Row> lastRows;
+
+        RoadNetworkDrivingTimeKernel(ContractionHierarchy contractionHierarchy, double[] latitudes,
+                double[] longitudes, int[] nodes, long[] snapSeconds, Buckets buckets) {
+            this.contractionHierarchy = contractionHierarchy;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.nodes = nodes;
+            this.snapSeconds = snapSeconds;
+            this.buckets = buckets;
+            this.lastRows = ThreadLocal.withInitial(() -> new Row(nodes.length));
+        }
+
+        @Override
+        public boolean calculatesWholeRows() {
+            return true;
+        }
+
+        @Override
+        public long calculateDrivingTime(int fromIndex, int toIndex) {
+            return toDrivingTime(fromIndex, toIndex, searchRow(fromIndex)[toIndex]);
+        }
+
+        @Override
+        public void calculateDrivingTimes(int fromIndex, int toStartIndex, int toEndIndex, long[] drivingTimes,
+                int offset) {
+            int[] distancesMillis = searchRow(fromIndex);
+            for (int toIndex = toStartIndex; toIndex < toEndIndex; toIndex++) {
+                drivingTimes[offset + toIndex - toStartIndex] =
+                        toDrivingTime(fromIndex, toIndex, distancesMillis[toIndex]);
+            }
+        }
+
+        /**
+         * @return never null, the road distance in milliseconds to every target, owned by the calling thread
+         */
+        private int[] searchRow(int fromIndex) {
+            Row row = lastRows.get();
+            if (row.fromIndex == fromIndex) {
+                return row.distancesMillis;
+            }
+            int[] distancesMillis = row.distancesMillis;
+            Arrays.fill(distancesMillis, ContractionHierarchy.UNREACHABLE);
+            if (nodes[fromIndex] >= 0) {
+                contractionHierarchy.searchUpward(nodes[fromIndex], true, (node, distanceMillis) -> {
+                    for (int entry = buckets.firstEntry(node); entry < buckets.nodes().length
+                            && buckets.nodes()[entry] == node; entry++) {
+                        int toIndex = buckets.targets()[entry];
+                        int distance = ContractionHierarchy.saturatedAdd(distanceMillis,
+                                buckets.distancesMillis()[entry]);
+                        if (distance < distancesMillis[toIndex]) {
+                            distancesMillis[toIndex] = distance;
+                        }
+                    }
+                });
+            }
+            row.fromIndex = fromIndex;
+            return distancesMillis;
+        }
+
+        private long toDrivingTime(int fromIndex, int toIndex, int distanceMillis) {
+            if (toIndex == fromIndex) {
+                return 0L;
+            }
+            if (distanceMillis == ContractionHierarchy.UNREACHABLE) {
+                return HaversineDrivingTimeCalculator.metersToDrivingSeconds(
+                        HaversineDrivingTimeCalculator.calculateDistance(latitudes[fromIndex],
+                                longitudes[fromIndex], latitudes[toIndex], longitudes[toIndex]));
+            }
+            return snapSeconds[fromIndex] + Math.round(distanceMillis / 1000.0) + snapSeconds[toIndex];
+        }
+    }
+
+    private static final class Row {
+
+        private final int[] distancesMillis;
+        private int fromIndex = -1;
+
+        Row(int size) {
+            this.distancesMillis = new int[size];
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares one driving time matrix among all plans over the same locations in this process,
+ * so concurrent jobs over the same depots and customers do not each hold a copy.
+ * Matrices are keyed by the {@link DrivingTimeMatrixCache#fingerprint fingerprint} of the calculator settings
+ * and the ordered location coordinates. Matrix indices follow the {@link HilbertCurve},
+ * so plans that list the same locations in another order still get the same key.
+ * <p>
+ * Every {@link #acquire acquired} or {@link #retain retained} matrix stays referenced
+ * until it is {@link #release released} as often.
+ * Unreferenced matrices stay cached for the next plan over the same locations,
+ * until the heap of all cached matrices exceeds {@value #MAX_BYTES_CONFIG_PROPERTY}:
+ * then the least recently used unreferenced ones are dropped.
+ * Matrices that keep nothing on the heap, such as a {@link MappedDrivingTimeMatrix}, never count against that budget,
+ * so they are dropped as soon as they are unreferenced, instead of keeping their files mapped forever.
+ * Referenced matrices are never dropped, the garbage collector could not free them anyway.
+ * <p>
+ * Shared matrices must not be modified. Thread-safe: a matrix is calculated once,
+ * even if several plans over the same locations arrive together, without blocking lookups of other matrices.
+ */
+public final class SharedDrivingTimeMatrixCache {
+
+    public static final String MAX_BYTES_CONFIG_PROPERTY = "vehicle-routing.matrix.shared-cache.max-bytes";
+
+    static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedDrivingTimeMatrixCache.class);
+
+    private final long maxBytes;
+    /**
+     * In access order, least recently used first. Guarded by {@code this}, like all mutable state.
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<DrivingTimeMatrix, Entry> calculatedEntries = new IdentityHashMap<>();
+    private long heapBytes = 0L;
+
+    /**
+     * @param maxBytes heap bytes above which unreferenced matrices are dropped, 0 to drop them right away
+     */
+    public SharedDrivingTimeMatrixCache(long maxBytes) {
+        if (maxBytes < 0L) {
+            throw new IllegalArgumentException("The maxBytes (" + maxBytes + ") must not be negative.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return never null, with the configured memory budget, {@value #DEFAULT_MAX_BYTES} bytes if none is configured
+     */
+    public static SharedDrivingTimeMatrixCache configured() {
+        return new SharedDrivingTimeMatrixCache(ConfigProvider.getConfig()
+                .getOptionalValue(MAX_BYTES_CONFIG_PROPERTY, Long.class)
+                .orElse(DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * Reference the matrix for these locations, calculating it only if it is not cached yet.
+     *
+     * @param drivingTimeCalculator never null
+     * @param locations never null, without duplicates, in matrix index order
+     * @return never null, location {@code i} of the list has matrix index {@code i}
+     */
+    public DrivingTimeMatrix acquire(DrivingTimeCalculator drivingTimeCalculator, List<Location> locations) {
+        String key = DrivingTimeMatrixCache.fingerprint(drivingTimeCalculator, locations);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.computeIfAbsent(key, Entry::new);
+            entry.referenceCount++;
+        }
+        DrivingTimeMatrix drivingTimeMatrix;
+        try {
+            drivingTimeMatrix = entry.getOrCalculate(drivingTimeCalculator, locations);
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                entry.referenceCount--;
+                if (entry.referenceCount == 0 && entry.drivingTimeMatrix == null) {
+                    entries.remove(key, entry);
+                }
+            }
+            throw e;
+        }
+        synchronized (this) {
+            if (calculatedEntries.putIfAbsent(drivingTimeMatrix, entry) == null) {
+                entry.heapBytes = drivingTimeMatrix.getHeapBytes();
+                heapBytes += entry.heapBytes;
+                evict();
+            }
+        }
+        return drivingTimeMatrix;
+    }
+
+    /**
+     * Reference a matrix again, for example for another job over an attached plan.
+     *
+     * @param drivingTimeMatrix never null
+     * @return false if the matrix is not in this cache, so there is nothing to reference
+     */
+    public synchronized boolean retain(DrivingTimeMatrix drivingTimeMatrix) {
+        Entry entry = calculatedEntries.get(drivingTimeMatrix);
+        if (entry == null) {
+            return false;
+        }
+        entry.referenceCount++;
+        entries.get(entry.key);
+        return true;
+    }
+
+    /**
+     * Drop one reference to a matrix. Once it has none, it may be evicted.
+     *
+     * @param drivingTimeMatrix never null
+     * @return false if the matrix is not in this cache, so there is nothing to release
+     * @throws IllegalStateException if the matrix is released more often than it was referenced
+     */
+    public synchronized boolean release(DrivingTimeMatrix drivingTimeMatrix) {
+        Entry entry = calculatedEntries.get(drivingTimeMatrix);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.referenceCount == 0) {
+            throw new IllegalStateException("The driving time matrix (" + entry.key
+                    + ") is released more often than it was acquired.");
+        }
+        entry.referenceCount--;
+        evict();
+        return true;
+    }
+
+    /**
+     * @return number of cached matrices, referenced or not
+     */
+    public synchronized int size() {
+        return calculatedEntries.size();
+    }
+
+    /**
+     * @return estimated heap bytes of all cached matrices
+     */
+    public synchronized long getHeapBytes() {
+        return heapBytes;
+    }
+
+    /**
+     * @return how often the matrix is referenced, 0 if it is not in this cache
+     */
+    synchronized int getReferenceCount(DrivingTimeMatrix drivingTimeMatrix) {
+        Entry entry = calculatedEntries.get(drivingTimeMatrix);
+        return entry == null ? 0 : entry.referenceCount;
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.referenceCount == 0 && (heapBytes > maxBytes || entry.heapBytes == 0L)) {
+                iterator.remove();
+                calculatedEntries.remove(entry.drivingTimeMatrix);
+                heapBytes -= entry.heapBytes;
+                LOGGER.debug("Evicted unreferenced driving time matrix ({}) of ({}) bytes.", entry.key,
+                        entry.heapBytes);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        /**
+         * Written once, under the lock of this entry. Read under the lock of the cache once calculated.
+         */
+        private volatile DrivingTimeMatrix drivingTimeMatrix;
+        private int referenceCount = 0;
+        private long heapBytes = 0L;
+
+        Entry(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Callers for the same locations wait for the first one, callers for other locations lock other entries.
+         */
+        synchronized DrivingTimeMatrix getOrCalculate(DrivingTimeCalculator drivingTimeCalculator,
+                List<Location> locations) {
+            if (drivingTimeMatrix == null) {
+                drivingTimeMatrix = drivingTimeCalculator.calculateDrivingTimeMatrix(locations);
+            }
+            return drivingTimeMatrix;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.Arrays;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Stores only the driving times from every location to its {@code neighborCount} nearest locations.
+ * Any other pair is calculated on demand and kept in a bounded cache,
+ * so memory grows as {@code O(size * neighborCount)} instead of {@code O(size * size)}.
+ * <p>
+ * Moves that join far-apart visits are rarely accepted, so the solver mostly reads the stored pairs.
+ * The neighbors of a row are kept sorted by matrix index, so a lookup is a binary search over a short range.
+ */
+public final class SparseDrivingTimeMatrix implements DrivingTimeMatrix {
+
+    public static final String NEIGHBOR_COUNT_CONFIG_PROPERTY = "vehicle-routing.matrix.sparse.neighbor-count";
+    public static final String CACHE_SIZE_CONFIG_PROPERTY = "vehicle-routing.matrix.sparse.cache-size";
+
+    static final int DEFAULT_NEIGHBOR_COUNT = 64;
+    static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+    private final int size;
+    private final int neighborCount;
+    private final boolean symmetric;
+    private final int[] neighborIndices;
+    private final long[] neighborDrivingTimes;
+    private final DrivingTimeKernel drivingTimeKernel;
+    /**
+     * Direct-mapped: a pair always goes to the same slot and evicts whatever was there.
+     * Entries are immutable, so racing threads can only lose a cached value, never read a torn one.
+     */
+    private final CachedDrivingTime[] cache;
+    private final int cacheMask;
+
+    private SparseDrivingTimeMatrix(int size, int neighborCount, boolean symmetric, DrivingTimeKernel drivingTimeKernel,
+            int cacheSize) {
+        this.size = size;
+        this.neighborCount = neighborCount;
+        this.symmetric = symmetric;
+        this.neighborIndices = new int[Math.multiplyExact(size, neighborCount)];
+        this.neighborDrivingTimes = new long[neighborIndices.length];
+        this.drivingTimeKernel = drivingTimeKernel;
+        int cacheCapacity = Integer.highestOneBit(Math.max(1, cacheSize));
+        this.cache = new CachedDrivingTime[cacheCapacity];
+        this.cacheMask = cacheCapacity - 1;
+    }
+
+    /**
+     * Calculate a matrix with the configured number of neighbors and cache size.
+     *
+     * @param size number of locations
+     * @param drivingTimeKernel never null, kept to calculate the pairs that are not stored
+     * @param symmetric true if {@code drivingTimeKernel} returns the same driving time in both directions
+     * @return never null
+     */
+    public static SparseDrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel, boolean symmetric) {
+        var config = ConfigProvider.getConfig();
+        return calculate(size, drivingTimeKernel, symmetric,
+                config.getOptionalValue(NEIGHBOR_COUNT_CONFIG_PROPERTY, Integer.class).orElse(DEFAULT_NEIGHBOR_COUNT),
+                config.getOptionalValue(CACHE_SIZE_CONFIG_PROPERTY, Integer.class).orElse(DEFAULT_CACHE_SIZE));
+    }
+
+    /**
+     * @param size number of locations
+     * @param drivingTimeKernel never null, kept to calculate the pairs that are not stored
+     * @param symmetric true if {@code drivingTimeKernel} returns the same driving time in both directions
+     * @param neighborCount how many nearest locations to store per location, at least 1
+     * @param cacheSize how many other pairs to cache, rounded down to a power of 2
+     * @return never null
+     */
+    public static SparseDrivingTimeMatrix calculate(int size, DrivingTimeKernel drivingTimeKernel, boolean symmetric,
+            int neighborCount, int cacheSize) {
+        if (neighborCount < 1) {
+            throw new IllegalArgumentException("The neighborCount (" + neighborCount + ") must be at least 1.");
+        }
+        SparseDrivingTimeMatrix drivingTimeMatrix = new SparseDrivingTimeMatrix(size,
+                Math.min(neighborCount, Math.max(0, size - 1)), symmetric, drivingTimeKernel, cacheSize);
+        MatrixTiling.forEachRowBlock(size, (fromStartIndex, fromEndIndex, toStartIndex, toEndIndex) -> {
+            long[] row = new long[size];
+            int[] nearest = new int[drivingTimeMatrix.neighborCount];
+            for (int fromIndex = fromStartIndex; fromIndex < fromEndIndex; fromIndex++) {
+                drivingTimeKernel.calculateDrivingTimes(fromIndex, toStartIndex, toEndIndex, row, 0);
+                drivingTimeMatrix.storeNearest(fromIndex, row, nearest);
+            }
+        });
+        return drivingTimeMatrix;
+    }
+
+    /**
+     * Select the nearest locations with a bounded max-heap, then store them sorted by matrix index.
+     */
+    private void storeNearest(int fromIndex, long[] row, int[] nearest) {
+        int heapSize = 0;
+        for (int toIndex = 0; toIndex < size; toIndex++) {
+            if (toIndex == fromIndex) {
+                continue;
+            }
+            if (heapSize < neighborCount) {
+                nearest[heapSize] = toIndex;
+                siftUp(nearest, row, heapSize++);
+            } else if (row[toIndex] < row[nearest[0]]) {
+                nearest[0] = toIndex;
+                siftDown(nearest, row, heapSize);
+            }
+        }
+        Arrays.sort(nearest, 0, heapSize);
+        int offset = fromIndex * neighborCount;
+        for (int i = 0; i < heapSize; i++) {
+            neighborIndices[offset + i] = nearest[i];
+            neighborDrivingTimes[offset + i] = row[nearest[i]];
+        }
+    }
+
+    private static void siftUp(int[] heap, long[] row, int position) {
+        int element = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (row[heap[parent]] >= row[element]) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = element;
+    }
+
+    private static void siftDown(int[] heap, long[] row, int heapSize) {
+        int element = heap[0];
+        int position = 0;
+        int child;
+        while ((child = 2 * position + 1) < heapSize) {
+            if (child + 1 < heapSize && row[heap[child + 1]] > row[heap[child]]) {
+                child++;
+            }
+            if (row[heap[child]] <= row[element]) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = element;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int getNeighborCount() {
+        return neighborCount;
+    }
+
+    /**
+     * Counts every cache slot as filled, with a compressed reference and a 24-byte entry.
+     */
+    @Override
+    public long getHeapBytes() {
+        return (long) neighborIndices.length * (Integer.BYTES + Long.BYTES) + (long) cache.length * 28L;
+    }
+
+    @Override
+    public long getDrivingTime(int fromIndex, int toIndex) {
+        int offset = fromIndex * neighborCount;
+        int position = Arrays.binarySearch(neighborIndices, offset, offset + neighborCount, toIndex);
+        if (position >= 0) {
+            return neighborDrivingTimes[position];
+        }
+        if (symmetric) {
+            offset = toIndex * neighborCount;
+            position = Arrays.binarySearch(neighborIndices, offset, offset + neighborCount, fromIndex);
+            if (position >= 0) {
+                return neighborDrivingTimes[position];
+            }
+        }
+        return getFallbackDrivingTime(fromIndex, toIndex);
+    }
+
+    private long getFallbackDrivingTime(int fromIndex, int toIndex) {
+        long key = (long) fromIndex * size + toIndex;
+        int slot = (int) (mix(key) & cacheMask);
+        CachedDrivingTime cached = cache[slot];
+        if (cached != null && cached.key == key) {
+            return cached.drivingTime;
+        }
+        long drivingTime = drivingTimeKernel.calculateDrivingTime(fromIndex, toIndex);
+        cache[slot] = new CachedDrivingTime(key, drivingTime);
+        return drivingTime;
+    }
+
+    private static long mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private record CachedDrivingTime(long key, long drivingTime) {
+
+    }
+}
@@ -0,0 +1,289 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.acme.vehiclerouting.domain.Location;
+
+/**
+ * Immutable k-d tree over a fixed set of locations, for nearest, radius and bounding box queries
+ * in {@code O(log n)} per result instead of a scan over every location.
+ * Locations are placed on the unit sphere, so the straight-line distance the tree splits on
+ * orders pairs exactly like the great-circle distance, at any latitude and across the antimeridian.
+ * <p>
+ * Build it once per set of locations and share it; queries are thread-safe.
+ *
+ * @see org.acme.vehiclerouting.domain.VehicleRoutePlan#getSpatialIndex()
+ */
+public final class SpatialIndex {
+
+    private static final int DIMENSIONS = 3;
+
+    /**
+     * In tree order: the node of the range {@code [start, end)} sits at {@code (start + end) >>> 1},
+     * its left subtree holds {@code [start, node)} and its right subtree {@code [node + 1, end)}.
+     */
+    private final Location[] locations;
+    private final double[] coordinates;
+
+    private SpatialIndex(Location[] locations) {
+        this.locations = locations;
+        this.coordinates = new double[locations.length * DIMENSIONS];
+        for (int i = 0; i < locations.length; i++) {
+            setCoordinates(coordinates, i * DIMENSIONS, locations[i].getLatitude(), locations[i].getLongitude());
+        }
+        build(0, locations.length, 0);
+    }
+
+    /**
+     * @param locations never null, locations with equal coordinates are indexed once
+     * @return never null
+     */
+    public static SpatialIndex of(Collection<Location> locations) {
+        return new SpatialIndex(new LinkedHashSet<>(locations).toArray(Location[]::new));
+    }
+
+    public int size() {
+        return locations.length;
+    }
+
+    /**
+     * @param latitude of the query point
+     * @param longitude of the query point
+     * @param count at most this many locations are returned
+     * @return never null, the {@code count} locations closest to the query point, closest first
+     */
+    public List<Location> findNearest(double latitude, double longitude, int count) {
+        if (count <= 0 || locations.length == 0) {
+            return List.of();
+        }
+        double[] query = new double[DIMENSIONS];
+        setCoordinates(query, 0, latitude, longitude);
+        NearestCollector collector = new NearestCollector(Math.min(count, locations.length));
+        findNearest(0, locations.length, 0, query, collector);
+        List<Location> nearest = new ArrayList<>(collector.size);
+        for (int i = 0; i < collector.size; i++) {
+            nearest.add(locations[collector.nodes[i]]);
+        }
+        return nearest;
+    }
+
+    /**
+     * @see #findNearest(double, double, int)
+     */
+    public List<Location> findNearest(Location location, int count) {
+        return findNearest(location.getLatitude(), location.getLongitude(), count);
+    }
+
+    /**
+     * @param latitude of the query point
+     * @param longitude of the query point
+     * @param radiusMeters great-circle distance
+     * @return never null, every location within the radius, in no particular order
+     */
+    public List<Location> findWithinRadius(double latitude, double longitude, double radiusMeters) {
+        List<Location> found = new ArrayList<>();
+        if (radiusMeters < 0.0 || locations.length == 0) {
+            return found;
+        }
+        double[] query = new double[DIMENSIONS];
+        setCoordinates(query, 0, latitude, longitude);
+        // The chord of an arc of angle a on a sphere of diameter 1 is sin(a / 2).
+        double angle = Math.min(Math.PI, radiusMeters / HaversineDrivingTimeCalculator.EARTH_RADIUS_IN_M);
+        double chord = Math.sin(angle / 2.0);
+        findWithinRadius(0, locations.length, 0, query, chord * chord, found);
+        return found;
+    }
+
+    /**
+     * @param southWestCorner never null
+     * @param northEastCorner never null, west of {@code southWestCorner} if the box crosses the antimeridian
+     * @return never null, every location inside the box, borders included, in no particular order
+     */
+    public List<Location> findWithinBounds(Location southWestCorner, Location northEastCorner) {
+        double south = southWestCorner.getLatitude();
+        double north = northEastCorner.getLatitude();
+        double west = southWestCorner.getLongitude();
+        double east = northEastCorner.getLongitude();
+        if (south > north || locations.length == 0) {
+            return new ArrayList<>();
+        }
+        double longitudeSpan = east >= west ? east - west : east + 360.0 - west;
+        // Search the cap around the box center that holds the whole box, then keep what is inside the box.
+        double centerLatitude = (south + north) / 2.0;
+        double centerLongitude = west + longitudeSpan / 2.0;
+        double[] center = new double[DIMENSIONS];
+        setCoordinates(center, 0, centerLatitude, centerLongitude);
+        double[] corner = new double[DIMENSIONS];
+        double maxChordSquared = 0.0;
+        for (double latitude : new double[] { south, centerLatitude, north }) {
+            for (double longitude : new double[] { west, west + longitudeSpan }) {
+                setCoordinates(corner, 0, latitude, longitude);
+                maxChordSquared = Math.max(maxChordSquared, distanceSquared(center, 0, corner, 0));
+            }
+        }
+        if (longitudeSpan > 180.0 || south <= -89.0 || north >= 89.0) {
+            maxChordSquared = 1.0; // The cap is not worth computing: search the whole sphere.
+        }
+        List<Location> candidates = new ArrayList<>();
+        findWithinRadius(0, locations.length, 0, center, maxChordSquared * (1.0 + 1e-9), candidates);
+        List<Location> found = new ArrayList<>();
+        for (Location location : candidates) {
+            double latitude = location.getLatitude();
+            double longitudeOffset = location.getLongitude() - west;
+            if (longitudeOffset < 0.0) {
+                longitudeOffset += 360.0;
+            }
+            if (latitude >= south && latitude <= north && longitudeOffset <= longitudeSpan) {
+                found.add(location);
+            }
+        }
+        return found;
+    }
+
+    private void build(int start, int end, int depth) {
+        if (end - start <= 1) {
+            return;
+        }
+        int node = (start + end) >>> 1;
+        select(start, end - 1, node, depth % DIMENSIONS);
+        build(start, node, depth + 1);
+        build(node + 1, end, depth + 1);
+    }
+
+    /**
+     * Quickselect: afterwards position {@code k} holds the location it would hold if {@code [left, right]}
+     * were sorted on {@code axis}, with no larger value before it and no smaller value after it.
+     */
+    private void select(int left, int right, int k, int axis) {
+        while (left < right) {
+            double pivot = coordinates[((left + right) >>> 1) * DIMENSIONS + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinates[i * DIMENSIONS + axis] < pivot) {
+                    i++;
+                }
+                while (coordinates[j * DIMENSIONS + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        Location location = locations[i];
+        locations[i] = locations[j];
+        locations[j] = location;
+        for (int axis = 0; axis < DIMENSIONS; axis++) {
+            double coordinate = coordinates[i * DIMENSIONS + axis];
+            coordinates[i * DIMENSIONS + axis] = coordinates[j * DIMENSIONS + axis];
+            coordinates[j * DIMENSIONS + axis] = coordinate;
+        }
+    }
+
+    private void findNearest(int start, int end, int depth, double[] query, NearestCollector collector) {
+        if (start >= end) {
+            return;
+        }
+        int node = (start + end) >>> 1;
+        collector.offer(node, distanceSquared(coordinates, node * DIMENSIONS, query, 0));
+        double offset = query[depth % DIMENSIONS] - coordinates[node * DIMENSIONS + depth % DIMENSIONS];
+        // Search the side of the query point first, the other side only if it can still hold a closer location.
+        if (offset < 0.0) {
+            findNearest(start, node, depth + 1, query, collector);
+            if (offset * offset < collector.maxDistanceSquared()) {
+                findNearest(node + 1, end, depth + 1, query, collector);
+            }
+        } else {
+            findNearest(node + 1, end, depth + 1, query, collector);
+            if (offset * offset < collector.maxDistanceSquared()) {
+                findNearest(start, node, depth + 1, query, collector);
+            }
+        }
+    }
+
+    private void findWithinRadius(int start, int end, int depth, double[] query, double maxDistanceSquared,
+            List<Location> found) {
+        if (start >= end) {
+            return;
+        }
+        int node = (start + end) >>> 1;
+        if (distanceSquared(coordinates, node * DIMENSIONS, query, 0) <= maxDistanceSquared) {
+            found.add(locations[node]);
+        }
+        double offset = query[depth % DIMENSIONS] - coordinates[node * DIMENSIONS + depth % DIMENSIONS];
+        if (offset <= 0.0 || offset * offset <= maxDistanceSquared) {
+            findWithinRadius(start, node, depth + 1, query, maxDistanceSquared, found);
+        }
+        if (offset >= 0.0 || offset * offset <= maxDistanceSquared) {
+            findWithinRadius(node + 1, end, depth + 1, query, maxDistanceSquared, found);
+        }
+    }
+
+    /**
+     * Same normalization as {@link HaversineDrivingTimeCalculator}: a sphere of diameter 1.
+     */
+    private static void setCoordinates(double[] coordinates, int offset, double latitude, double longitude) {
+        double latitudeInRads = Math.toRadians(latitude);
+        double longitudeInRads = Math.toRadians(longitude);
+        coordinates[offset] = 0.5 * Math.cos(latitudeInRads) * Math.sin(longitudeInRads);
+        coordinates[offset + 1] = 0.5 * Math.cos(latitudeInRads) * Math.cos(longitudeInRads);
+        coordinates[offset + 2] = 0.5 * Math.sin(latitudeInRads);
+    }
+
+    private static double distanceSquared(double[] a, int aOffset, double[] b, int bOffset) {
+        double dX = a[aOffset] - b[bOffset];
+        double dY = a[aOffset + 1] - b[bOffset + 1];
+        double dZ = a[aOffset + 2] - b[bOffset + 2];
+        return dX * dX + dY * dY + dZ * dZ;
+    }
+
+    /**
+     * The best nodes so far, sorted by distance. Insertion sort is fastest for the small counts that are queried.
+     */
+    private static final class NearestCollector {
+
+        private final int[] nodes;
+        private final double[] distancesSquared;
+        private int size = 0;
+
+        NearestCollector(int capacity) {
+            this.nodes = new int[capacity];
+            this.distancesSquared = new double[capacity];
+            Arrays.fill(distancesSquared, Double.POSITIVE_INFINITY);
+        }
+
+        double maxDistanceSquared() {
+            return distancesSquared[nodes.length - 1];
+        }
+
+        void offer(int node, double distanceSquared) {
+            if (distanceSquared >= maxDistanceSquared() && size == nodes.length) {
+                return;
+            }
+            int i = Math.min(size, nodes.length - 1);
+            while (i > 0 && distancesSquared[i - 1] > distanceSquared) {
+                nodes[i] = nodes[i - 1];
+                distancesSquared[i] = distancesSquared[i - 1];
+                i--;
+            }
+            nodes[i] = node;
+            distancesSquared[i] = distanceSquared;
+            size = Math.min(size + 1, nodes.length);
+        }
+    }
+}
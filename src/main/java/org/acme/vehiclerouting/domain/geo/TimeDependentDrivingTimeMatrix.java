@@ -0,0 +1,58 @@
+package org.acme.vehiclerouting.domain.geo;
+
+/**
+ * Scales the driving times of a shared base matrix by a {@link TrafficProfile}.
+ * Only the base matrix and one factor per bucket are stored, never a matrix per bucket.
+ * Without a departure time, the free-flow driving time of the base matrix is returned.
+ */
+public final class TimeDependentDrivingTimeMatrix implements DrivingTimeMatrix {
+
+    private final DrivingTimeMatrix baseDrivingTimeMatrix;
+    private final TrafficProfile trafficProfile;
+
+    public TimeDependentDrivingTimeMatrix(DrivingTimeMatrix baseDrivingTimeMatrix, TrafficProfile trafficProfile) {
+        this.baseDrivingTimeMatrix = baseDrivingTimeMatrix;
+        this.trafficProfile = trafficProfile;
+    }
+
+    public DrivingTimeMatrix getBaseDrivingTimeMatrix() {
+        return baseDrivingTimeMatrix;
+    }
+
+    public TrafficProfile getTrafficProfile() {
+        return trafficProfile;
+    }
+
+    @Override
+    public int size() {
+        return baseDrivingTimeMatrix.size();
+    }
+
+    @Override
+    public long getDrivingTime(int fromIndex, int toIndex) {
+        return baseDrivingTimeMatrix.getDrivingTime(fromIndex, toIndex);
+    }
+
+    @Override
+    public long getDrivingTime(int fromIndex, int toIndex, long departureEpochSecond) {
+        return trafficProfile.scale(baseDrivingTimeMatrix.getDrivingTime(fromIndex, toIndex), departureEpochSecond);
+    }
+
+    /**
+     * Traffic slows a trip down, it does not make it longer.
+     */
+    @Override
+    public boolean hasDistances() {
+        return baseDrivingTimeMatrix.hasDistances();
+    }
+
+    @Override
+    public long getDistance(int fromIndex, int toIndex) {
+        return baseDrivingTimeMatrix.getDistance(fromIndex, toIndex);
+    }
+
+    @Override
+    public long getHeapBytes() {
+        return baseDrivingTimeMatrix.getHeapBytes();
+    }
+}
@@ -0,0 +1,97 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * How much slower than free flow traffic is, per time-of-day bucket.
+ * The day is split into equal buckets, one per factor, so the bucket of a departure time is a single division.
+ * Factors are kept in thousandths, so scaling a driving time stays in integer arithmetic.
+ *
+ * @see TimeDependentDrivingTimeMatrix
+ */
+public final class TrafficProfile {
+
+    public static final String FACTORS_CONFIG_PROPERTY = "vehicle-routing.traffic.factors";
+
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private final int bucketSeconds;
+    private final int[] factorsPerMille;
+
+    /**
+     * @param factors never null, one driving time multiplier per bucket, starting at midnight;
+     *        the count must divide a day into whole seconds, for example 24 for hourly buckets
+     */
+    public TrafficProfile(double... factors) {
+        if (factors.length == 0 || SECONDS_PER_DAY % factors.length != 0) {
+            throw new IllegalArgumentException("The traffic factor count (" + factors.length
+                    + ") does not divide a day into buckets of whole seconds.");
+        }
+        this.bucketSeconds = SECONDS_PER_DAY / factors.length;
+        this.factorsPerMille = new int[factors.length];
+        for (int i = 0; i < factors.length; i++) {
+            if (!(factors[i] > 0.0)) {
+                throw new IllegalArgumentException("The traffic factor (" + factors[i] + ") of bucket (" + i
+                        + ") is not positive.");
+            }
+            factorsPerMille[i] = (int) Math.round(factors[i] * 1000.0);
+        }
+    }
+
+    /**
+     * @return empty unless {@value #FACTORS_CONFIG_PROPERTY} is configured
+     */
+    public static Optional<TrafficProfile> configured() {
+        return ConfigProvider.getConfig().getOptionalValues(FACTORS_CONFIG_PROPERTY, Double.class)
+                .map(factors -> new TrafficProfile(factors.stream().mapToDouble(Double::doubleValue).toArray()));
+    }
+
+    public int getBucketCount() {
+        return factorsPerMille.length;
+    }
+
+    /**
+     * @param departureEpochSecond seconds since the epoch, in UTC
+     * @return the bucket the departure time of day falls in
+     */
+    public int getBucket(long departureEpochSecond) {
+        return Math.floorMod(departureEpochSecond, SECONDS_PER_DAY) / bucketSeconds;
+    }
+
+    /**
+     * @param departureTime never null
+     * @return the bucket the departure time of day falls in
+     */
+    public int getBucket(LocalDateTime departureTime) {
+        return getBucket(departureTime.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * @param drivingTime free-flow driving time in seconds
+     * @param departureEpochSecond seconds since the epoch, in UTC
+     * @return the driving time in seconds when leaving at {@code departureEpochSecond}
+     */
+    public long scale(long drivingTime, long departureEpochSecond) {
+        return (drivingTime * factorsPerMille[getBucket(departureEpochSecond)] + 500L) / 1000L;
+    }
+
+    /**
+     * @param drivingTime free-flow driving time in seconds
+     * @param departureTime never null
+     * @return the driving time in seconds when leaving at {@code departureTime}
+     */
+    public long scale(long drivingTime, LocalDateTime departureTime) {
+        return scale(drivingTime, departureTime.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    @Override
+    public String toString() {
+        return "TrafficProfile(bucketSeconds=" + bucketSeconds + ", factorsPerMille="
+                + Arrays.toString(factorsPerMille) + ")";
+    }
+}
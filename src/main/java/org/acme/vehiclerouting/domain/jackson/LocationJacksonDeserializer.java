@@ -0,0 +1,46 @@
+package org.acme.vehiclerouting.domain.jackson;
+
+import java.io.IOException;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.acme.vehiclerouting.domain.LocationInterner;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * Reads a {@link Location} as {@code [latitude, longitude]} (or as an object with those fields)
+ * and interns it for the duration of one deserialization call,
+ * so every occurrence of the same point in a submitted plan becomes the same instance.
+ */
+public class LocationJacksonDeserializer extends StdDeserializer<Location> {
+
+    public LocationJacksonDeserializer() {
+        super(Location.class);
+    }
+
+    @Override
+    public Location deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonNode node = parser.readValueAsTree();
+        double latitude;
+        double longitude;
+        if (node.isArray() && node.size() == 2) {
+            latitude = node.get(0).asDouble();
+            longitude = node.get(1).asDouble();
+        } else if (node.isObject() && node.has("latitude") && node.has("longitude")) {
+            latitude = node.get("latitude").asDouble();
+            longitude = node.get("longitude").asDouble();
+        } else {
+            return context.reportInputMismatch(this, "Expected [latitude, longitude] but got (%s).", node);
+        }
+        // Attributes set during deserialization only live for this call.
+        LocationInterner locationInterner = (LocationInterner) context.getAttribute(LocationInterner.class);
+        if (locationInterner == null) {
+            locationInterner = new LocationInterner();
+            context.setAttribute(LocationInterner.class, locationInterner);
+        }
+        return locationInterner.intern(latitude, longitude);
+    }
+}
@@ -4,8 +4,10 @@ package org.acme.vehiclerouting.rest;
 import org.acme.vehiclerouting.domain.VehicleRoutePlan;
 import org.acme.vehiclerouting.domain.Vehicle;
 import org.acme.vehiclerouting.domain.Visit;
+import org.acme.vehiclerouting.domain.geo.DrivingTimeMatrix;
 import org.acme.vehiclerouting.rest.exception.ErrorInfo;
 import org.acme.vehiclerouting.rest.exception.VehicleRoutingSolverException;
+import org.acme.vehiclerouting.service.DrivingTimeMatrixRegistry;
 import org.acme.vehiclerouting.service.VehicleRoutingDataService;
 import org.acme.vehiclerouting.service.VehicleRoutingService;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -51,6 +53,9 @@ public class VehicleRoutingResource {
     @Inject
     VehicleRoutingService solvingService;
 
+    @Inject
+    DrivingTimeMatrixRegistry drivingTimeMatrixRegistry;
+
     private final SolverManager<VehicleRoutePlan, String> solverManager;
     private final SolutionManager<VehicleRoutePlan, HardSoftLongScore> solutionManager;
 
@@ -111,6 +116,7 @@ public class VehicleRoutingResource {
 
             VehicleRoutePlan problem = dataService.createAmazonDeliveryProblem();
             Map<String, Object> frontendData = convertToFrontendFormat(problem);
+            drivingTimeMatrixRegistry.release(problem.getDrivingTimeMatrix());
 
             return Response.ok(frontendData).build();
 
@@ -122,6 +128,60 @@ public class VehicleRoutingResource {
         }
     }
 
+    @Operation(summary = "Add visits to the current route plan, for real-time order intake. "
+            + "Only the driving times from and to the new visits are calculated.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "The route plan with the new visits."),
+            @APIResponse(responseCode = "409", description = "Incremental driving time matrices are not configured.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorInfo.class)))
+    })
+    @POST
+    @Path("/vehicleRoute/visits")
+    public Response addVisits(List<Visit> visits) {
+        try {
+            return Response.ok(convertToFrontendFormat(solvingService.addVisits(visits))).build();
+        } catch (IllegalStateException e) {
+            throw new VehicleRoutingSolverException(null, Response.Status.CONFLICT, e.getMessage());
+        }
+    }
+
+    @Operation(summary = "Remove a visit from the current route plan, for real-time order intake.")
+    @APIResponses(value = {
+            @APIResponse(responseCode = "200", description = "The route plan without the visit."),
+            @APIResponse(responseCode = "404", description = "No visit found.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorInfo.class))),
+            @APIResponse(responseCode = "409",
+                    description = "A job is still solving the visit, or incremental matrices are not configured.",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                            schema = @Schema(implementation = ErrorInfo.class)))
+    })
+    @DELETE
+    @Path("/vehicleRoute/visits/{visitId}")
+    public Response removeVisit(@PathParam("visitId") String visitId) {
+        try {
+            VehicleRoutePlan problem = solvingService.withProblem(currentProblem -> {
+                // The freed matrix index is reused by the next visit, so no job may still be solving with it.
+                // Under the problem lock, so no job can start solving it meanwhile either.
+                // Finished jobs do not count: their score was explained when they finished.
+                jobIdToJob.forEach((jobId, job) -> {
+                    if (job.routePlan != null && solverManager.getSolverStatus(jobId) != SolverStatus.NOT_SOLVING
+                            && job.routePlan.getVisits().stream().anyMatch(visit -> visit.getId().equals(visitId))) {
+                        throw new VehicleRoutingSolverException(jobId, Response.Status.CONFLICT,
+                                "The visit (" + visitId + ") is still being solved by this job, terminate it first.");
+                    }
+                });
+                return solvingService.removeVisit(visitId)
+                        .orElseThrow(() -> new VehicleRoutingSolverException(null, Response.Status.NOT_FOUND,
+                                "No visit (" + visitId + ") found."));
+            });
+            return Response.ok(convertToFrontendFormat(problem)).build();
+        } catch (IllegalStateException e) {
+            throw new VehicleRoutingSolverException(null, Response.Status.CONFLICT, e.getMessage());
+        }
+    }
+
     /**
      * POST route-plans - Returns frontend-compatible solved data
      */
@@ -130,18 +190,34 @@ public class VehicleRoutingResource {
     @Produces(MediaType.TEXT_PLAIN)
     @Path("/route-plans")
     public String solve() {
-        VehicleRoutePlan problem = solvingService.getProblem();
         String jobId = UUID.randomUUID().toString();
-        jobIdToJob.put(jobId, Job.ofRoutePlan(problem));
-        solverManager.solveBuilder()
-                .withProblemId(jobId)
-                .withProblemFinder(jobId_ -> jobIdToJob.get(jobId).routePlan)
-                .withBestSolutionConsumer(solution -> jobIdToJob.put(jobId, Job.ofRoutePlan(solution)))
-                .withExceptionHandler((jobId_, exception) -> {
-                    jobIdToJob.put(jobId, Job.ofException(exception));
-                    LOGGER.error("Failed solving jobId ({}).", jobId, exception);
-                })
-                .run();
+        // Under the problem lock, so no visit of the job is removed before its solver is scheduled.
+        solvingService.withProblem(problem -> {
+            // The current problem was attached when it was loaded. The job references its matrix while solving,
+            // so a reset of the current problem does not free it and jobs over the same locations share it.
+            // The job solves a copy: visits added to the current problem later do not change it.
+            jobIdToJob.put(jobId, Job.ofRoutePlan(solvingService.copyProblem(),
+                    drivingTimeMatrixRegistry.retain(problem.getDrivingTimeMatrix())));
+            solverManager.solveBuilder()
+                    .withProblemId(jobId)
+                    .withProblemFinder(jobId_ -> jobIdToJob.get(jobId).routePlan)
+                    // Evicted jobs stay evicted.
+                    .withBestSolutionConsumer(solution -> jobIdToJob.computeIfPresent(jobId,
+                            (id, job) -> job.withRoutePlan(solution)))
+                    .withFinalBestSolutionConsumer(solution -> {
+                        // Explained while its visits are still there: they may be removed once the solver is done.
+                        solution.setScoreExplanation(solutionManager.explain(solution).getSummary());
+                        jobIdToJob.computeIfPresent(jobId, (id, job) -> job.withRoutePlan(solution));
+                        releaseDrivingTimeMatrix(jobId);
+                    })
+                    .withExceptionHandler((jobId_, exception) -> {
+                        jobIdToJob.computeIfPresent(jobId, (id, job) -> job.withException(exception));
+                        releaseDrivingTimeMatrix(jobId);
+                        LOGGER.error("Failed solving jobId ({}).", jobId, exception);
+                    })
+                    .run();
+            return jobId;
+        });
         return jobId;
     }
 
@@ -177,9 +253,11 @@ public class VehicleRoutingResource {
             @Parameter(description = "The job ID returned by the POST method.") @PathParam("jobId") String jobId) {
         VehicleRoutePlan routePlan = getRoutePlanAndCheckForExceptions(jobId);
         SolverStatus solverStatus = solverManager.getSolverStatus(jobId);
-        String scoreExplanation = solutionManager.explain(routePlan).getSummary();
+        // A finished job keeps the explanation of its final best solution.
+        if (solverStatus != SolverStatus.NOT_SOLVING || routePlan.getScoreExplanation() == null) {
+            routePlan.setScoreExplanation(solutionManager.explain(routePlan).getSummary());
+        }
         routePlan.setSolverStatus(solverStatus);
-        routePlan.setScoreExplanation(scoreExplanation);
         return routePlan;
     }
 
@@ -218,7 +296,7 @@ public class VehicleRoutingResource {
     }
 
     @Operation(
-            summary = "Terminate solving for a given job ID. Returns the best solution of the route plan so far, as it might still be running or not even started.")
+            summary = "Terminate solving for a given job ID and evict the job. Returns the best solution of the route plan so far, as it might still be running or not even started.")
     @APIResponses(value = {
             @APIResponse(responseCode = "200", description = "The best solution of the route plan so far.",
                     content = @Content(mediaType = MediaType.APPLICATION_JSON,
@@ -236,7 +314,39 @@ public class VehicleRoutingResource {
     public VehicleRoutePlan terminateSolving(
             @Parameter(description = "The job ID returned by the POST method.") @PathParam("jobId") String jobId) {
         solverManager.terminateEarly(jobId);
-        return getRoutePlan(jobId);
+        try {
+            return getRoutePlan(jobId);
+        } finally {
+            evictJob(jobId);
+        }
+    }
+
+    /**
+     * Forget the job and release its driving time matrix, unless the solver already did.
+     */
+    private void evictJob(String jobId) {
+        Job job = jobIdToJob.remove(jobId);
+        if (job != null) {
+            drivingTimeMatrixRegistry.release(job.drivingTimeMatrix);
+        }
+    }
+
+    /**
+     * Release the driving time matrix of a job once its solver is done, so the matrix can be evicted
+     * once no other job uses it. The job keeps its route plan until it is evicted.
+     * Safe to race with {@link #evictJob(String)}: the matrix is released exactly once.
+     */
+    private void releaseDrivingTimeMatrix(String jobId) {
+        while (true) {
+            Job job = jobIdToJob.get(jobId);
+            if (job == null || job.drivingTimeMatrix == null) {
+                return;
+            }
+            if (jobIdToJob.replace(jobId, job, job.withoutDrivingTimeMatrix())) {
+                drivingTimeMatrixRegistry.release(job.drivingTimeMatrix);
+                return;
+            }
+        }
     }
 
     @Operation(summary = "Submit a route plan to analyze its score.")
@@ -346,6 +456,9 @@ public class VehicleRoutingResource {
         if (visit.getMaxEndTime() != null) {
             visitData.put("maxEndTime", visit.getMaxEndTime().toString());
         }
+        if (visit.getSoftMaxEndTime() != null) {
+            visitData.put("softMaxEndTime", visit.getSoftMaxEndTime().toString());
+        }
         if (visit.getArrivalTime() != null) {
             visitData.put("arrivalTime", visit.getArrivalTime().toString());
         }
@@ -430,17 +543,31 @@ public class VehicleRoutingResource {
     @Path("/route-plans/analyze")
     public ScoreAnalysis<HardSoftLongScore> analyze(VehicleRoutePlan problem,
                                                     @QueryParam("fetchPolicy") ScoreAnalysisFetchPolicy fetchPolicy) {
-        return fetchPolicy == null ? solutionManager.analyze(problem) : solutionManager.analyze(problem, fetchPolicy);
+        DrivingTimeMatrix drivingTimeMatrix = drivingTimeMatrixRegistry.attach(problem);
+        try {
+            return fetchPolicy == null ? solutionManager.analyze(problem)
+                    : solutionManager.analyze(problem, fetchPolicy);
+        } finally {
+            drivingTimeMatrixRegistry.release(drivingTimeMatrix);
+        }
     }
 
-    private record Job(VehicleRoutePlan routePlan, Throwable exception) {
+    private record Job(VehicleRoutePlan routePlan, Throwable exception, DrivingTimeMatrix drivingTimeMatrix) {
+
+        static Job ofRoutePlan(VehicleRoutePlan routePlan, DrivingTimeMatrix drivingTimeMatrix) {
+            return new Job(routePlan, null, drivingTimeMatrix);
+        }
+
+        Job withRoutePlan(VehicleRoutePlan routePlan) {
+            return new Job(routePlan, null, drivingTimeMatrix);
+        }
 
-        static Job ofRoutePlan(VehicleRoutePlan routePlan) {
-            return new Job(routePlan, null);
+        Job withException(Throwable exception) {
+            return new Job(null, exception, drivingTimeMatrix);
         }
 
-        static Job ofException(Throwable exception) {
-            return new Job(null, exception);
+        Job withoutDrivingTimeMatrix() {
+            return new Job(routePlan, exception, null);
         }
 
     }
@@ -0,0 +1,299 @@
+package org.acme.vehiclerouting.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.acme.vehiclerouting.domain.Visit;
+import org.acme.vehiclerouting.domain.geo.DrivingTimeCalculator;
+import org.acme.vehiclerouting.domain.geo.DrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.EquirectangularDrivingTimeCalculator;
+import org.acme.vehiclerouting.domain.geo.ExternalDrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.HaversineDrivingTimeCalculator;
+import org.acme.vehiclerouting.domain.geo.HilbertCurve;
+import org.acme.vehiclerouting.domain.geo.IncrementalDrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.RoadNetworkDrivingTimeCalculator;
+import org.acme.vehiclerouting.domain.geo.SharedDrivingTimeMatrixCache;
+import org.acme.vehiclerouting.domain.geo.TimeDependentDrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.TrafficProfile;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+/**
+ * Owns when driving time matrices are built.
+ * Constructing, deserializing or copying a {@link VehicleRoutePlan} does no matrix work;
+ * a plan gets its matrix when it is explicitly {@link #attach(VehicleRoutePlan) attached},
+ * right before it is solved or analyzed.
+ * <p>
+ * Calculated matrices are shared through a {@link SharedDrivingTimeMatrixCache}:
+ * every {@link #attach(VehicleRoutePlan) attach} references the plan's matrix
+ * until it is {@link #release(DrivingTimeMatrix) released}.
+ * With {@value IncrementalDrivingTimeMatrix#CONFIG_PROPERTY}, every plan gets an {@link IncrementalDrivingTimeMatrix}
+ * of its own instead, so orders can be {@link #addVisits added} and {@link #removeVisits removed} in real time.
+ */
+@ApplicationScoped
+public class DrivingTimeMatrixRegistry {
+
+    /**
+     * The road network if one is configured, otherwise straight lines,
+     * approximated for short hops if configured.
+     */
+    private final DrivingTimeCalculator drivingTimeCalculator = RoadNetworkDrivingTimeCalculator.configured()
+            .<DrivingTimeCalculator> map(roadNetworkCalculator -> roadNetworkCalculator)
+            .or(EquirectangularDrivingTimeCalculator::configured)
+            .orElseGet(HaversineDrivingTimeCalculator::getInstance);
+
+    private final Optional<TrafficProfile> trafficProfile = TrafficProfile.configured();
+
+    /**
+     * If configured, replaces the calculator: plans are bound to its rows by id.
+     */
+    private final Optional<ExternalDrivingTimeMatrix> externalDrivingTimeMatrix;
+
+    private final SharedDrivingTimeMatrixCache sharedDrivingTimeMatrixCache;
+
+    /**
+     * If true, calculated matrices are not shared, but grow and shrink with their plan.
+     */
+    private final boolean incremental;
+
+    public DrivingTimeMatrixRegistry() {
+        this(ExternalDrivingTimeMatrix.configured(), SharedDrivingTimeMatrixCache.configured());
+    }
+
+    DrivingTimeMatrixRegistry(Optional<ExternalDrivingTimeMatrix> externalDrivingTimeMatrix) {
+        this(externalDrivingTimeMatrix, SharedDrivingTimeMatrixCache.configured());
+    }
+
+    DrivingTimeMatrixRegistry(Optional<ExternalDrivingTimeMatrix> externalDrivingTimeMatrix,
+            SharedDrivingTimeMatrixCache sharedDrivingTimeMatrixCache) {
+        this(externalDrivingTimeMatrix, sharedDrivingTimeMatrixCache, IncrementalDrivingTimeMatrix.isConfigured());
+    }
+
+    DrivingTimeMatrixRegistry(Optional<ExternalDrivingTimeMatrix> externalDrivingTimeMatrix,
+            SharedDrivingTimeMatrixCache sharedDrivingTimeMatrixCache, boolean incremental) {
+        this.externalDrivingTimeMatrix = externalDrivingTimeMatrix;
+        this.sharedDrivingTimeMatrixCache = sharedDrivingTimeMatrixCache;
+        this.incremental = incremental;
+    }
+
+    /**
+     * Order the visits like the matrix indices will be, so visits that are next to each other in the list,
+     * and so often in a route, read nearby matrix rows.
+     * Call it once, when the plan is loaded and before anyone else holds it:
+     * {@link #attach(VehicleRoutePlan) attach} never reorders a plan.
+     *
+     * @param plan never null
+     */
+    public void orderVisits(VehicleRoutePlan plan) {
+        if (plan.getVisits() != null) {
+            plan.setVisits(HilbertCurve.sort(plan.getVisits(), Visit::getLocation));
+        }
+    }
+
+    /**
+     * Make sure every location of the plan belongs to one driving time matrix.
+     * If they already do, for example because the plan was derived from an attached plan
+     * or is a clone of one, that matrix is shared and nothing is calculated.
+     * Otherwise a plan over the same locations as another attached plan gets that plan's matrix.
+     * Either way, the caller {@link #release(DrivingTimeMatrix) releases} the returned matrix when done with the plan.
+     *
+     * @param plan never null
+     * @return null if the plan has no locations, otherwise the matrix now attached to the plan
+     */
+    public DrivingTimeMatrix attach(VehicleRoutePlan plan) {
+        List<Location> locations = plan.getLocations();
+        DrivingTimeMatrix drivingTimeMatrix = findSharedDrivingTimeMatrix(locations);
+        if (drivingTimeMatrix != null) {
+            sharedDrivingTimeMatrixCache.retain(getBaseDrivingTimeMatrix(drivingTimeMatrix));
+        } else {
+            if (externalDrivingTimeMatrix.isPresent()) {
+                bindById(plan, externalDrivingTimeMatrix.get());
+                locations = plan.getLocations();
+            } else if (incremental) {
+                drivingTimeCalculator.initDrivingTimeMaps(locations,
+                        distinctLocations -> IncrementalDrivingTimeMatrix.create(drivingTimeCalculator,
+                                distinctLocations));
+            } else {
+                drivingTimeCalculator.initDrivingTimeMaps(locations,
+                        distinctLocations -> sharedDrivingTimeMatrixCache.acquire(drivingTimeCalculator,
+                                distinctLocations));
+            }
+            drivingTimeMatrix = locations.isEmpty() ? null : locations.get(0).getDrivingTimeMatrix();
+            if (drivingTimeMatrix != null && trafficProfile.isPresent()) {
+                drivingTimeMatrix = new TimeDependentDrivingTimeMatrix(drivingTimeMatrix, trafficProfile.get());
+                for (Location location : locations) {
+                    location.setDrivingTimeMatrix(drivingTimeMatrix, location.getMatrixIndex());
+                }
+            }
+        }
+        plan.setDrivingTimeMatrix(drivingTimeMatrix);
+        return drivingTimeMatrix;
+    }
+
+    /**
+     * Reference the matrix of an attached plan once more, for another holder such as a solver job,
+     * without attaching the plan again.
+     *
+     * @param drivingTimeMatrix null if the plan had no locations, otherwise as returned by {@code attach}
+     * @return the given matrix, to {@link #release(DrivingTimeMatrix) release} once done with it
+     */
+    public DrivingTimeMatrix retain(DrivingTimeMatrix drivingTimeMatrix) {
+        if (drivingTimeMatrix != null) {
+            sharedDrivingTimeMatrixCache.retain(getBaseDrivingTimeMatrix(drivingTimeMatrix));
+        }
+        return drivingTimeMatrix;
+    }
+
+    /**
+     * Drop the reference of one {@link #attach(VehicleRoutePlan) attach} or {@link #retain(DrivingTimeMatrix) retain},
+     * so the matrix can be evicted once no plan references it.
+     *
+     * @param drivingTimeMatrix null if the plan had no locations, otherwise as returned by {@code attach}
+     */
+    public void release(DrivingTimeMatrix drivingTimeMatrix) {
+        if (drivingTimeMatrix != null) {
+            sharedDrivingTimeMatrixCache.release(getBaseDrivingTimeMatrix(drivingTimeMatrix));
+        }
+    }
+
+    /**
+     * Add visits to an attached plan, for real-time order intake.
+     * Only the driving times from and to their locations are calculated.
+     * Solver jobs over the plan may keep looking up driving times meanwhile.
+     *
+     * @param plan never null, attached with {@value IncrementalDrivingTimeMatrix#CONFIG_PROPERTY}
+     * @param visits never null
+     * @throws IllegalStateException if the plan's matrix cannot grow
+     */
+    public void addVisits(VehicleRoutePlan plan, List<Visit> visits) {
+        IncrementalDrivingTimeMatrix drivingTimeMatrix = getIncrementalDrivingTimeMatrix(plan);
+        List<Location> locations = visits.stream().map(Visit::getLocation).toList();
+        drivingTimeMatrix.addLocations(locations);
+        if (plan.getDrivingTimeMatrix() != drivingTimeMatrix) {
+            // Behind the same traffic wrapper as the locations attached with the plan.
+            for (Location location : locations) {
+                location.setDrivingTimeMatrix(plan.getDrivingTimeMatrix(), location.getMatrixIndex());
+            }
+        }
+        List<Visit> planVisits = new ArrayList<>(plan.getVisits());
+        planVisits.addAll(visits);
+        plan.setVisits(planVisits);
+    }
+
+    /**
+     * Remove visits from an attached plan and free the matrix indices of locations no other visit or vehicle uses.
+     * Freed indices are reused by later additions,
+     * so no solver job may still be solving a plan with these visits.
+     *
+     * @param plan never null, attached with {@value IncrementalDrivingTimeMatrix#CONFIG_PROPERTY}
+     * @param visits never null, visits of the plan
+     * @throws IllegalStateException if the plan's matrix cannot shrink
+     */
+    public void removeVisits(VehicleRoutePlan plan, Collection<Visit> visits) {
+        IncrementalDrivingTimeMatrix drivingTimeMatrix = getIncrementalDrivingTimeMatrix(plan);
+        Set<Visit> removedVisits = Collections.newSetFromMap(new IdentityHashMap<>(visits.size()));
+        removedVisits.addAll(visits);
+        for (Vehicle vehicle : plan.getVehicles()) {
+            if (vehicle.getVisits() != null) {
+                vehicle.getVisits().removeIf(removedVisits::contains);
+            }
+        }
+        plan.setVisits(plan.getVisits().stream()
+                .filter(visit -> !removedVisits.contains(visit))
+                .collect(Collectors.toCollection(ArrayList::new)));
+        Set<Location> usedLocations = Collections.newSetFromMap(new IdentityHashMap<>());
+        usedLocations.addAll(plan.getLocations());
+        drivingTimeMatrix.removeLocations(visits.stream()
+                .map(Visit::getLocation)
+                .filter(location -> !usedLocations.contains(location))
+                .toList());
+    }
+
+    private static IncrementalDrivingTimeMatrix getIncrementalDrivingTimeMatrix(VehicleRoutePlan plan) {
+        if (!(getBaseDrivingTimeMatrix(plan.getDrivingTimeMatrix())
+                instanceof IncrementalDrivingTimeMatrix incrementalDrivingTimeMatrix)) {
+            throw new IllegalStateException("The plan (" + plan.getName()
+                    + ") has no incremental driving time matrix to add or remove visits: configure ("
+                    + IncrementalDrivingTimeMatrix.CONFIG_PROPERTY + ") and attach it.");
+        }
+        return incrementalDrivingTimeMatrix;
+    }
+
+    /**
+     * @return never null, the shared matrix under a per-plan traffic wrapper
+     */
+    private static DrivingTimeMatrix getBaseDrivingTimeMatrix(DrivingTimeMatrix drivingTimeMatrix) {
+        return drivingTimeMatrix instanceof TimeDependentDrivingTimeMatrix timeDependentDrivingTimeMatrix
+                ? timeDependentDrivingTimeMatrix.getBaseDrivingTimeMatrix()
+                : drivingTimeMatrix;
+    }
+
+    /**
+     * Give every vehicle home and visit location the row of the vehicle or visit id.
+     * A location shared by ids with different rows is split into one location per row.
+     *
+     * @throws IllegalArgumentException if the matrix lacks the id of a vehicle or visit
+     */
+    private static void bindById(VehicleRoutePlan plan, ExternalDrivingTimeMatrix drivingTimeMatrix) {
+        Map<Location, Integer> boundIndices = new IdentityHashMap<>();
+        List<String> missingIds = new ArrayList<>();
+        for (Vehicle vehicle : plan.getVehicles()) {
+            vehicle.setHomeLocation(bindById(drivingTimeMatrix, vehicle.getId(), vehicle.getHomeLocation(),
+                    boundIndices, missingIds));
+        }
+        for (Visit visit : plan.getVisits()) {
+            visit.setLocation(bindById(drivingTimeMatrix, visit.getId(), visit.getLocation(), boundIndices,
+                    missingIds));
+        }
+        if (!missingIds.isEmpty()) {
+            throw new IllegalArgumentException("The external driving time matrix (" + drivingTimeMatrix.getFile()
+                    + ") has no row for (" + missingIds.size() + ") vehicle or visit ids, such as "
+                    + missingIds.subList(0, Math.min(10, missingIds.size())) + ".");
+        }
+    }
+
+    private static Location bindById(ExternalDrivingTimeMatrix drivingTimeMatrix, String id, Location location,
+            Map<Location, Integer> boundIndices, List<String> missingIds) {
+        int index = drivingTimeMatrix.indexOf(id);
+        if (index < 0) {
+            missingIds.add(id);
+            return location;
+        }
+        Integer boundIndex = boundIndices.putIfAbsent(location, index);
+        if (boundIndex != null && boundIndex != index) {
+            location = new Location(location.getLatitude(), location.getLongitude());
+            boundIndices.put(location, index);
+        }
+        location.setDrivingTimeMatrix(drivingTimeMatrix, index);
+        return location;
+    }
+
+    /**
+     * @return null unless every location belongs to the same matrix
+     */
+    private static DrivingTimeMatrix findSharedDrivingTimeMatrix(List<Location> locations) {
+        if (locations.isEmpty()) {
+            return null;
+        }
+        DrivingTimeMatrix drivingTimeMatrix = locations.get(0).getDrivingTimeMatrix();
+        if (drivingTimeMatrix == null) {
+            return null;
+        }
+        for (Location location : locations) {
+            if (location.getDrivingTimeMatrix() != drivingTimeMatrix) {
+                return null;
+            }
+        }
+        return drivingTimeMatrix;
+    }
+}
@@ -2,14 +2,19 @@
 package org.acme.vehiclerouting.service;
 
 import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.acme.vehiclerouting.domain.Visit;
 
 import ai.timefold.solver.core.api.solver.SolverManager;
 import ai.timefold.solver.core.api.solver.SolverJob;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @ApplicationScoped
 public class VehicleRoutingService {
@@ -20,15 +25,48 @@ public class VehicleRoutingService {
     @Inject
     VehicleRoutingDataService dataService;
 
+    @Inject
+    DrivingTimeMatrixRegistry drivingTimeMatrixRegistry;
+
+    // Guarded by this: read, replaced and changed only under the lock of the synchronized methods.
     private VehicleRoutePlan currentProblem;
     private SolverJob<VehicleRoutePlan, UUID> currentSolverJob;
 
-    public VehicleRoutePlan getProblem() {
+    public synchronized VehicleRoutePlan getProblem() {
     if (currentProblem == null) {
         currentProblem = dataService.createSafeProblem();
     }
     return currentProblem;
 }
+
+    /**
+     * Run {@code action} on the current problem under the lock that guards its changes:
+     * adding visits, removing visits and resetting wait until it is done.
+     */
+    public synchronized <T> T withProblem(Function<VehicleRoutePlan, T> action) {
+        return action.apply(getProblem());
+    }
+
+    /**
+     * A plan over the same vehicles and visits as the current problem, with visit and vehicle lists of its own,
+     * so visits added to the current problem later do not change it.
+     * Removing a visit still takes it off its vehicle: only remove visits no job is solving.
+     * Shares the driving time matrix, which the caller must retain.
+     */
+    public synchronized VehicleRoutePlan copyProblem() {
+        VehicleRoutePlan problem = getProblem();
+        VehicleRoutePlan copy = new VehicleRoutePlan(new ArrayList<>(problem.getVisits()),
+                new ArrayList<>(problem.getVehicles()));
+        copy.setName(problem.getName());
+        copy.setSouthWestCorner(problem.getSouthWestCorner());
+        copy.setNorthEastCorner(problem.getNorthEastCorner());
+        copy.setStartDateTime(problem.getStartDateTime());
+        copy.setEndDateTime(problem.getEndDateTime());
+        copy.setScore(problem.getScore());
+        copy.setDrivingTimeMatrix(problem.getDrivingTimeMatrix());
+        return copy;
+    }
+
     public CompletableFuture<VehicleRoutePlan> solveAsync(VehicleRoutePlan problem) {
         UUID problemId = UUID.randomUUID();
         stopSolving();
@@ -56,10 +94,42 @@ public class VehicleRoutingService {
     }
 
     /**
-     * Reset problem data to force reload
+     * Add visits to the current problem, for real-time order intake.
+     *
+     * @throws IllegalStateException unless incremental driving time matrices are configured
+     * @see DrivingTimeMatrixRegistry#addVisits(VehicleRoutePlan, List)
+     */
+    public synchronized VehicleRoutePlan addVisits(List<Visit> visits) {
+        VehicleRoutePlan problem = getProblem();
+        drivingTimeMatrixRegistry.addVisits(problem, visits);
+        return problem;
+    }
+
+    /**
+     * Remove a visit from the current problem.
+     *
+     * @return empty if the current problem has no visit with that id
+     * @throws IllegalStateException unless incremental driving time matrices are configured
+     * @see DrivingTimeMatrixRegistry#removeVisits(VehicleRoutePlan, java.util.Collection)
      */
-    public void resetProblem() {
-        currentProblem = null;
+    public synchronized Optional<VehicleRoutePlan> removeVisit(String visitId) {
+        VehicleRoutePlan problem = getProblem();
+        Optional<Visit> visit = problem.getVisits().stream()
+                .filter(candidate -> candidate.getId().equals(visitId))
+                .findFirst();
+        visit.ifPresent(removedVisit -> drivingTimeMatrixRegistry.removeVisits(problem, List.of(removedVisit)));
+        return visit.map(removedVisit -> problem);
+    }
+
+    /**
+     * Reset problem data to force reload.
+     * Releases the driving time matrix the current problem was loaded with; jobs still solving it keep their own.
+     */
+    public synchronized void resetProblem() {
+        if (currentProblem != null) {
+            drivingTimeMatrixRegistry.release(currentProblem.getDrivingTimeMatrix());
+            currentProblem = null;
+        }
     }
 
     // /**
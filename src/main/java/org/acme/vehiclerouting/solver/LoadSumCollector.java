@@ -0,0 +1,84 @@
+package org.acme.vehiclerouting.solver;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import ai.timefold.solver.core.api.score.stream.uni.UniConstraintCollector;
+
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.Visit;
+
+/**
+ * Sums the {@link Visit#getLoads() loads} of visits per dimension into one {@code long[]}.
+ * Adding or removing a visit only touches its own dimensions, so a move costs {@code O(dimensions)},
+ * whatever the number of visits on the route.
+ */
+final class LoadSumCollector implements UniConstraintCollector<Visit, LoadSumCollector.LoadSum, long[]> {
+
+    private static final LoadSumCollector INSTANCE = new LoadSumCollector();
+
+    private LoadSumCollector() {
+    }
+
+    static LoadSumCollector sum() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param vehicle never null
+     * @param load never null, as summed by this collector
+     * @return total overload over all dimensions, 0 if the vehicle has no {@link Vehicle#getCapacities() capacities}
+     */
+    static long getExcessLoad(Vehicle vehicle, long[] load) {
+        int[] capacities = vehicle.getCapacities();
+        if (capacities == null) {
+            return 0L;
+        }
+        long excessLoad = 0L;
+        for (int i = 0; i < Math.min(capacities.length, load.length); i++) {
+            excessLoad += Math.max(0L, load[i] - capacities[i]);
+        }
+        return excessLoad;
+    }
+
+    @Override
+    public Supplier<LoadSum> supplier() {
+        return LoadSum::new;
+    }
+
+    @Override
+    public BiFunction<LoadSum, Visit, Runnable> accumulator() {
+        return (loadSum, visit) -> {
+            int[] loads = visit.getLoads();
+            loadSum.add(loads, 1);
+            return () -> loadSum.add(loads, -1);
+        };
+    }
+
+    /**
+     * Copies, so every change reaches the constraint as a new result.
+     */
+    @Override
+    public Function<LoadSum, long[]> finisher() {
+        return loadSum -> Arrays.copyOf(loadSum.totals, loadSum.totals.length);
+    }
+
+    /**
+     * Grows to the widest loads it has seen.
+     */
+    static final class LoadSum {
+
+        private long[] totals = new long[0];
+
+        void add(int[] loads, int sign) {
+            if (loads.length > totals.length) {
+                totals = Arrays.copyOf(totals, loads.length);
+            }
+            for (int i = 0; i < loads.length; i++) {
+                totals[i] += sign * (long) loads[i];
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.acme.vehiclerouting.solver;
 
 import ai.timefold.solver.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
 import ai.timefold.solver.core.api.score.stream.Constraint;
+import ai.timefold.solver.core.api.score.stream.ConstraintCollectors;
 import ai.timefold.solver.core.api.score.stream.ConstraintFactory;
 import ai.timefold.solver.core.api.score.stream.ConstraintProvider;
 import org.acme.vehiclerouting.domain.Vehicle;
@@ -12,15 +13,28 @@ public class VehicleRoutingConstraintProvider implements ConstraintProvider {
 
     public static final String MINIMIZE_TRAVEL_TIME = "minimizeTravelTime";
     public static final String VEHICLE_CAPACITY = "vehicleCapacity";
+    public static final String VEHICLE_CAPACITY_PER_DIMENSION = "vehicleCapacityPerDimension";
+    public static final String SERVICE_FINISHED_AFTER_MAX_END_TIME = "serviceFinishedAfterMaxEndTime";
+    public static final String SERVICE_FINISHED_AFTER_SOFT_MAX_END_TIME = "serviceFinishedAfterSoftMaxEndTime";
+    public static final String MINIMIZE_VEHICLES_USED = "Minimize vehicles used";
+    public static final String MINIMIZE_UNASSIGNED_VISITS = "Minimize unassigned visits";
+
+    /**
+     * Soft score per minute of lateness past a soft max end time: as much as a minute of driving.
+     */
+    static final long SOFT_DELAY_MINUTE_WEIGHT = 60L;
 
 
     @Override
     public Constraint[] defineConstraints(ConstraintFactory constraintFactory) {
         return new Constraint[] {
             vehicleCapacity(constraintFactory),
+            vehicleCapacityPerDimension(constraintFactory),
+            serviceFinishedAfterMaxEndTime(constraintFactory),
             minimizeTotalVehicles(constraintFactory),
             minimizeUnassignedVisits(constraintFactory),
-            minimizeTravelTime(constraintFactory)
+            minimizeTravelTime(constraintFactory),
+            serviceFinishedAfterSoftMaxEndTime(constraintFactory)
         };
     }
 
@@ -30,7 +44,7 @@ public class VehicleRoutingConstraintProvider implements ConstraintProvider {
         return constraintFactory.forEach(Vehicle.class)
             .filter(vehicle -> vehicle.getVisits() != null && !vehicle.getVisits().isEmpty())
             .penalize(HardSoftLongScore.ONE_SOFT, vehicle -> 1)
-            .asConstraint("Minimize vehicles used");
+            .asConstraint(MINIMIZE_VEHICLES_USED);
     }
 
     // SIMPLE: Penalize unassigned visits
@@ -38,21 +52,70 @@ public class VehicleRoutingConstraintProvider implements ConstraintProvider {
         return constraintFactory.forEach(Visit.class)
             .filter(visit -> visit.getVehicle() == null)
             .penalize(HardSoftLongScore.of(0, 1000), visit -> 1)
-            .asConstraint("Minimize unassigned visits");
+            .asConstraint(MINIMIZE_UNASSIGNED_VISITS);
     }
 
+    /**
+     * Sums demand per vehicle as visits come and go, so a move only adds or subtracts the demand of the visits
+     * it moved, instead of summing every route it touches.
+     */
     protected Constraint vehicleCapacity(ConstraintFactory factory) {
-        return factory.forEach(Vehicle.class)
-                .filter(vehicle -> vehicle.getTotalDemand() > vehicle.getCapacity())
+        return factory.forEach(Visit.class)
+                .filter(visit -> visit.getVehicle() != null)
+                .groupBy(Visit::getVehicle, ConstraintCollectors.sumLong(Visit::getDemand))
+                .filter((vehicle, totalDemand) -> totalDemand > vehicle.getCapacity())
                 .penalizeLong(HardSoftLongScore.ONE_HARD,
-                        vehicle -> vehicle.getTotalDemand() - vehicle.getCapacity())
+                        (vehicle, totalDemand) -> totalDemand - vehicle.getCapacity())
                 .asConstraint(VEHICLE_CAPACITY);
     }
 
+    /**
+     * As {@link #vehicleCapacity(ConstraintFactory)}, per load dimension.
+     * Visits without {@link Visit#getLoads() loads} never reach the grouping, so this costs nothing without them.
+     */
+    protected Constraint vehicleCapacityPerDimension(ConstraintFactory factory) {
+        return factory.forEach(Visit.class)
+                .filter(visit -> visit.getVehicle() != null && visit.getLoads() != null)
+                .groupBy(Visit::getVehicle, LoadSumCollector.sum())
+                .filter((vehicle, load) -> LoadSumCollector.getExcessLoad(vehicle, load) > 0L)
+                .penalizeLong(HardSoftLongScore.ONE_HARD, LoadSumCollector::getExcessLoad)
+                .asConstraint(VEHICLE_CAPACITY_PER_DIMENSION);
+    }
+
+    /**
+     * Scored per visit rather than per vehicle, so a move only recalculates the legs it changed,
+     * instead of walking every route it touches.
+     * Sums up to {@link Vehicle#getTotalDrivingTimeSeconds()} over all vehicles.
+     */
     protected Constraint minimizeTravelTime(ConstraintFactory factory) {
-        return factory.forEach(Vehicle.class)
+        return factory.forEach(Visit.class)
+                .filter(visit -> visit.getVehicle() != null)
                 .penalizeLong(HardSoftLongScore.ONE_SOFT,
-                        Vehicle::getTotalDrivingTimeSeconds)
+                        Visit::getLegDrivingTimeSeconds)
                 .asConstraint(MINIMIZE_TRAVEL_TIME);
     }
-}
\ No newline at end of file
+
+    /**
+     * Hard side of the time window: every started minute a service finishes after its max end time.
+     * Reads the stored departure of each visit on its own, so it costs as little per move as the capacity.
+     */
+    protected Constraint serviceFinishedAfterMaxEndTime(ConstraintFactory factory) {
+        return factory.forEach(Visit.class)
+                .filter(Visit::isServiceFinishedAfterMaxEndTime)
+                .penalizeLong(HardSoftLongScore.ONE_HARD,
+                        Visit::getServiceFinishedDelayInMinutes)
+                .asConstraint(SERVICE_FINISHED_AFTER_MAX_END_TIME);
+    }
+
+    /**
+     * Soft side of the time window: every started minute a service finishes after its soft max end time,
+     * weighed like a minute of driving. The hard max end time still applies on top.
+     */
+    protected Constraint serviceFinishedAfterSoftMaxEndTime(ConstraintFactory factory) {
+        return factory.forEach(Visit.class)
+                .filter(Visit::isServiceFinishedAfterSoftMaxEndTime)
+                .penalizeLong(HardSoftLongScore.ofSoft(SOFT_DELAY_MINUTE_WEIGHT),
+                        Visit::getServiceFinishedSoftDelayInMinutes)
+                .asConstraint(SERVICE_FINISHED_AFTER_SOFT_MAX_END_TIME);
+    }
+}
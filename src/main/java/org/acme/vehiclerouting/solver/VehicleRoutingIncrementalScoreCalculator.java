@@ -0,0 +1,343 @@
+package org.acme.vehiclerouting.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import ai.timefold.solver.core.api.score.calculator.ConstraintMatchAwareIncrementalScoreCalculator;
+import ai.timefold.solver.core.api.score.constraint.ConstraintMatchTotal;
+import ai.timefold.solver.core.api.score.constraint.ConstraintRef;
+import ai.timefold.solver.core.api.score.constraint.Indictment;
+import ai.timefold.solver.core.api.score.stream.DefaultConstraintJustification;
+import ai.timefold.solver.core.impl.score.constraint.DefaultConstraintMatchTotal;
+
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.acme.vehiclerouting.domain.Visit;
+
+/**
+ * Scores like {@link VehicleRoutingConstraintProvider}, without constraint streams, for the largest plans.
+ * Keeps running totals: demand and load per vehicle and the number of used vehicles change in the list variable
+ * callbacks, by the visits that came or went.
+ * Travel time and lateness follow the arrival times, which are only up to date once all shadow variables
+ * are, so those callbacks only remember the first position of a route that changed.
+ * {@link #calculateScore()} then rescores each changed route from that position on,
+ * keeping the totals before it in prefix sums.
+ * <p>
+ * Unassigned visits score nothing, as {@code forEach} skips them in the constraint streams too.
+ * Constraint matches, to explain and analyze a score, are found from scratch, under the same constraint names.
+ * Select it with the {@code incremental} profile, see {@code application.properties}.
+ */
+public class VehicleRoutingIncrementalScoreCalculator
+        implements ConstraintMatchAwareIncrementalScoreCalculator<VehicleRoutePlan, HardSoftLongScore> {
+
+    private VehicleRoutePlan workingSolution;
+    private Map<Vehicle, Route> routes;
+    /**
+     * Routes with a changed position, rescored by the next {@link #calculateScore()}.
+     */
+    private List<Route> changedRoutes;
+    private boolean resetNeeded;
+
+    private long capacityHardScore;
+    private long routeHardScore;
+    private long routeSoftScore;
+    private int usedVehicleCount;
+
+    @Override
+    public void resetWorkingSolution(VehicleRoutePlan workingSolution) {
+        this.workingSolution = workingSolution;
+        routes = new IdentityHashMap<>(workingSolution.getVehicles().size() * 2);
+        changedRoutes = new ArrayList<>();
+        resetNeeded = false;
+        capacityHardScore = 0L;
+        routeHardScore = 0L;
+        routeSoftScore = 0L;
+        usedVehicleCount = 0;
+        for (Vehicle vehicle : workingSolution.getVehicles()) {
+            Route route = new Route(vehicle);
+            routes.put(vehicle, route);
+            List<Visit> visits = vehicle.getVisits();
+            insertVisits(route, visits, 0, visits.size());
+            markChanged(route, 0);
+        }
+    }
+
+    @Override
+    public void resetWorkingSolution(VehicleRoutePlan workingSolution, boolean constraintMatchEnabled) {
+        // Constraint matches are only asked for now and then, so they are not kept up to date.
+        resetWorkingSolution(workingSolution);
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // Vehicles and visits only come and go by problem changes: rare enough to start over.
+        resetNeeded = true;
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        resetNeeded = true;
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        // Only shadow variables, which calculateScore() reads once they are all up to date.
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+    }
+
+    @Override
+    public void beforeListVariableElementAssigned(String variableName, Object element) {
+    }
+
+    @Override
+    public void afterListVariableElementAssigned(String variableName, Object element) {
+    }
+
+    @Override
+    public void beforeListVariableElementUnassigned(String variableName, Object element) {
+    }
+
+    @Override
+    public void afterListVariableElementUnassigned(String variableName, Object element) {
+    }
+
+    @Override
+    public void beforeListVariableChanged(Object entity, String variableName, int fromIndex, int toIndex) {
+        if (resetNeeded) {
+            return;
+        }
+        Route route = routes.get((Vehicle) entity);
+        retractVisits(route, route.vehicle.getVisits(), fromIndex, toIndex);
+        markChanged(route, fromIndex);
+    }
+
+    @Override
+    public void afterListVariableChanged(Object entity, String variableName, int fromIndex, int toIndex) {
+        if (resetNeeded) {
+            return;
+        }
+        Route route = routes.get((Vehicle) entity);
+        insertVisits(route, route.vehicle.getVisits(), fromIndex, toIndex);
+        markChanged(route, fromIndex);
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        resetNeeded = true;
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        resetNeeded = true;
+    }
+
+    @Override
+    public HardSoftLongScore calculateScore() {
+        if (resetNeeded) {
+            resetWorkingSolution(workingSolution);
+        }
+        for (Route route : changedRoutes) {
+            routeHardScore -= route.getHardScore();
+            routeSoftScore -= route.getSoftScore();
+            route.rescoreFrom(route.changedIndex);
+            routeHardScore += route.getHardScore();
+            routeSoftScore += route.getSoftScore();
+            route.changedIndex = -1;
+        }
+        changedRoutes.clear();
+        return HardSoftLongScore.of(-capacityHardScore - routeHardScore, -routeSoftScore - usedVehicleCount);
+    }
+
+    /**
+     * Matches the working solution from scratch, like {@link VehicleRoutingConstraintProvider} would,
+     * once its shadow variables are up to date.
+     */
+    @Override
+    public Collection<ConstraintMatchTotal<HardSoftLongScore>> getConstraintMatchTotals() {
+        DefaultConstraintMatchTotal<HardSoftLongScore> vehicleCapacity = createConstraintMatchTotal(
+                VehicleRoutingConstraintProvider.VEHICLE_CAPACITY, HardSoftLongScore.ONE_HARD);
+        DefaultConstraintMatchTotal<HardSoftLongScore> vehicleCapacityPerDimension = createConstraintMatchTotal(
+                VehicleRoutingConstraintProvider.VEHICLE_CAPACITY_PER_DIMENSION, HardSoftLongScore.ONE_HARD);
+        DefaultConstraintMatchTotal<HardSoftLongScore> serviceFinishedAfterMaxEndTime = createConstraintMatchTotal(
+                VehicleRoutingConstraintProvider.SERVICE_FINISHED_AFTER_MAX_END_TIME, HardSoftLongScore.ONE_HARD);
+        DefaultConstraintMatchTotal<HardSoftLongScore> minimizeVehiclesUsed = createConstraintMatchTotal(
+                VehicleRoutingConstraintProvider.MINIMIZE_VEHICLES_USED, HardSoftLongScore.ONE_SOFT);
+        DefaultConstraintMatchTotal<HardSoftLongScore> minimizeUnassignedVisits = createConstraintMatchTotal(
+                VehicleRoutingConstraintProvider.MINIMIZE_UNASSIGNED_VISITS, HardSoftLongScore.ofSoft(1000L));
+        DefaultConstraintMatchTotal<HardSoftLongScore> minimizeTravelTime = createConstraintMatchTotal(
+                VehicleRoutingConstraintProvider.MINIMIZE_TRAVEL_TIME, HardSoftLongScore.ONE_SOFT);
+        DefaultConstraintMatchTotal<HardSoftLongScore> serviceFinishedAfterSoftMaxEndTime = createConstraintMatchTotal(
+                VehicleRoutingConstraintProvider.SERVICE_FINISHED_AFTER_SOFT_MAX_END_TIME,
+                HardSoftLongScore.ofSoft(VehicleRoutingConstraintProvider.SOFT_DELAY_MINUTE_WEIGHT));
+        for (Vehicle vehicle : workingSolution.getVehicles()) {
+            List<Visit> visits = vehicle.getVisits();
+            if (visits.isEmpty()) {
+                continue;
+            }
+            Route route = new Route(vehicle);
+            for (Visit visit : visits) {
+                route.add(visit, 1);
+                addConstraintMatch(minimizeTravelTime, HardSoftLongScore.ofSoft(-visit.getLegDrivingTimeSeconds()),
+                        visit);
+                if (visit.isServiceFinishedAfterMaxEndTime()) {
+                    addConstraintMatch(serviceFinishedAfterMaxEndTime,
+                            HardSoftLongScore.ofHard(-visit.getServiceFinishedDelayInMinutes()), visit);
+                }
+                if (visit.isServiceFinishedAfterSoftMaxEndTime()) {
+                    addConstraintMatch(serviceFinishedAfterSoftMaxEndTime,
+                            HardSoftLongScore.ofSoft(-VehicleRoutingConstraintProvider.SOFT_DELAY_MINUTE_WEIGHT
+                                    * visit.getServiceFinishedSoftDelayInMinutes()), visit);
+                }
+            }
+            if (route.demand > vehicle.getCapacity()) {
+                addConstraintMatch(vehicleCapacity, HardSoftLongScore.ofHard(vehicle.getCapacity() - route.demand),
+                        vehicle);
+            }
+            long excessLoad = LoadSumCollector.getExcessLoad(vehicle, route.load);
+            if (excessLoad > 0L) {
+                addConstraintMatch(vehicleCapacityPerDimension, HardSoftLongScore.ofHard(-excessLoad), vehicle);
+            }
+            addConstraintMatch(minimizeVehiclesUsed, HardSoftLongScore.ofSoft(-1L), vehicle);
+        }
+        return List.of(vehicleCapacity, vehicleCapacityPerDimension, serviceFinishedAfterMaxEndTime,
+                minimizeVehiclesUsed, minimizeUnassignedVisits, minimizeTravelTime, serviceFinishedAfterSoftMaxEndTime);
+    }
+
+    /**
+     * @return null, so the solver indicts the objects of {@link #getConstraintMatchTotals()}
+     */
+    @Override
+    public Map<Object, Indictment<HardSoftLongScore>> getIndictmentMap() {
+        return null;
+    }
+
+    private static DefaultConstraintMatchTotal<HardSoftLongScore> createConstraintMatchTotal(String constraintName,
+            HardSoftLongScore constraintWeight) {
+        // The constraint streams put their constraints in the package of the solution class.
+        return new DefaultConstraintMatchTotal<>(
+                ConstraintRef.of(VehicleRoutePlan.class.getPackageName(), constraintName), constraintWeight);
+    }
+
+    private static void addConstraintMatch(DefaultConstraintMatchTotal<HardSoftLongScore> constraintMatchTotal,
+            HardSoftLongScore score, Object fact) {
+        constraintMatchTotal.addConstraintMatch(DefaultConstraintJustification.of(score, fact), List.of(fact), score);
+    }
+
+    private void insertVisits(Route route, List<Visit> visits, int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return;
+        }
+        capacityHardScore -= route.getExcessLoad();
+        if (route.visitCount == 0) {
+            usedVehicleCount++;
+        }
+        for (int i = fromIndex; i < toIndex; i++) {
+            route.add(visits.get(i), 1);
+        }
+        capacityHardScore += route.getExcessLoad();
+    }
+
+    private void retractVisits(Route route, List<Visit> visits, int fromIndex, int toIndex) {
+        if (fromIndex == toIndex) {
+            return;
+        }
+        capacityHardScore -= route.getExcessLoad();
+        for (int i = fromIndex; i < toIndex; i++) {
+            route.add(visits.get(i), -1);
+        }
+        if (route.visitCount == 0) {
+            usedVehicleCount--;
+        }
+        capacityHardScore += route.getExcessLoad();
+    }
+
+    /**
+     * The visit before {@code fromIndex} is rescored too: it may have become the last one, driving back home.
+     */
+    private void markChanged(Route route, int fromIndex) {
+        int index = Math.max(0, fromIndex - 1);
+        if (route.changedIndex < 0) {
+            route.changedIndex = index;
+            changedRoutes.add(route);
+        } else {
+            route.changedIndex = Math.min(route.changedIndex, index);
+        }
+    }
+
+    private static final class Route {
+
+        private final Vehicle vehicle;
+        private int visitCount = 0;
+        private long demand = 0L;
+        private long[] load = new long[0];
+        /**
+         * Position {@code i} holds the score of the visits before position {@code i}.
+         */
+        private long[] hardPrefix = new long[1];
+        private long[] softPrefix = new long[1];
+        private int scoredCount = 0;
+        private int changedIndex = -1;
+
+        Route(Vehicle vehicle) {
+            this.vehicle = vehicle;
+        }
+
+        void add(Visit visit, int sign) {
+            visitCount += sign;
+            demand += sign * (long) visit.getDemand();
+            int[] loads = visit.getLoads();
+            if (loads != null) {
+                if (loads.length > load.length) {
+                    load = Arrays.copyOf(load, loads.length);
+                }
+                for (int i = 0; i < loads.length; i++) {
+                    load[i] += sign * (long) loads[i];
+                }
+            }
+        }
+
+        /**
+         * @return as penalized by the vehicle capacity constraints
+         */
+        long getExcessLoad() {
+            return Math.max(0L, demand - vehicle.getCapacity()) + LoadSumCollector.getExcessLoad(vehicle, load);
+        }
+
+        /**
+         * Positions before {@code fromIndex} still hold the same visits, with the same times.
+         */
+        void rescoreFrom(int fromIndex) {
+            List<Visit> visits = vehicle.getVisits();
+            int size = visits.size();
+            if (size + 1 > hardPrefix.length) {
+                int capacity = Math.max(size + 1, hardPrefix.length * 2);
+                hardPrefix = Arrays.copyOf(hardPrefix, capacity);
+                softPrefix = Arrays.copyOf(softPrefix, capacity);
+            }
+            for (int i = fromIndex; i < size; i++) {
+                Visit visit = visits.get(i);
+                hardPrefix[i + 1] = hardPrefix[i] + visit.getServiceFinishedDelayInMinutes();
+                softPrefix[i + 1] = softPrefix[i] + visit.getLegDrivingTimeSeconds()
+                        + VehicleRoutingConstraintProvider.SOFT_DELAY_MINUTE_WEIGHT
+                                * visit.getServiceFinishedSoftDelayInMinutes();
+            }
+            scoredCount = size;
+        }
+
+        long getHardScore() {
+            return hardPrefix[scoredCount];
+        }
+
+        long getSoftScore() {
+            return softPrefix[scoredCount];
+        }
+    }
+}
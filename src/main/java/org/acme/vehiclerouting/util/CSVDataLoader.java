@@ -12,15 +12,20 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.acme.vehiclerouting.domain.Location;
+import org.acme.vehiclerouting.domain.LocationInterner;
 import org.acme.vehiclerouting.domain.Vehicle;
 import org.acme.vehiclerouting.domain.VehicleRoutePlan;
 import org.acme.vehiclerouting.domain.Visit;
+import org.acme.vehiclerouting.domain.geo.SpatialIndex;
 
 /**
  * Utility class for loading vehicle routing problems from CSV data.
@@ -88,7 +93,9 @@ public class CSVDataLoader {
      */
     public static CSVLoadResult loadFromCSV(int maxRows, boolean createOptimalVehicles) throws IOException {
         List<Visit> visits = new ArrayList<>();
-        Map<String, Location> depotLocations = new HashMap<>();
+        // Repeated drop points and depots share one Location, and so one driving time matrix index
+        LocationInterner locationInterner = new LocationInterner();
+        Set<Location> depotLocations = new LinkedHashSet<>();
         List<Vehicle> vehicles = new ArrayList<>();
         AtomicLong visitIdSequence = new AtomicLong();
         List<String> errors = new ArrayList<>();
@@ -135,8 +142,7 @@ public class CSVDataLoader {
                     }
 
                     // Store depot locations for vehicle creation
-                    String depotKey = String.format("%.6f,%.6f", storeLat, storeLon);
-                    depotLocations.put(depotKey, new Location(storeLat, storeLon));
+                    depotLocations.add(locationInterner.intern(storeLat, storeLon));
 
                     // Parse date and time
                     LocalDate orderDate;
@@ -151,7 +157,7 @@ public class CSVDataLoader {
                     }
 
                     // Create visit location and time window
-                    Location visitLocation = new Location(dropLat, dropLon);
+                    Location visitLocation = locationInterner.intern(dropLat, dropLon);
                     LocalDateTime serviceWindowStart = LocalDateTime.of(orderDate, pickupTime);
                     LocalDateTime serviceWindowEnd = serviceWindowStart.plusHours(2); // 2-hour window
                     // Create visit
@@ -175,7 +181,7 @@ public class CSVDataLoader {
         }
 
         // Create vehicles based on depot locations
-        vehicles = createVehicles(depotLocations, visits.size(), createOptimalVehicles);
+        vehicles = createVehicles(depotLocations, visits, createOptimalVehicles);
 
         // Calculate map boundaries
         Location southWest = calculateSouthWestCorner(visits, vehicles);
@@ -258,7 +264,7 @@ public class CSVDataLoader {
     /**
      * Create vehicles based on depot locations and problem size.
      */
-    private static List<Vehicle> createVehicles(Map<String, Location> depotLocations, int visitCount, boolean optimize) {
+    private static List<Vehicle> createVehicles(Set<Location> depotLocations, List<Visit> visits, boolean optimize) {
         List<Vehicle> vehicles = new ArrayList<>();
 
         if (depotLocations.isEmpty()) {
@@ -272,13 +278,13 @@ public class CSVDataLoader {
         // Calculate optimal number of vehicles
         int vehicleCount;
         if (optimize) {
-            vehicleCount = Math.max(1, Math.min(depotLocations.size(), (visitCount / 10) + 1));
+            vehicleCount = Math.max(1, Math.min(depotLocations.size(), (visits.size() / 10) + 1));
         } else {
             vehicleCount = Math.min(3, depotLocations.size()); // Fixed number for testing
         }
 
         String[] vehicleTypes = {"motorcycle", "scooter", "van"};
-        List<Location> depots = new ArrayList<>(depotLocations.values());
+        List<Location> depots = rankDepotsByNearbyVisits(depotLocations, visits);
 
         for (int i = 0; i < vehicleCount; i++) {
             Location depot = depots.get(i % depots.size());
@@ -295,6 +301,24 @@ public class CSVDataLoader {
         return vehicles;
     }
 
+    /**
+     * Order depots by how many visits have them as their nearest depot, busiest first,
+     * so that with fewer vehicles than depots the vehicles start where the visits are.
+     */
+    private static List<Location> rankDepotsByNearbyVisits(Set<Location> depotLocations, List<Visit> visits) {
+        SpatialIndex depotIndex = SpatialIndex.of(depotLocations);
+        Map<Location, Integer> nearbyVisitCounts = new HashMap<>();
+        for (Visit visit : visits) {
+            for (Location depot : depotIndex.findNearest(visit.getLocation(), 1)) {
+                nearbyVisitCounts.merge(depot, 1, Integer::sum);
+            }
+        }
+        List<Location> depots = new ArrayList<>(depotLocations);
+        // Stable: depots without a difference keep their order of appearance
+        depots.sort(Comparator.comparingInt((Location depot) -> nearbyVisitCounts.getOrDefault(depot, 0)).reversed());
+        return depots;
+    }
+
     /**
      * Calculate the south-west corner for map boundaries.
      */
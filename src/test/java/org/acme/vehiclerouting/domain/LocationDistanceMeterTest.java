@@ -0,0 +1,26 @@
+package org.acme.vehiclerouting.domain;
+
+import java.util.List;
+
+import org.acme.vehiclerouting.domain.geo.HaversineDrivingTimeCalculator;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LocationDistanceMeterTest {
+
+    @Test
+    void orderByDrivingTimeFromOrigin() {
+        Location depot = new Location(19.0760, 72.8777);
+        Location near = new Location(19.0896, 72.8656);
+        Location far = new Location(18.5289, 73.8732);
+        HaversineDrivingTimeCalculator.getInstance().initDrivingTimeMaps(List.of(depot, near, far));
+        Visit origin = new Visit("1", "origin", depot);
+        LocationDistanceMeter distanceMeter = new LocationDistanceMeter();
+
+        Assertions.assertThat(distanceMeter.getNearbyDistance(origin, new Visit("2", "near", near)))
+                .isEqualTo((double) depot.getDrivingTimeTo(near));
+        Assertions.assertThat(distanceMeter.getNearbyDistance(origin, new Vehicle("3", "car", far)))
+                .isGreaterThan(distanceMeter.getNearbyDistance(origin, new Visit("2", "near", near)));
+        Assertions.assertThat(distanceMeter.getNearbyDistance(origin, new Visit("4", "same", depot))).isEqualTo(0.0);
+    }
+}
@@ -0,0 +1,54 @@
+package org.acme.vehiclerouting.domain;
+
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class LocationInternerTest {
+
+    @Test
+    void intern() {
+        LocationInterner locationInterner = new LocationInterner();
+        Location depot = locationInterner.intern(12.9716, 77.5946);
+
+        Assertions.assertThat(locationInterner.intern(12.9716, 77.5946)).isSameAs(depot);
+        // Equal after rounding to a millionth of a degree.
+        Assertions.assertThat(locationInterner.intern(12.97160004, 77.59459996)).isSameAs(depot);
+        Assertions.assertThat(locationInterner.intern(new Location(12.9716, 77.5946))).isSameAs(depot);
+        Assertions.assertThat(locationInterner.intern(12.9717, 77.5946)).isNotSameAs(depot);
+        Assertions.assertThat(locationInterner.intern(-12.9716, 77.5946)).isNotSameAs(depot);
+        Assertions.assertThat(locationInterner.size()).isEqualTo(3);
+    }
+
+    @Test
+    void equalsOnRoundedCoordinates() {
+        Location location = new Location(19.0896, 72.8656);
+
+        Assertions.assertThat(new Location(19.08960001, 72.8656)).isEqualTo(location);
+        Assertions.assertThat(new Location(19.08960001, 72.8656).hashCode()).isEqualTo(location.hashCode());
+        Assertions.assertThat(new Location(19.0897, 72.8656)).isNotEqualTo(location);
+        Assertions.assertThat(new Location(72.8656, 19.0896)).isNotEqualTo(location);
+    }
+
+    @Test
+    void deserializeInternsPerCall() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = "[[19.0896, 72.8656], [18.5289, 73.8732], [19.0896, 72.8656]]";
+
+        List<Location> locations = objectMapper.readValue(json, new TypeReference<List<Location>>() {
+        });
+        List<Location> otherLocations = objectMapper.readValue(json, new TypeReference<List<Location>>() {
+        });
+
+        Assertions.assertThat(locations.get(2)).isSameAs(locations.get(0));
+        Assertions.assertThat(locations.get(1)).isNotSameAs(locations.get(0));
+        Assertions.assertThat(locations.get(1).getLatitude()).isEqualTo(18.5289);
+        // Separate submissions must not share instances, because each plan gets its own matrix.
+        Assertions.assertThat(otherLocations.get(0)).isNotSameAs(locations.get(0));
+    }
+}
@@ -0,0 +1,70 @@
+package org.acme.vehiclerouting.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class VisitTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 1, 6, 0, 0);
+
+    @Test
+    void epochSeconds() {
+        assertThat(EpochSeconds.of(null)).isEqualTo(EpochSeconds.UNKNOWN);
+        assertThat(EpochSeconds.toLocalDateTime(EpochSeconds.UNKNOWN)).isNull();
+        assertThat(EpochSeconds.toLocalDateTime(EpochSeconds.of(DAY.withHour(9).withSecond(7))))
+                .isEqualTo(DAY.withHour(9).withSecond(7));
+        assertThat(EpochSeconds.of(DAY.plusDays(1)) - EpochSeconds.of(DAY)).isEqualTo(24L * 60L * 60L);
+    }
+
+    @Test
+    void waitForMinStartTime() {
+        Visit visit = new Visit("1", "John", new Location(19.0, 72.8), 1, DAY.withHour(9), DAY.withHour(12),
+                Duration.ofMinutes(20));
+
+        assertThat(visit.getArrivalTime()).isNull();
+        assertThat(visit.getDepartureEpochSecond()).isEqualTo(EpochSeconds.UNKNOWN);
+
+        visit.setArrivalTime(DAY.withHour(8).withMinute(30));
+        assertThat(visit.getStartServiceTime()).isEqualTo(DAY.withHour(9));
+        assertThat(visit.getDepartureTime()).isEqualTo(DAY.withHour(9).withMinute(20));
+        assertThat(visit.getDepartureEpochSecond()).isEqualTo(EpochSeconds.of(DAY.withHour(9).withMinute(20)));
+        assertThat(visit.getWaitingSeconds()).isEqualTo(30L * 60L);
+        assertThat(visit.isServiceFinishedAfterMaxEndTime()).isFalse();
+        assertThat(visit.getServiceFinishedDelayInMinutes()).isEqualTo(0L);
+
+        visit.setArrivalTime(DAY.withHour(11).withMinute(45).withSecond(1));
+        assertThat(visit.getStartServiceTime()).isEqualTo(DAY.withHour(11).withMinute(45).withSecond(1));
+        assertThat(visit.getWaitingSeconds()).isEqualTo(0L);
+        assertThat(visit.isServiceFinishedAfterMaxEndTime()).isTrue();
+        assertThat(visit.getServiceFinishedDelayInMinutes()).isEqualTo(6L);
+    }
+
+    @Test
+    void timesAtJsonBoundary() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Visit visit = new Visit("1", "John", new Location(19.0, 72.8), 1, DAY.withHour(9), DAY.withHour(12),
+                Duration.ofMinutes(20));
+        visit.setArrivalTime(DAY.withHour(9).withMinute(10));
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(visit));
+        assertThat(json.get("arrivalTime").asText()).isEqualTo("2025-01-06T09:10:00");
+        assertThat(json.get("startServiceTime").asText()).isEqualTo("2025-01-06T09:10:00");
+        assertThat(json.get("departureTime").asText()).isEqualTo("2025-01-06T09:30:00");
+        assertThat(json.has("arrivalEpochSecond")).isFalse();
+
+        Visit read = objectMapper.readValue("{\"id\":\"2\",\"minStartTime\":\"2025-01-06T09:00:00\","
+                + "\"maxEndTime\":\"2025-01-06T12:00:00\",\"serviceDuration\":600}", Visit.class);
+        assertThat(read.getMinStartEpochSecond()).isEqualTo(EpochSeconds.of(DAY.withHour(9)));
+        assertThat(read.getMaxEndEpochSecond()).isEqualTo(EpochSeconds.of(DAY.withHour(12)));
+        assertThat(read.getServiceSeconds()).isEqualTo(600L);
+    }
+}
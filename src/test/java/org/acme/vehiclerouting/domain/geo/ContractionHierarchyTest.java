@@ -0,0 +1,147 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ContractionHierarchyTest {
+
+    private static final int GRID_SIZE = 20;
+    private static final ContractionHierarchy.Source SOURCE = new ContractionHierarchy.Source(42L, 7L, 1024L, 0L);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shortestPathsMatchDijkstra() throws IOException {
+        RoadNetwork roadNetwork = createGridNetwork(new Random(37));
+        ContractionHierarchy contractionHierarchy = writeAndOpen(roadNetwork);
+
+        assertThat(contractionHierarchy.nodeCount()).isEqualTo(GRID_SIZE * GRID_SIZE);
+        Random random = new Random(11);
+        for (int i = 0; i < 50; i++) {
+            int source = random.nextInt(roadNetwork.nodeCount());
+            int[] expectedDistances = dijkstra(roadNetwork, source);
+            Map<Integer, Integer> forward = new HashMap<>();
+            contractionHierarchy.searchUpward(source, true, forward::put);
+            for (int j = 0; j < 20; j++) {
+                int target = random.nextInt(roadNetwork.nodeCount());
+                int[] distance = { ContractionHierarchy.UNREACHABLE };
+                contractionHierarchy.searchUpward(target, false, (node, backwardDistance) -> {
+                    Integer forwardDistance = forward.get(node);
+                    if (forwardDistance != null) {
+                        distance[0] = Math.min(distance[0],
+                                ContractionHierarchy.saturatedAdd(forwardDistance, backwardDistance));
+                    }
+                });
+                assertThat(distance[0]).isEqualTo(expectedDistances[target]);
+            }
+        }
+    }
+
+    @Test
+    void findNearestNode() throws IOException {
+        ContractionHierarchy contractionHierarchy = writeAndOpen(createGridNetwork(new Random(37)));
+
+        int node = contractionHierarchy.findNearestNode(19.0501, 72.8499, 5);
+        assertThat(contractionHierarchy.latitude(node)).isEqualTo(19.05);
+        assertThat(contractionHierarchy.longitude(node)).isEqualTo(72.85);
+        // More than 5 cells of 0.01 degrees away from the grid.
+        assertThat(contractionHierarchy.findNearestNode(19.5, 72.8, 5)).isEqualTo(-1);
+    }
+
+    @Test
+    void openRejectsOtherSource() throws IOException {
+        Path file = directory.resolve("network.ch");
+        ContractionHierarchy.write(createGridNetwork(new Random(37)), file, SOURCE);
+
+        assertThatThrownBy(() -> ContractionHierarchy.open(file, SOURCE.fingerprint() + 1))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("another road network");
+    }
+
+    @Test
+    void updateSourceKeepsGraph() throws IOException {
+        Path file = directory.resolve("network.ch");
+        ContractionHierarchy.write(createGridNetwork(new Random(37)), file, SOURCE);
+        ContractionHierarchy.Source touched = new ContractionHierarchy.Source(SOURCE.fingerprint(),
+                SOURCE.contentHash(), SOURCE.size(), 60_000L);
+
+        ContractionHierarchy.updateSource(file, touched);
+
+        assertThat(ContractionHierarchy.readSource(file)).isEqualTo(touched);
+        assertThat(ContractionHierarchy.open(file, SOURCE.fingerprint()).nodeCount())
+                .isEqualTo(GRID_SIZE * GRID_SIZE);
+    }
+
+    private ContractionHierarchy writeAndOpen(RoadNetwork roadNetwork) throws IOException {
+        Path file = directory.resolve("network.ch");
+        ContractionHierarchy.write(roadNetwork, file, SOURCE);
+        return ContractionHierarchy.open(file, SOURCE.fingerprint());
+    }
+
+    /**
+     * A grid of streets 0.005 degrees apart, with random travel times and some one-way streets.
+     */
+    private static RoadNetwork createGridNetwork(Random random) {
+        RoadNetwork.Builder builder = new RoadNetwork.Builder();
+        int[][] nodes = new int[GRID_SIZE][GRID_SIZE];
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int column = 0; column < GRID_SIZE; column++) {
+                nodes[row][column] = builder.addNode(190_000_000 + row * 50_000, 728_000_000 + column * 50_000);
+            }
+        }
+        for (int row = 0; row < GRID_SIZE; row++) {
+            for (int column = 0; column < GRID_SIZE; column++) {
+                if (column + 1 < GRID_SIZE) {
+                    addStreet(builder, random, nodes[row][column], nodes[row][column + 1]);
+                }
+                if (row + 1 < GRID_SIZE) {
+                    addStreet(builder, random, nodes[row][column], nodes[row + 1][column]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static void addStreet(RoadNetwork.Builder builder, Random random, int a, int b) {
+        int weightMillis = 10_000 + random.nextInt(60_000);
+        builder.addEdge(a, b, weightMillis);
+        if (random.nextInt(5) != 0) {
+            builder.addEdge(b, a, weightMillis);
+        }
+    }
+
+    private static int[] dijkstra(RoadNetwork roadNetwork, int source) {
+        int[] distances = new int[roadNetwork.nodeCount()];
+        Arrays.fill(distances, ContractionHierarchy.UNREACHABLE);
+        distances[source] = 0;
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Integer.compare(a[1], b[1]));
+        queue.add(new int[] { source, 0 });
+        while (!queue.isEmpty()) {
+            int[] entry = queue.poll();
+            if (entry[1] > distances[entry[0]]) {
+                continue;
+            }
+            for (int edge = roadNetwork.firstEdge(entry[0]); edge < roadNetwork.firstEdge(entry[0] + 1); edge++) {
+                int target = roadNetwork.edgeTarget(edge);
+                int distance = entry[1] + roadNetwork.edgeWeight(edge);
+                if (distance < distances[target]) {
+                    distances[target] = distance;
+                    queue.add(new int[] { target, distance });
+                }
+            }
+        }
+        return distances;
+    }
+}
@@ -0,0 +1,91 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class DrivingTimeEncodingTest {
+
+    @Test
+    void narrowestExactEncoding() {
+        assertThat(DenseDrivingTimeMatrix.calculate(3, kernel(60_000L), 1L).getEncoding())
+                .isEqualTo(DrivingTimeEncoding.SHORT);
+        assertThat(DenseDrivingTimeMatrix.calculate(3, kernel(70_000L), 1L).getEncoding())
+                .isEqualTo(DrivingTimeEncoding.INT);
+        assertThat(DenseDrivingTimeMatrix.calculate(3, kernel(3_000_000_000L), 1L).getEncoding())
+                .isEqualTo(DrivingTimeEncoding.LONG);
+        assertThat(SymmetricDrivingTimeMatrix.calculate(3, kernel(70_000L), 1L).getEncoding())
+                .isEqualTo(DrivingTimeEncoding.INT);
+    }
+
+    @Test
+    void shortEncodingRoundsToScale() {
+        DenseDrivingTimeMatrix drivingTimeMatrix = DenseDrivingTimeMatrix.calculate(3, kernel(70_001L), 2L);
+
+        assertThat(drivingTimeMatrix.getEncoding()).isEqualTo(DrivingTimeEncoding.SHORT);
+        // Scale 2: every driving time is within 1 second of the exact one.
+        for (int from = 0; from < 3; from++) {
+            for (int to = 0; to < 3; to++) {
+                long exact = drivingTime(70_001L, from, to);
+                assertThat(Math.abs(drivingTimeMatrix.getDrivingTime(from, to) - exact)).isLessThanOrEqualTo(1L);
+            }
+        }
+    }
+
+    @Test
+    void exactEncodingKeepsEveryDrivingTime() {
+        SymmetricDrivingTimeMatrix drivingTimeMatrix = SymmetricDrivingTimeMatrix.calculate(3, kernel(60_000L), 1L);
+
+        for (int from = 0; from < 3; from++) {
+            for (int to = 0; to < 3; to++) {
+                assertThat(drivingTimeMatrix.getDrivingTime(from, to)).isEqualTo(drivingTime(60_000L, from, to));
+            }
+        }
+    }
+
+    @Test
+    void widenWhileFillingInParallel() {
+        int size = 2 * MatrixTiling.PARALLEL_THRESHOLD;
+        // Only the tiles far from the origin exceed the exact short range.
+        DrivingTimeKernel drivingTimeKernel = (fromIndex, toIndex) -> (long) (fromIndex + toIndex) * 40L;
+
+        DenseDrivingTimeMatrix drivingTimeMatrix = DenseDrivingTimeMatrix.calculate(size, drivingTimeKernel, 1L);
+
+        assertThat(drivingTimeMatrix.getEncoding()).isEqualTo(DrivingTimeEncoding.INT);
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                assertThat(drivingTimeMatrix.getDrivingTime(from, to)).isEqualTo((long) (from + to) * 40L);
+            }
+        }
+    }
+
+    @Test
+    void negativeDrivingTimeNeedsLongEncoding() {
+        DenseDrivingTimeMatrix drivingTimeMatrix = DenseDrivingTimeMatrix.calculate(3,
+                (fromIndex, toIndex) -> fromIndex == toIndex ? 0L : -1L, 1L);
+
+        assertThat(drivingTimeMatrix.getEncoding()).isEqualTo(DrivingTimeEncoding.LONG);
+        assertThat(drivingTimeMatrix.getDrivingTime(0, 1)).isEqualTo(-1L);
+    }
+
+    @Test
+    void encodedMatrixIsReadOnly() {
+        DenseDrivingTimeMatrix drivingTimeMatrix = DenseDrivingTimeMatrix.calculate(3, kernel(100L), 1L);
+
+        assertThatThrownBy(() -> drivingTimeMatrix.setDrivingTime(0, 1, 5L))
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThat(new DenseDrivingTimeMatrix(3).getEncoding()).isEqualTo(DrivingTimeEncoding.LONG);
+    }
+
+    /**
+     * Symmetric driving times that grow with the index distance, up to {@code maxDrivingTime}.
+     */
+    private static DrivingTimeKernel kernel(long maxDrivingTime) {
+        return (fromIndex, toIndex) -> drivingTime(maxDrivingTime, fromIndex, toIndex);
+    }
+
+    private static long drivingTime(long maxDrivingTime, int fromIndex, int toIndex) {
+        return maxDrivingTime * Math.abs(fromIndex - toIndex) / 2 - Math.abs(fromIndex - toIndex) % 2;
+    }
+}
@@ -0,0 +1,147 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DrivingTimeMatrixCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reusesMatrixForSameLocations() throws IOException {
+        AtomicInteger calculationCount = new AtomicInteger();
+        DrivingTimeCalculator drivingTimeCalculator = countingCalculator(calculationCount);
+        DrivingTimeMatrixCache drivingTimeMatrixCache = new DrivingTimeMatrixCache(directory);
+        List<Location> locations = List.of(new Location(19.0896, 72.8656), new Location(18.5289, 73.8732),
+                new Location(19.9975, 73.7898));
+
+        DrivingTimeMatrix calculated = drivingTimeMatrixCache.getOrCalculate(drivingTimeCalculator, locations,
+                DrivingTimeMatrixStorage.MAPPED);
+        Assertions.assertThat(calculationCount.get()).isEqualTo(9);
+        // New instances with the same coordinates, as after a restart.
+        List<Location> reloaded = locations.stream()
+                .map(location -> new Location(location.getLatitude(), location.getLongitude()))
+                .toList();
+        DrivingTimeMatrix cached = drivingTimeMatrixCache.getOrCalculate(drivingTimeCalculator, reloaded,
+                DrivingTimeMatrixStorage.MAPPED);
+
+        Assertions.assertThat(calculationCount.get()).isEqualTo(9);
+        for (int from = 0; from < locations.size(); from++) {
+            for (int to = 0; to < locations.size(); to++) {
+                Assertions.assertThat(cached.getDrivingTime(from, to))
+                        .isEqualTo(calculated.getDrivingTime(from, to));
+            }
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertThat(files.toList()).hasSize(1);
+        }
+    }
+
+    @Test
+    void reusesCompressedMatrix() {
+        AtomicInteger calculationCount = new AtomicInteger();
+        DrivingTimeCalculator drivingTimeCalculator = countingCalculator(calculationCount);
+        DrivingTimeMatrixCache drivingTimeMatrixCache = new DrivingTimeMatrixCache(directory, true);
+        List<Location> locations = List.of(new Location(19.0896, 72.8656), new Location(18.5289, 73.8732),
+                new Location(19.9975, 73.7898));
+
+        DrivingTimeMatrix calculated = drivingTimeMatrixCache.getOrCalculate(drivingTimeCalculator, locations,
+                DrivingTimeMatrixStorage.DENSE);
+        DrivingTimeMatrix cached = drivingTimeMatrixCache.getOrCalculate(drivingTimeCalculator, locations,
+                DrivingTimeMatrixStorage.DENSE);
+
+        Assertions.assertThat(calculationCount.get()).isEqualTo(9);
+        Assertions.assertThat(cached).isNotSameAs(calculated);
+        for (int from = 0; from < locations.size(); from++) {
+            for (int to = 0; to < locations.size(); to++) {
+                Assertions.assertThat(cached.getDrivingTime(from, to))
+                        .isEqualTo(calculated.getDrivingTime(from, to));
+            }
+        }
+    }
+
+    @Test
+    void reusesCompressedSymmetricMatrix() {
+        DrivingTimeCalculator drivingTimeCalculator = HaversineDrivingTimeCalculator.getInstance();
+        DrivingTimeMatrixCache drivingTimeMatrixCache = new DrivingTimeMatrixCache(directory, true);
+        List<Location> locations = List.of(new Location(19.0896, 72.8656), new Location(18.5289, 73.8732),
+                new Location(19.9975, 73.7898));
+
+        DrivingTimeMatrix calculated = drivingTimeMatrixCache.getOrCalculate(drivingTimeCalculator, locations,
+                DrivingTimeMatrixStorage.DENSE);
+        DrivingTimeMatrix cached = drivingTimeMatrixCache.getOrCalculate(drivingTimeCalculator, locations,
+                DrivingTimeMatrixStorage.DENSE);
+
+        Assertions.assertThat(calculated).isInstanceOf(SymmetricDrivingTimeMatrix.class);
+        Assertions.assertThat(cached).isInstanceOf(SymmetricDrivingTimeMatrix.class).isNotSameAs(calculated);
+        for (int from = 0; from < locations.size(); from++) {
+            for (int to = 0; to < locations.size(); to++) {
+                Assertions.assertThat(cached.getDrivingTime(from, to))
+                        .isEqualTo(calculated.getDrivingTime(from, to));
+            }
+        }
+    }
+
+    @Test
+    void honorsRequestedStorage() {
+        AtomicInteger calculationCount = new AtomicInteger();
+        DrivingTimeCalculator drivingTimeCalculator = countingCalculator(calculationCount);
+        DrivingTimeMatrixCache drivingTimeMatrixCache = new DrivingTimeMatrixCache(directory);
+        List<Location> locations = List.of(new Location(19.0896, 72.8656), new Location(18.5289, 73.8732));
+
+        DrivingTimeMatrix mapped = drivingTimeMatrixCache.getOrCalculate(drivingTimeCalculator, locations,
+                DrivingTimeMatrixStorage.MAPPED);
+        DrivingTimeMatrix dense = drivingTimeMatrixCache.getOrCalculate(drivingTimeCalculator, locations,
+                DrivingTimeMatrixStorage.DENSE);
+
+        Assertions.assertThat(calculationCount.get()).isEqualTo(4);
+        Assertions.assertThat(mapped).isInstanceOf(MappedDrivingTimeMatrix.class);
+        Assertions.assertThat(dense).isInstanceOf(DenseDrivingTimeMatrix.class);
+        Assertions.assertThat(dense.getDrivingTime(0, 1)).isEqualTo(mapped.getDrivingTime(0, 1));
+    }
+
+    @Test
+    void fingerprintDependsOnOrderAndCalculator() {
+        Location mumbai = new Location(19.0896, 72.8656);
+        Location pune = new Location(18.5289, 73.8732);
+        DrivingTimeCalculator haversine = HaversineDrivingTimeCalculator.getInstance();
+        DrivingTimeCalculator other = countingCalculator(new AtomicInteger());
+
+        Assertions.assertThat(DrivingTimeMatrixCache.fingerprint(haversine, List.of(mumbai, pune)))
+                .isEqualTo(DrivingTimeMatrixCache.fingerprint(haversine,
+                        List.of(new Location(19.0896, 72.8656), new Location(18.5289, 73.8732))));
+        Assertions.assertThat(DrivingTimeMatrixCache.fingerprint(haversine, List.of(mumbai, pune)))
+                .isNotEqualTo(DrivingTimeMatrixCache.fingerprint(haversine, List.of(pune, mumbai)));
+        Assertions.assertThat(DrivingTimeMatrixCache.fingerprint(haversine, List.of(mumbai, pune)))
+                .isNotEqualTo(DrivingTimeMatrixCache.fingerprint(other, List.of(mumbai, pune)));
+    }
+
+    /**
+     * Haversine driving times that count every calculated pair, under a cache key of their own.
+     */
+    private static DrivingTimeCalculator countingCalculator(AtomicInteger calculationCount) {
+        return new DrivingTimeCalculator() {
+
+            @Override
+            public long calculateDrivingTime(Location from, Location to) {
+                calculationCount.incrementAndGet();
+                return HaversineDrivingTimeCalculator.getInstance().calculateDrivingTime(from, to);
+            }
+
+            @Override
+            public String getCacheKey() {
+                return "counting";
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.Visit;
+import org.junit.jupiter.api.Test;
+
+class DrivingTimeProfileTest {
+
+    @Test
+    void forStyle() {
+        assertThat(DrivingTimeProfile.forStyle("van")).isEqualTo(DrivingTimeProfile.VAN);
+        assertThat(DrivingTimeProfile.forStyle("motorcycle")).isEqualTo(DrivingTimeProfile.MOTORCYCLE);
+        assertThat(DrivingTimeProfile.forStyle("scooter")).isEqualTo(DrivingTimeProfile.SCOOTER);
+        assertThat(DrivingTimeProfile.forStyle("truck")).isEqualTo(DrivingTimeProfile.DEFAULT);
+        assertThat(DrivingTimeProfile.forStyle(null)).isEqualTo(DrivingTimeProfile.DEFAULT);
+    }
+
+    @Test
+    void applyUrbanAndHighwayFactors() {
+        // Short city leg: the scooter beats the van.
+        assertThat(DrivingTimeProfile.SCOOTER.apply(600L)).isEqualTo(540L);
+        assertThat(DrivingTimeProfile.VAN.apply(600L)).isEqualTo(690L);
+        // Long leg: the first 900 seconds are urban, the rest highway, where the van wins.
+        assertThat(DrivingTimeProfile.SCOOTER.apply(3600L)).isEqualTo(810L + 3780L);
+        assertThat(DrivingTimeProfile.VAN.apply(3600L)).isEqualTo(1035L + 2700L);
+        assertThat(DrivingTimeProfile.DEFAULT.apply(3600L)).isEqualTo(3600L);
+    }
+
+    @Test
+    void toFactorPerMille() {
+        assertThat(DrivingTimeProfile.toFactorPerMille("vehicle-routing.profile.van.urban", 1.15)).isEqualTo(1150L);
+        assertThatThrownBy(() -> DrivingTimeProfile.toFactorPerMille("vehicle-routing.profile.van.urban", 0.0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("vehicle-routing.profile.van.urban");
+    }
+
+    @Test
+    void vehicleTotalDrivingTimeUsesItsProfile() {
+        DenseDrivingTimeMatrix drivingTimeMatrix = new DenseDrivingTimeMatrix(2);
+        drivingTimeMatrix.setDrivingTime(0, 1, 600L);
+        drivingTimeMatrix.setDrivingTime(1, 0, 600L);
+        Location depot = new Location(12.97, 77.59);
+        Location customer = new Location(12.93, 77.62);
+        depot.setDrivingTimeMatrix(drivingTimeMatrix, 0);
+        customer.setDrivingTimeMatrix(drivingTimeMatrix, 1);
+
+        assertThat(createRoute("scooter", depot, customer).getTotalDrivingTimeSeconds()).isEqualTo(1080L);
+        assertThat(createRoute("van", depot, customer).getTotalDrivingTimeSeconds()).isEqualTo(1380L);
+
+        Vehicle vehicle = createRoute("van", depot, customer);
+        vehicle.setStyle("motorcycle");
+        assertThat(vehicle.getDrivingTimeProfile()).isEqualTo(DrivingTimeProfile.MOTORCYCLE);
+    }
+
+    private static Vehicle createRoute(String style, Location depot, Location customer) {
+        Vehicle vehicle = new Vehicle("vehicle-1", style, depot);
+        vehicle.setVisits(new ArrayList<>(List.of(new Visit("1", "Koramangala", customer))));
+        return vehicle;
+    }
+}
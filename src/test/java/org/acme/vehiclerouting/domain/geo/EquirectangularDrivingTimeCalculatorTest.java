@@ -0,0 +1,71 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.junit.jupiter.api.Test;
+
+class EquirectangularDrivingTimeCalculatorTest {
+
+    private static final HaversineDrivingTimeCalculator HAVERSINE = HaversineDrivingTimeCalculator.getInstance();
+
+    @Test
+    void shortHopsWithinMaxError() {
+        EquirectangularDrivingTimeCalculator calculator = new EquirectangularDrivingTimeCalculator(
+                EquirectangularDrivingTimeCalculator.DEFAULT_MAX_DISTANCE_METERS);
+        Random random = new Random(37);
+        for (int i = 0; i < 100_000; i++) {
+            double latitude = -70.0 + random.nextDouble() * 140.0;
+            double longitude = -180.0 + random.nextDouble() * 360.0;
+            Location from = new Location(latitude, longitude);
+            // Up to about 0.2 degrees of latitude and, at 70 degrees, 0.5 degrees of longitude apart.
+            Location to = new Location(latitude + (random.nextDouble() - 0.5) * 0.36,
+                    longitude + (random.nextDouble() - 0.5) * 1.0);
+
+            long exact = HAVERSINE.calculateDrivingTime(from, to);
+            long approximate = calculator.calculateDrivingTime(from, to);
+            assertThat(Math.abs(approximate - exact))
+                    .isLessThanOrEqualTo(EquirectangularDrivingTimeCalculator.MAX_ERROR_SECONDS);
+        }
+    }
+
+    @Test
+    void longHopsFallBackToGreatCircle() {
+        EquirectangularDrivingTimeCalculator calculator = new EquirectangularDrivingTimeCalculator(20_000.0);
+        Location mumbai = new Location(19.0896, 72.8656);
+        Location pune = new Location(18.5289, 73.8732);
+        Location fijiWest = new Location(-17.0, 179.99);
+        Location fijiEast = new Location(-17.0, -179.99);
+
+        assertThat(calculator.calculateDrivingTime(mumbai, pune))
+                .isEqualTo(HAVERSINE.calculateDrivingTime(mumbai, pune));
+        // Less than 3 km apart, across the antimeridian.
+        assertThat(calculator.calculateDrivingTime(fijiWest, fijiEast))
+                .isEqualTo(HAVERSINE.calculateDrivingTime(fijiWest, fijiEast));
+    }
+
+    @Test
+    void matrixWithinMaxError() {
+        EquirectangularDrivingTimeCalculator calculator = new EquirectangularDrivingTimeCalculator(20_000.0);
+        Random random = new Random(11);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // Bangalore and its surroundings, so some pairs are beyond 20 km.
+            locations.add(new Location(12.8 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4));
+        }
+
+        DrivingTimeMatrix approximate =
+                calculator.calculateDrivingTimeMatrix(locations, DrivingTimeMatrixStorage.DENSE);
+        DrivingTimeMatrix exact = HAVERSINE.calculateDrivingTimeMatrix(locations, DrivingTimeMatrixStorage.DENSE);
+        for (int from = 0; from < locations.size(); from++) {
+            for (int to = 0; to < locations.size(); to++) {
+                assertThat(Math.abs(approximate.getDrivingTime(from, to) - exact.getDrivingTime(from, to)))
+                        .isLessThanOrEqualTo(EquirectangularDrivingTimeCalculator.MAX_ERROR_SECONDS);
+            }
+        }
+    }
+}
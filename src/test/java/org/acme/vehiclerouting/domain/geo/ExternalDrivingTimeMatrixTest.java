@@ -0,0 +1,115 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExternalDrivingTimeMatrixTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void convertAndOpen() throws IOException {
+        Path drivingTimeCsvFile = write("times.csv", """
+                ,depot,visit-1,visit-2
+                depot,0,600,1200
+                visit-1,650,0,300.4
+                visit-2,1250,310,0
+                """);
+        Path distanceCsvFile = write("meters.csv", """
+                ,depot,visit-1,visit-2
+                depot,0,8000,16000
+                visit-1,8100,0,4000
+                visit-2,16100,4100,0
+                """);
+        Path matrixFile = directory.resolve("matrix.bin");
+
+        assertThat(ExternalDrivingTimeMatrixCsvConverter.convert(drivingTimeCsvFile, distanceCsvFile, matrixFile))
+                .isEqualTo(3);
+        ExternalDrivingTimeMatrix drivingTimeMatrix = ExternalDrivingTimeMatrix.open(matrixFile);
+
+        assertThat(drivingTimeMatrix.size()).isEqualTo(3);
+        assertThat(drivingTimeMatrix.getIds()).isEqualTo(List.of("depot", "visit-1", "visit-2"));
+        assertThat(drivingTimeMatrix.indexOf("visit-2")).isEqualTo(2);
+        assertThat(drivingTimeMatrix.indexOf("visit-3")).isEqualTo(-1);
+        assertThat(drivingTimeMatrix.getDrivingTime(0, 2)).isEqualTo(1200L);
+        assertThat(drivingTimeMatrix.getDrivingTime(1, 2)).isEqualTo(300L);
+        assertThat(drivingTimeMatrix.getDrivingTime(2, 1)).isEqualTo(310L);
+        assertThat(drivingTimeMatrix.hasDistances()).isTrue();
+        assertThat(drivingTimeMatrix.getDistance(2, 0)).isEqualTo(16100L);
+    }
+
+    @Test
+    void withoutDistances() throws IOException {
+        Path drivingTimeCsvFile = write("times.csv", """
+                ,a,b
+                a,0,60
+                b,70,0
+                """);
+        Path matrixFile = directory.resolve("matrix.bin");
+        ExternalDrivingTimeMatrixCsvConverter.convert(drivingTimeCsvFile, null, matrixFile);
+
+        ExternalDrivingTimeMatrix drivingTimeMatrix = ExternalDrivingTimeMatrix.open(matrixFile);
+        assertThat(drivingTimeMatrix.hasDistances()).isFalse();
+        assertThat(drivingTimeMatrix.getDrivingTime(1, 0)).isEqualTo(70L);
+        assertThatThrownBy(() -> drivingTimeMatrix.getDistance(1, 0))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void rejectInvalidCsv() throws IOException {
+        Path matrixFile = directory.resolve("matrix.bin");
+
+        assertThatThrownBy(() -> ExternalDrivingTimeMatrixCsvConverter.convert(write("missing-row.csv", """
+                ,a,b
+                a,0,60
+                """), null, matrixFile))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("expected (2) rows");
+        assertThatThrownBy(() -> ExternalDrivingTimeMatrixCsvConverter.convert(write("wrong-id.csv", """
+                ,a,b
+                a,0,60
+                c,70,0
+                """), null, matrixFile))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("must be the id (b)");
+        assertThatThrownBy(() -> ExternalDrivingTimeMatrixCsvConverter.convert(write("negative.csv", """
+                ,a,b
+                a,0,-60
+                b,70,0
+                """), null, matrixFile))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("outside");
+    }
+
+    @Test
+    void rejectTruncatedFile() throws IOException {
+        Path matrixFile = directory.resolve("matrix.bin");
+        ExternalDrivingTimeMatrixCsvConverter.convert(write("times.csv", """
+                ,a,b
+                a,0,60
+                b,70,0
+                """), null, matrixFile);
+        try (FileChannel channel = FileChannel.open(matrixFile, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - Integer.BYTES);
+        }
+
+        assertThatThrownBy(() -> ExternalDrivingTimeMatrix.open(matrixFile))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("size (2)");
+    }
+
+    private Path write(String fileName, String content) throws IOException {
+        return Files.writeString(directory.resolve(fileName), content);
+    }
+}
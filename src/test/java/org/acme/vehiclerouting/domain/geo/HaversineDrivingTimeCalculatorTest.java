@@ -1,5 +1,9 @@
 package org.acme.vehiclerouting.domain.geo;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.acme.vehiclerouting.domain.Location;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -22,4 +26,40 @@ class HaversineDrivingTimeCalculatorTest {
         Assertions.assertThat(drivingTimeCalculator.calculateDrivingTime(Svolvaer, Lulea))
                 .isEqualTo(HaversineDrivingTimeCalculator.metersToDrivingSeconds(442297));
     }
-}
\ No newline at end of file
+
+    @Test
+    void initDrivingTimeMaps() {
+        Location Gent = new Location(51.0441461, 3.7336349);
+        Location Brno = new Location(49.1913945, 16.6122723);
+        Location Lulea = new Location(65.5887708, 22.1518707);
+        // A shared depot may appear more than once.
+        drivingTimeCalculator.initDrivingTimeMaps(List.of(Gent, Brno, Gent, Lulea));
+
+        Assertions.assertThat(Gent.getDrivingTimeMatrix().size()).isEqualTo(3);
+        for (Location from : List.of(Gent, Brno, Lulea)) {
+            for (Location to : List.of(Gent, Brno, Lulea)) {
+                Assertions.assertThat(from.getDrivingTimeTo(to))
+                        .isEqualTo(drivingTimeCalculator.calculateDrivingTime(from, to));
+            }
+        }
+    }
+
+    @Test
+    void calculateDrivingTimeMatrix() {
+        // Large enough to be filled in parallel, with partial tiles at the edges.
+        Random random = new Random(37);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            locations.add(new Location(8.0 + random.nextDouble() * 27.0, 68.0 + random.nextDouble() * 29.0));
+        }
+        DrivingTimeMatrix drivingTimeMatrix = drivingTimeCalculator.calculateDrivingTimeMatrix(locations);
+        Assertions.assertThat(drivingTimeMatrix).isInstanceOf(SymmetricDrivingTimeMatrix.class);
+
+        for (int from = 0; from < locations.size(); from++) {
+            for (int to = 0; to < locations.size(); to++) {
+                Assertions.assertThat(drivingTimeMatrix.getDrivingTime(from, to))
+                        .isEqualTo(drivingTimeCalculator.calculateDrivingTime(locations.get(from), locations.get(to)));
+            }
+        }
+    }
+}
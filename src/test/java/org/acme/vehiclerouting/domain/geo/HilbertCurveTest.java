@@ -0,0 +1,70 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.junit.jupiter.api.Test;
+
+class HilbertCurveTest {
+
+    @Test
+    void consecutiveCellsAreAdjacent() {
+        int order = 5;
+        int side = 1 << order;
+        long[][] cells = new long[side * side][];
+        for (long x = 0; x < side; x++) {
+            for (long y = 0; y < side; y++) {
+                int index = (int) HilbertCurve.index(x, y, order);
+                assertThat(cells[index]).isNull();
+                cells[index] = new long[] { x, y };
+            }
+        }
+        for (int i = 1; i < cells.length; i++) {
+            long step = Math.abs(cells[i][0] - cells[i - 1][0]) + Math.abs(cells[i][1] - cells[i - 1][1]);
+            assertThat(step).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void sortShortensTheTour() {
+        Random random = new Random(37);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            locations.add(new Location(12.8 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4));
+        }
+
+        List<Location> sorted = HilbertCurve.sort(locations, Function.identity());
+
+        assertThat(sorted).containsExactlyInAnyOrder(locations.toArray());
+        // Visiting in curve order is a decent tour: far shorter than visiting in random order.
+        assertThat(tourLength(sorted) * 5).isLessThan(tourLength(locations));
+    }
+
+    @Test
+    void initDrivingTimeMapsFollowsTheCurve() {
+        Location west = new Location(12.97, 77.40);
+        Location east = new Location(12.97, 77.80);
+        Location center = new Location(12.97, 77.60);
+        HaversineDrivingTimeCalculator.getInstance().initDrivingTimeMaps(List.of(west, east, center));
+
+        List<Location> byIndex = new ArrayList<>(List.of(west, east, center));
+        byIndex.sort((a, b) -> Integer.compare(a.getMatrixIndex(), b.getMatrixIndex()));
+        assertThat(byIndex).containsExactly(HilbertCurve.sort(List.of(west, east, center), Function.identity())
+                .toArray());
+    }
+
+    private static long tourLength(List<Location> locations) {
+        long length = 0L;
+        for (int i = 1; i < locations.size(); i++) {
+            length += HaversineDrivingTimeCalculator.calculateDistance(locations.get(i - 1).getLatitude(),
+                    locations.get(i - 1).getLongitude(), locations.get(i).getLatitude(),
+                    locations.get(i).getLongitude());
+        }
+        return length;
+    }
+}
@@ -0,0 +1,53 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class IncrementalDrivingTimeMatrixTest {
+
+    private final DrivingTimeCalculator drivingTimeCalculator = HaversineDrivingTimeCalculator.getInstance();
+
+    @Test
+    void addAndRemoveLocations() {
+        Location depot = new Location(12.9716, 77.5946);
+        Location visit1 = new Location(12.9352, 77.6245);
+        Location visit2 = new Location(13.0358, 77.5970);
+        IncrementalDrivingTimeMatrix drivingTimeMatrix = IncrementalDrivingTimeMatrix.create(drivingTimeCalculator,
+                List.of(depot, visit1, visit2));
+        List<Location> locations = new ArrayList<>(List.of(depot, visit1, visit2));
+        assertMatchesCalculator(locations);
+
+        // Grows beyond the initial capacity.
+        Location visit3 = new Location(12.9698, 77.7500);
+        Location visit4 = new Location(12.9141, 77.6411);
+        drivingTimeMatrix.addLocations(List.of(visit3, visit4));
+        locations.addAll(List.of(visit3, visit4));
+        Assertions.assertThat(drivingTimeMatrix.size()).isEqualTo(5);
+        assertMatchesCalculator(locations);
+
+        drivingTimeMatrix.removeLocations(List.of(visit1));
+        locations.remove(visit1);
+        Assertions.assertThat(visit1.getDrivingTimeMatrix()).isNull();
+
+        // Reuses the index of the removed location.
+        Location visit5 = new Location(13.0200, 77.6400);
+        drivingTimeMatrix.addLocations(List.of(visit5));
+        locations.add(visit5);
+        Assertions.assertThat(visit5.getMatrixIndex()).isEqualTo(1);
+        Assertions.assertThat(drivingTimeMatrix.size()).isEqualTo(5);
+        assertMatchesCalculator(locations);
+    }
+
+    private void assertMatchesCalculator(List<Location> locations) {
+        for (Location from : locations) {
+            for (Location to : locations) {
+                Assertions.assertThat(from.getDrivingTimeTo(to))
+                        .isEqualTo(drivingTimeCalculator.calculateDrivingTime(from, to));
+            }
+        }
+    }
+}
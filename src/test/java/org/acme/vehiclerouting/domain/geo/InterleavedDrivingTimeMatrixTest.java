@@ -0,0 +1,84 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.Visit;
+import org.junit.jupiter.api.Test;
+
+class InterleavedDrivingTimeMatrixTest {
+
+    @Test
+    void drivingTimesAndDistancesSideBySide() {
+        Random random = new Random(37);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            locations.add(new Location(12.8 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4));
+        }
+        HaversineDrivingTimeCalculator calculator = HaversineDrivingTimeCalculator.getInstance();
+
+        InterleavedDrivingTimeMatrix drivingTimeMatrix = InterleavedDrivingTimeMatrix.calculate(locations.size(),
+                calculator.createDrivingTimeKernel(locations));
+
+        assertThat(drivingTimeMatrix.hasDistances()).isTrue();
+        for (int from = 0; from < locations.size(); from += 7) {
+            for (int to = 0; to < locations.size(); to++) {
+                Location fromLocation = locations.get(from);
+                Location toLocation = locations.get(to);
+                assertThat(drivingTimeMatrix.getDrivingTime(from, to))
+                        .isEqualTo(calculator.calculateDrivingTime(fromLocation, toLocation));
+                assertThat(drivingTimeMatrix.getDistance(from, to))
+                        .isEqualTo(HaversineDrivingTimeCalculator.calculateDistance(fromLocation.getLatitude(),
+                                fromLocation.getLongitude(), toLocation.getLatitude(), toLocation.getLongitude()));
+            }
+        }
+    }
+
+    @Test
+    void denseStorageKeepsDistancesIfConfigured() {
+        List<Location> locations = List.of(new Location(12.9716, 77.5946), new Location(12.9352, 77.6245));
+        DrivingTimeKernel drivingTimeKernel =
+                HaversineDrivingTimeCalculator.getInstance().createDrivingTimeKernel(locations);
+
+        assertThat(DrivingTimeMatrixStorage.DENSE.calculate(2, drivingTimeKernel, true).hasDistances()).isFalse();
+        System.setProperty(InterleavedDrivingTimeMatrix.DISTANCES_CONFIG_PROPERTY, "true");
+        try {
+            assertThat(DrivingTimeMatrixStorage.DENSE.calculate(2, drivingTimeKernel, true))
+                    .isInstanceOf(InterleavedDrivingTimeMatrix.class);
+            // Calculators that only know driving times keep working.
+            DrivingTimeKernel timeOnlyKernel = (fromIndex, toIndex) -> 60L;
+            assertThat(DrivingTimeMatrixStorage.DENSE.calculate(2, timeOnlyKernel, true).hasDistances()).isFalse();
+        } finally {
+            System.clearProperty(InterleavedDrivingTimeMatrix.DISTANCES_CONFIG_PROPERTY);
+        }
+    }
+
+    @Test
+    void vehicleTotalDistance() {
+        Location depot = new Location(12.9716, 77.5946);
+        Location stop = new Location(12.9352, 77.6245);
+        List<Location> locations = List.of(depot, stop);
+        InterleavedDrivingTimeMatrix drivingTimeMatrix = InterleavedDrivingTimeMatrix.calculate(2,
+                HaversineDrivingTimeCalculator.getInstance().createDrivingTimeKernel(locations));
+        depot.setDrivingTimeMatrix(drivingTimeMatrix, 0);
+        stop.setDrivingTimeMatrix(drivingTimeMatrix, 1);
+        Vehicle vehicle = new Vehicle("1", "van", depot, LocalDateTime.of(2025, 1, 1, 8, 0));
+        vehicle.getVisits().add(new Visit("1", "stop", stop));
+
+        assertThat(vehicle.getTotalDistanceMeters())
+                .isEqualTo(drivingTimeMatrix.getDistance(0, 1) + drivingTimeMatrix.getDistance(1, 0));
+
+        DenseDrivingTimeMatrix timeOnlyMatrix = new DenseDrivingTimeMatrix(2);
+        depot.setDrivingTimeMatrix(timeOnlyMatrix, 0);
+        stop.setDrivingTimeMatrix(timeOnlyMatrix, 1);
+        assertThat(vehicle.getTotalDistanceMeters()).isNull();
+        assertThatThrownBy(() -> depot.getDistanceTo(stop)).isInstanceOf(UnsupportedOperationException.class);
+    }
+}
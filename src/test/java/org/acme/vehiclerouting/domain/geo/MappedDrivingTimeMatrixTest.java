@@ -0,0 +1,42 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedDrivingTimeMatrixTest {
+
+    private static final DrivingTimeKernel KERNEL = (fromIndex, toIndex) -> fromIndex * 100_000L + toIndex;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void calculate() {
+        DrivingTimeMatrix drivingTimeMatrix = MappedDrivingTimeMatrix.calculate(directory, 700, KERNEL);
+
+        assertMatchesKernel(drivingTimeMatrix, 700);
+    }
+
+    @Test
+    void calculateAcrossSegments() throws IOException {
+        // Room for 3 rows per segment is rounded down to 2 rows, so 5 segments with a partial last one.
+        DrivingTimeMatrix drivingTimeMatrix = MappedDrivingTimeMatrix.calculate(directory.resolve("matrix.bin"), 9,
+                KERNEL, 3 * 9 * Long.BYTES);
+
+        assertMatchesKernel(drivingTimeMatrix, 9);
+    }
+
+    private static void assertMatchesKernel(DrivingTimeMatrix drivingTimeMatrix, int size) {
+        Assertions.assertThat(drivingTimeMatrix.size()).isEqualTo(size);
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                Assertions.assertThat(drivingTimeMatrix.getDrivingTime(from, to))
+                        .isEqualTo(KERNEL.calculateDrivingTime(from, to));
+            }
+        }
+    }
+}
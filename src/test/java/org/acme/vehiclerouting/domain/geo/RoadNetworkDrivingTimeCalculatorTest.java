@@ -0,0 +1,286 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RoadNetworkDrivingTimeCalculatorTest {
+
+    // A residential street A-B-C, a one-way primary road C-D and a footway E-F.
+    private static final long[] NODE_IDS = { 1, 2, 3, 4, 5, 6 };
+    private static final double[] LATITUDES = { 19.0, 19.0, 19.0, 19.01, 19.02, 19.02 };
+    private static final double[] LONGITUDES = { 72.80, 72.81, 72.82, 72.82, 72.80, 72.81 };
+    private static final String[] STRINGS = { "", "highway", "residential", "primary", "oneway", "yes", "footway" };
+
+    private static final Location A = new Location(19.0, 72.80);
+    private static final Location C = new Location(19.0, 72.82);
+    private static final Location D = new Location(19.01, 72.82);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readRoadNetwork() throws IOException {
+        RoadNetwork roadNetwork = OsmPbfReader.read(writeExtract());
+
+        // B is folded into the edges between A and C, the footway is not drivable.
+        assertThat(roadNetwork.nodeCount()).isEqualTo(3);
+        assertThat(roadNetwork.edgeCount()).isEqualTo(3);
+    }
+
+    @Test
+    void parseMaxSpeed() {
+        assertThat(OsmPbfReader.parseMaxSpeedKmph("60", 20)).isEqualTo(60);
+        assertThat(OsmPbfReader.parseMaxSpeedKmph("30 mph", 20)).isEqualTo(48);
+        assertThat(OsmPbfReader.parseMaxSpeedKmph("signals", 20)).isEqualTo(20);
+        assertThat(OsmPbfReader.parseMaxSpeedKmph(null, 20)).isEqualTo(20);
+    }
+
+    @Test
+    void calculateDrivingTime() throws IOException {
+        Path osmFile = writeExtract();
+        RoadNetworkDrivingTimeCalculator calculator =
+                RoadNetworkDrivingTimeCalculator.load(osmFile, directory.resolve("extract.ch"));
+
+        long residentialMillis = millis(0, 1, 20) + millis(1, 2, 20);
+        long primaryMillis = millis(2, 3, 50);
+        assertThat(calculator.calculateDrivingTime(A, C)).isEqualTo(Math.round(residentialMillis / 1000.0));
+        assertThat(calculator.calculateDrivingTime(C, A)).isEqualTo(Math.round(residentialMillis / 1000.0));
+        assertThat(calculator.calculateDrivingTime(A, D))
+                .isEqualTo(Math.round((residentialMillis + primaryMillis) / 1000.0));
+        // The primary road is one-way, so there is no road back: fall back to Haversine.
+        assertThat(calculator.calculateDrivingTime(D, A))
+                .isEqualTo(HaversineDrivingTimeCalculator.getInstance().calculateDrivingTime(D, A));
+    }
+
+    @Test
+    void calculateBulkDrivingTime() throws IOException {
+        RoadNetworkDrivingTimeCalculator calculator =
+                RoadNetworkDrivingTimeCalculator.load(writeExtract(), directory.resolve("extract.ch"));
+
+        Map<Location, Map<Location, Long>> drivingTimes = calculator.calculateBulkDrivingTime(List.of(A, C),
+                List.of(C, D));
+
+        assertThat(drivingTimes.get(A).get(C)).isEqualTo(calculator.calculateDrivingTime(A, C));
+        assertThat(drivingTimes.get(A).get(D)).isEqualTo(calculator.calculateDrivingTime(A, D));
+        assertThat(drivingTimes.get(C).get(C)).isEqualTo(0L);
+        assertThat(drivingTimes.get(C).get(D)).isEqualTo(calculator.calculateDrivingTime(C, D));
+    }
+
+    @Test
+    void fillMatrixRowByRow() throws IOException {
+        RoadNetworkDrivingTimeCalculator calculator =
+                RoadNetworkDrivingTimeCalculator.load(writeExtract(), directory.resolve("extract.ch"));
+        List<Location> locations = List.of(A, C, D);
+
+        DrivingTimeKernel drivingTimeKernel = calculator.createDrivingTimeKernel(locations);
+        DrivingTimeMatrix drivingTimeMatrix = DenseDrivingTimeMatrix.calculate(locations.size(), drivingTimeKernel);
+
+        assertThat(drivingTimeKernel.calculatesWholeRows()).isTrue();
+        for (int from = 0; from < locations.size(); from++) {
+            for (int to = 0; to < locations.size(); to++) {
+                assertThat(drivingTimeMatrix.getDrivingTime(from, to))
+                        .isEqualTo(calculator.calculateDrivingTime(locations.get(from), locations.get(to)));
+            }
+        }
+    }
+
+    @Test
+    void reuseGraphUntilExtractChanges() throws IOException {
+        Path osmFile = writeExtract();
+        FileTime extractTime = Files.getLastModifiedTime(osmFile);
+        Path graphFile = directory.resolve("extract.ch");
+        String cacheKey = RoadNetworkDrivingTimeCalculator.load(osmFile, graphFile).getCacheKey();
+        Object builtFileKey = fileKey(graphFile);
+
+        // Touched: hashed again, the same content keeps the graph and remembers the new modification time.
+        FileTime touchedTime = FileTime.fromMillis(extractTime.toMillis() + 60_000L);
+        Files.setLastModifiedTime(osmFile, touchedTime);
+        assertThat(RoadNetworkDrivingTimeCalculator.load(osmFile, graphFile).getCacheKey()).isEqualTo(cacheKey);
+        assertThat(fileKey(graphFile)).isEqualTo(builtFileKey);
+        assertThat(ContractionHierarchy.readSource(graphFile).lastModifiedMillis())
+                .isEqualTo(touchedTime.toMillis());
+
+        // Same size and modification time: trusted without reading the extract.
+        writeExtract(13L);
+        Files.setLastModifiedTime(osmFile, touchedTime);
+        assertThat(RoadNetworkDrivingTimeCalculator.load(osmFile, graphFile).getCacheKey()).isEqualTo(cacheKey);
+        assertThat(fileKey(graphFile)).isEqualTo(builtFileKey);
+
+        // Another size: hashed again, the other content rebuilds the graph.
+        writeExtract(1L << 40);
+        String rebuiltCacheKey = RoadNetworkDrivingTimeCalculator.load(osmFile, graphFile).getCacheKey();
+        assertThat(fileKey(graphFile)).isNotEqualTo(builtFileKey);
+        assertThat(rebuiltCacheKey).isNotEqualTo(cacheKey);
+    }
+
+    /**
+     * A rebuilt graph replaces the file, so it gets a new file key.
+     */
+    private static Object fileKey(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    private static long millis(int from, int to, int speedKmph) {
+        return HaversineDrivingTimeCalculator.calculateDistance(LATITUDES[from], LONGITUDES[from], LATITUDES[to],
+                LONGITUDES[to]) * 3600L / speedKmph;
+    }
+
+    /**
+     * Writes a minimal PBF extract: a header block, a zlib block with the nodes and a raw block with the ways.
+     */
+    private Path writeExtract() throws IOException {
+        return writeExtract(12L);
+    }
+
+    private Path writeExtract(long footwayId) throws IOException {
+        Path file = directory.resolve("extract.osm.pbf");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            writeBlock(out, "OSMHeader", rawBlob(new Message().string(4, "DenseNodes").bytes()));
+
+            Message denseNodes = new Message();
+            Message ids = new Message();
+            Message latitudes = new Message();
+            Message longitudes = new Message();
+            long previousId = 0L;
+            long previousLatitude = 0L;
+            long previousLongitude = 0L;
+            for (int i = 0; i < NODE_IDS.length; i++) {
+                long latitude = Math.round(LATITUDES[i] * 1e7);
+                long longitude = Math.round(LONGITUDES[i] * 1e7);
+                ids.signedVarint(NODE_IDS[i] - previousId);
+                latitudes.signedVarint(latitude - previousLatitude);
+                longitudes.signedVarint(longitude - previousLongitude);
+                previousId = NODE_IDS[i];
+                previousLatitude = latitude;
+                previousLongitude = longitude;
+            }
+            denseNodes.message(1, ids).message(8, latitudes).message(9, longitudes);
+            writeBlock(out, "OSMData", zlibBlob(primitiveBlock(new Message().message(2, denseNodes)).bytes()));
+
+            Message ways = new Message()
+                    .message(3, way(10, new int[] { 1 }, new int[] { 2 }, 1, 2, 3))
+                    .message(3, way(11, new int[] { 1, 4 }, new int[] { 3, 5 }, 3, 4))
+                    .message(3, way(footwayId, new int[] { 1 }, new int[] { 6 }, 5, 6));
+            writeBlock(out, "OSMData", rawBlob(primitiveBlock(ways).bytes()));
+        }
+        return file;
+    }
+
+    private static Message primitiveBlock(Message group) {
+        Message stringTable = new Message();
+        for (String string : STRINGS) {
+            stringTable.string(1, string);
+        }
+        // Granularity 100 nanodegrees is 1e-7 degrees.
+        return new Message().message(1, stringTable).message(2, group).varint(17, 100);
+    }
+
+    private static Message way(long id, int[] keys, int[] values, long... refs) {
+        Message keyMessage = new Message();
+        Message valueMessage = new Message();
+        for (int i = 0; i < keys.length; i++) {
+            keyMessage.varint(keys[i]);
+            valueMessage.varint(values[i]);
+        }
+        Message refMessage = new Message();
+        long previousRef = 0L;
+        for (long ref : refs) {
+            refMessage.signedVarint(ref - previousRef);
+            previousRef = ref;
+        }
+        return new Message().varint(1, id).message(2, keyMessage).message(3, valueMessage).message(8, refMessage);
+    }
+
+    private static byte[] rawBlob(byte[] data) {
+        return new Message().bytes(1, data).bytes();
+    }
+
+    private static byte[] zlibBlob(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return new Message().varint(2, data.length).bytes(3, compressed.toByteArray()).bytes();
+    }
+
+    private static void writeBlock(DataOutputStream out, String type, byte[] blob) throws IOException {
+        byte[] header = new Message().string(1, type).varint(3, blob.length).bytes();
+        out.writeInt(header.length);
+        out.write(header);
+        out.write(blob);
+    }
+
+    /**
+     * Protocol buffer encoder, just enough to write a PBF extract.
+     */
+    private static final class Message {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Message varint(long value) {
+            writeVarint(out, value);
+            return this;
+        }
+
+        Message signedVarint(long value) {
+            return varint((value << 1) ^ (value >> 63));
+        }
+
+        Message varint(int field, long value) {
+            writeVarint(out, (long) field << 3);
+            return varint(value);
+        }
+
+        Message bytes(int field, byte[] value) {
+            writeVarint(out, (long) field << 3 | 2);
+            writeVarint(out, value.length);
+            out.write(value, 0, value.length);
+            return this;
+        }
+
+        Message string(int field, String value) {
+            return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Message message(int field, Message value) {
+            return bytes(field, value.bytes());
+        }
+
+        byte[] bytes() {
+            return out.toByteArray();
+        }
+
+        private static void writeVarint(OutputStream out, long value) {
+            try {
+                while ((value & ~0x7FL) != 0L) {
+                    out.write((int) ((value & 0x7F) | 0x80));
+                    value >>>= 7;
+                }
+                out.write((int) value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
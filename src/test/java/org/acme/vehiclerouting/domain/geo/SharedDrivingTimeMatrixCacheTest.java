@@ -0,0 +1,140 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.junit.jupiter.api.Test;
+
+class SharedDrivingTimeMatrixCacheTest {
+
+    private static final DrivingTimeCalculator CALCULATOR = HaversineDrivingTimeCalculator.getInstance();
+
+    private static final List<Location> MUMBAI = List.of(new Location(19.0760, 72.8777),
+            new Location(19.0896, 72.8656), new Location(19.2183, 72.9781));
+    private static final List<Location> PUNE = List.of(new Location(18.5204, 73.8567),
+            new Location(18.5289, 73.8732));
+
+    @Test
+    void shareMatrixOfSameLocations() {
+        SharedDrivingTimeMatrixCache cache = new SharedDrivingTimeMatrixCache(Long.MAX_VALUE);
+
+        DrivingTimeMatrix matrix = cache.acquire(CALCULATOR, MUMBAI);
+        List<Location> sameCoordinates = MUMBAI.stream()
+                .map(location -> new Location(location.getLatitude(), location.getLongitude()))
+                .toList();
+
+        assertThat(cache.acquire(CALCULATOR, sameCoordinates)).isSameAs(matrix);
+        assertThat(cache.acquire(CALCULATOR, PUNE)).isNotSameAs(matrix);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.getReferenceCount(matrix)).isEqualTo(2);
+        assertThat(cache.getHeapBytes()).isPositive();
+    }
+
+    @Test
+    void keepReferencedMatricesOverBudget() {
+        SharedDrivingTimeMatrixCache cache = new SharedDrivingTimeMatrixCache(0L);
+
+        DrivingTimeMatrix matrix = cache.acquire(CALCULATOR, MUMBAI);
+        assertThat(cache.retain(matrix)).isTrue();
+        assertThat(cache.release(matrix)).isTrue();
+        assertThat(cache.size()).isEqualTo(1);
+
+        assertThat(cache.release(matrix)).isTrue();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getHeapBytes()).isEqualTo(0L);
+        assertThat(cache.release(matrix)).isFalse();
+        assertThat(cache.acquire(CALCULATOR, MUMBAI)).isNotSameAs(matrix);
+    }
+
+    @Test
+    void evictLeastRecentlyUsedUnreferenced() {
+        DrivingTimeMatrix mumbaiMatrix = CALCULATOR.calculateDrivingTimeMatrix(MUMBAI);
+        DrivingTimeMatrix puneMatrix = CALCULATOR.calculateDrivingTimeMatrix(PUNE);
+        SharedDrivingTimeMatrixCache cache = new SharedDrivingTimeMatrixCache(
+                mumbaiMatrix.getHeapBytes() + puneMatrix.getHeapBytes());
+
+        DrivingTimeMatrix mumbai = cache.acquire(CALCULATOR, MUMBAI);
+        DrivingTimeMatrix pune = cache.acquire(CALCULATOR, PUNE);
+        cache.release(mumbai);
+        cache.release(pune);
+        // Both fit in the budget, so released matrices are still shared.
+        assertThat(cache.acquire(CALCULATOR, MUMBAI)).isSameAs(mumbai);
+        cache.release(mumbai);
+
+        cache.acquire(CALCULATOR, List.of(new Location(12.9716, 77.5946), new Location(13.0827, 80.2707)));
+
+        assertThat(cache.getReferenceCount(pune)).isEqualTo(0);
+        assertThat(cache.retain(pune)).isFalse();
+        assertThat(cache.retain(mumbai)).isTrue();
+    }
+
+    @Test
+    void evictOffHeapMatrixOnceUnreferenced() {
+        DrivingTimeCalculator offHeapCalculator = new DrivingTimeCalculator() {
+
+            @Override
+            public long calculateDrivingTime(Location from, Location to) {
+                return CALCULATOR.calculateDrivingTime(from, to);
+            }
+
+            @Override
+            public DrivingTimeMatrix calculateDrivingTimeMatrix(List<Location> locations) {
+                DrivingTimeMatrix drivingTimeMatrix = CALCULATOR.calculateDrivingTimeMatrix(locations);
+                return new DrivingTimeMatrix() {
+
+                    @Override
+                    public int size() {
+                        return drivingTimeMatrix.size();
+                    }
+
+                    @Override
+                    public long getDrivingTime(int fromIndex, int toIndex) {
+                        return drivingTimeMatrix.getDrivingTime(fromIndex, toIndex);
+                    }
+
+                    @Override
+                    public long getHeapBytes() {
+                        return 0L;
+                    }
+                };
+            }
+
+            @Override
+            public String getCacheKey() {
+                return "off-heap";
+            }
+        };
+        SharedDrivingTimeMatrixCache cache = new SharedDrivingTimeMatrixCache(Long.MAX_VALUE);
+
+        DrivingTimeMatrix offHeap = cache.acquire(offHeapCalculator, MUMBAI);
+        DrivingTimeMatrix onHeap = cache.acquire(CALCULATOR, PUNE);
+        cache.release(offHeap);
+        cache.release(onHeap);
+
+        assertThat(cache.retain(offHeap)).isFalse();
+        assertThat(cache.retain(onHeap)).isTrue();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void releaseMoreOftenThanAcquiredFails() {
+        SharedDrivingTimeMatrixCache cache = new SharedDrivingTimeMatrixCache(Long.MAX_VALUE);
+        DrivingTimeMatrix matrix = cache.acquire(CALCULATOR, MUMBAI);
+        cache.release(matrix);
+
+        assertThatThrownBy(() -> cache.release(matrix))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("released more often");
+    }
+
+    @Test
+    void heapBytes() {
+        assertThat(DenseDrivingTimeMatrix.calculate(10, (from, to) -> 100L * from + to, 1L).getHeapBytes())
+                .isEqualTo(100L * Character.BYTES);
+        assertThat(new DenseDrivingTimeMatrix(10).getHeapBytes()).isEqualTo(100L * Long.BYTES);
+        assertThat(new SymmetricDrivingTimeMatrix(10).getHeapBytes()).isEqualTo(55L * Long.BYTES);
+    }
+}
@@ -0,0 +1,60 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SparseDrivingTimeMatrixTest {
+
+    @Test
+    void storedAndFallbackDrivingTimes() {
+        List<Location> locations = randomLocations(300);
+        DrivingTimeKernel drivingTimeKernel = HaversineDrivingTimeCalculator.getInstance()
+                .createDrivingTimeKernel(locations);
+        // A cache much smaller than the number of fallback pairs, to exercise eviction.
+        SparseDrivingTimeMatrix drivingTimeMatrix = SparseDrivingTimeMatrix.calculate(locations.size(),
+                drivingTimeKernel, true, 8, 64);
+
+        Assertions.assertThat(drivingTimeMatrix.getNeighborCount()).isEqualTo(8);
+        for (int from = 0; from < locations.size(); from++) {
+            for (int to = 0; to < locations.size(); to++) {
+                Assertions.assertThat(drivingTimeMatrix.getDrivingTime(from, to))
+                        .isEqualTo(drivingTimeKernel.calculateDrivingTime(from, to));
+            }
+        }
+    }
+
+    @Test
+    void storesNearestNeighbors() {
+        // Location i is |i - j| seconds away from location j, so the nearest neighbors of 0 are 1, 2 and 3.
+        int[] calculationCount = new int[1];
+        DrivingTimeKernel drivingTimeKernel = (fromIndex, toIndex) -> {
+            calculationCount[0]++;
+            return Math.abs(fromIndex - toIndex);
+        };
+        SparseDrivingTimeMatrix drivingTimeMatrix = SparseDrivingTimeMatrix.calculate(10, drivingTimeKernel, true,
+                3, 16);
+        calculationCount[0] = 0;
+
+        Assertions.assertThat(drivingTimeMatrix.getDrivingTime(0, 3)).isEqualTo(3L);
+        Assertions.assertThat(drivingTimeMatrix.getDrivingTime(9, 7)).isEqualTo(2L);
+        Assertions.assertThat(calculationCount[0]).isEqualTo(0);
+        // Not a neighbor, calculated once and then cached.
+        Assertions.assertThat(drivingTimeMatrix.getDrivingTime(0, 4)).isEqualTo(4L);
+        Assertions.assertThat(drivingTimeMatrix.getDrivingTime(0, 4)).isEqualTo(4L);
+        Assertions.assertThat(calculationCount[0]).isEqualTo(1);
+    }
+
+    private static List<Location> randomLocations(int count) {
+        Random random = new Random(37);
+        List<Location> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            locations.add(new Location(12.8 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4));
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,104 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.junit.jupiter.api.Test;
+
+class SpatialIndexTest {
+
+    private static final List<Location> LOCATIONS = createLocations(new Random(37), 2_000);
+
+    @Test
+    void findNearestMatchesScan() {
+        SpatialIndex spatialIndex = SpatialIndex.of(LOCATIONS);
+        Random random = new Random(11);
+        for (int i = 0; i < 100; i++) {
+            double latitude = 12.5 + random.nextDouble();
+            double longitude = 77.0 + random.nextDouble();
+
+            List<Location> expected = LOCATIONS.stream()
+                    .sorted(Comparator.comparingLong(location -> distance(location, latitude, longitude)))
+                    .limit(10)
+                    .toList();
+            List<Location> nearest = spatialIndex.findNearest(latitude, longitude, 10);
+            assertThat(nearest.stream().map(location -> distance(location, latitude, longitude)).toList())
+                    .isEqualTo(expected.stream().map(location -> distance(location, latitude, longitude)).toList());
+        }
+    }
+
+    @Test
+    void findWithinRadiusMatchesScan() {
+        SpatialIndex spatialIndex = SpatialIndex.of(LOCATIONS);
+        Random random = new Random(13);
+        for (int i = 0; i < 100; i++) {
+            double latitude = 12.5 + random.nextDouble();
+            double longitude = 77.0 + random.nextDouble();
+            double radiusMeters = 1_000.0 + random.nextInt(10_000);
+
+            // Stay clear of rounding at the border.
+            Set<Location> expected = LOCATIONS.stream()
+                    .filter(location -> distance(location, latitude, longitude) < radiusMeters - 1.0)
+                    .collect(Collectors.toSet());
+            Set<Location> found = Set.copyOf(spatialIndex.findWithinRadius(latitude, longitude, radiusMeters));
+            assertThat(found).containsAll(expected);
+            assertThat(found.stream()
+                    .allMatch(location -> distance(location, latitude, longitude) <= radiusMeters + 1.0)).isTrue();
+        }
+    }
+
+    @Test
+    void findWithinBoundsMatchesScan() {
+        SpatialIndex spatialIndex = SpatialIndex.of(LOCATIONS);
+        Location southWest = new Location(12.8, 77.3);
+        Location northEast = new Location(13.1, 77.5);
+
+        Set<Location> expected = LOCATIONS.stream()
+                .filter(location -> location.getLatitude() >= 12.8 && location.getLatitude() <= 13.1
+                        && location.getLongitude() >= 77.3 && location.getLongitude() <= 77.5)
+                .collect(Collectors.toSet());
+        assertThat(expected).isNotEmpty();
+        assertThat(Set.copyOf(spatialIndex.findWithinBounds(southWest, northEast))).isEqualTo(expected);
+    }
+
+    @Test
+    void crossAntimeridian() {
+        Location west = new Location(-17.0, 179.9);
+        Location east = new Location(-17.0, -179.9);
+        Location far = new Location(-17.0, 170.0);
+        SpatialIndex spatialIndex = SpatialIndex.of(List.of(far, west, east));
+
+        assertThat(spatialIndex.findNearest(-17.0, 179.95, 2)).containsExactlyInAnyOrder(west, east);
+        assertThat(spatialIndex.findWithinBounds(new Location(-18.0, 179.0), new Location(-16.0, -179.0)))
+                .containsExactlyInAnyOrder(west, east);
+    }
+
+    @Test
+    void duplicateLocationsIndexedOnce() {
+        Location location = new Location(12.9716, 77.5946);
+        SpatialIndex spatialIndex = SpatialIndex.of(List.of(location, new Location(12.9716, 77.5946)));
+
+        assertThat(spatialIndex.size()).isEqualTo(1);
+        assertThat(spatialIndex.findNearest(location, 5)).containsExactly(location);
+    }
+
+    private static long distance(Location location, double latitude, double longitude) {
+        return HaversineDrivingTimeCalculator.calculateDistance(location.getLatitude(), location.getLongitude(),
+                latitude, longitude);
+    }
+
+    private static List<Location> createLocations(Random random, int count) {
+        List<Location> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            locations.add(new Location(12.5 + random.nextDouble(), 77.0 + random.nextDouble()));
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,74 @@
+package org.acme.vehiclerouting.domain.geo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.junit.jupiter.api.Test;
+
+class TimeDependentDrivingTimeMatrixTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2022, 9, 17, 0, 0);
+
+    @Test
+    void bucketPerHour() {
+        TrafficProfile trafficProfile = new TrafficProfile(hourlyFactors());
+
+        assertThat(trafficProfile.getBucketCount()).isEqualTo(24);
+        assertThat(trafficProfile.getBucket(DAY)).isEqualTo(0);
+        assertThat(trafficProfile.getBucket(DAY.withHour(8).withMinute(59).withSecond(59))).isEqualTo(8);
+        assertThat(trafficProfile.getBucket(DAY.withHour(9))).isEqualTo(9);
+        assertThat(trafficProfile.getBucket(DAY.withHour(23).withMinute(59))).isEqualTo(23);
+    }
+
+    @Test
+    void scaleByDepartureBucket() {
+        TrafficProfile trafficProfile = new TrafficProfile(hourlyFactors());
+
+        assertThat(trafficProfile.scale(1000L, DAY.withHour(3))).isEqualTo(1000L);
+        assertThat(trafficProfile.scale(1000L, DAY.withHour(9).withMinute(30))).isEqualTo(1600L);
+        assertThat(trafficProfile.scale(1001L, DAY.withHour(9))).isEqualTo(1602L);
+    }
+
+    @Test
+    void rejectUnevenBuckets() {
+        assertThatThrownBy(() -> new TrafficProfile(1.0, 1.0, 1.0, 1.0, 1.0, 1.0, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TrafficProfile(1.0, 0.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void locationDrivingTimeByDepartureTime() {
+        DenseDrivingTimeMatrix baseDrivingTimeMatrix = new DenseDrivingTimeMatrix(2);
+        baseDrivingTimeMatrix.setDrivingTime(0, 1, 600L);
+        baseDrivingTimeMatrix.setDrivingTime(1, 0, 500L);
+        DrivingTimeMatrix drivingTimeMatrix =
+                new TimeDependentDrivingTimeMatrix(baseDrivingTimeMatrix, new TrafficProfile(hourlyFactors()));
+        Location a = new Location(19.0, 72.8);
+        Location b = new Location(19.1, 72.9);
+        a.setDrivingTimeMatrix(drivingTimeMatrix, 0);
+        b.setDrivingTimeMatrix(drivingTimeMatrix, 1);
+
+        assertThat(a.getDrivingTimeTo(b)).isEqualTo(600L);
+        assertThat(a.getDrivingTimeTo(b, null)).isEqualTo(600L);
+        assertThat(a.getDrivingTimeTo(b, DAY.withHour(4))).isEqualTo(600L);
+        assertThat(a.getDrivingTimeTo(b, DAY.withHour(10))).isEqualTo(960L);
+        assertThat(b.getDrivingTimeTo(a, DAY.withHour(18))).isEqualTo(850L);
+    }
+
+    /**
+     * Free flow at night, a morning peak from 8 to 11 and an evening peak from 17 to 21.
+     */
+    private static double[] hourlyFactors() {
+        double[] factors = new double[24];
+        Arrays.fill(factors, 1.2);
+        Arrays.fill(factors, 0, 6, 1.0);
+        Arrays.fill(factors, 8, 11, 1.6);
+        Arrays.fill(factors, 17, 21, 1.7);
+        return factors;
+    }
+}
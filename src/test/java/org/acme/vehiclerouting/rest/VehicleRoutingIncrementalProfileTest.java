@@ -0,0 +1,76 @@
+package org.acme.vehiclerouting.rest;
+
+import static io.restassured.RestAssured.get;
+import static io.restassured.RestAssured.given;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import ai.timefold.solver.core.api.solver.SolverStatus;
+
+import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.http.ContentType;
+
+/**
+ * With the {@code incremental} profile, the route plan must still come with its score explained.
+ */
+@QuarkusTest
+@TestProfile(VehicleRoutingIncrementalProfileTest.IncrementalProfile.class)
+class VehicleRoutingIncrementalProfileTest {
+
+    public static class IncrementalProfile implements QuarkusTestProfile {
+
+        @Override
+        public String getConfigProfile() {
+            return "incremental";
+        }
+    }
+
+    @Test
+    void getRoutePlanExplainsScore() {
+        VehicleRoutePlan vehicleRoutePlan = given()
+                .when().get("/demo-data/FIRENZE")
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(VehicleRoutePlan.class);
+
+        String jobId = given()
+                .contentType(ContentType.JSON)
+                .body(vehicleRoutePlan)
+                .expect().contentType(ContentType.TEXT)
+                .when().post("/route-plans")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+
+        // While solving, every request explains the best solution so far.
+        get("/route-plans/" + jobId).then().statusCode(200);
+
+        await()
+                .atMost(Duration.ofMinutes(1))
+                .pollInterval(Duration.ofMillis(500L))
+                .until(() -> SolverStatus.NOT_SOLVING.name().equals(
+                        get("/route-plans/" + jobId + "/status")
+                                .jsonPath().get("solverStatus")));
+
+        VehicleRoutePlan solution = get("/route-plans/" + jobId)
+                .then()
+                .statusCode(200)
+                .extract()
+                .as(VehicleRoutePlan.class);
+        assertEquals(SolverStatus.NOT_SOLVING, solution.getSolverStatus());
+        assertTrue(solution.getScore().isFeasible());
+        assertNotNull(solution.getScoreExplanation());
+        assertTrue(solution.getScoreExplanation().contains("minimizeTravelTime"));
+    }
+}
@@ -144,7 +144,7 @@ class VehicleRoutingPlanResourceTest {
                 new Location(43.77800837529796, 11.223969038020176)
         );
         newVisit.setDemand(2);
-        newVisit.setStartServiceTime(LocalDateTime.now().plusDays(1).withHour(8).withMinute(0));
+        newVisit.setMinStartTime(LocalDateTime.now().plusDays(1).withHour(8).withMinute(0));
         newVisit.setMaxEndTime(LocalDateTime.now().plusDays(1).withHour(14).withMinute(0));
         solution.getVisits().add(newVisit);
         return newVisit;
@@ -0,0 +1,236 @@
+package org.acme.vehiclerouting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.acme.vehiclerouting.domain.Visit;
+import org.acme.vehiclerouting.domain.geo.DrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.ExternalDrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.ExternalDrivingTimeMatrixCsvConverter;
+import org.acme.vehiclerouting.domain.geo.HaversineDrivingTimeCalculator;
+import org.acme.vehiclerouting.domain.geo.IncrementalDrivingTimeMatrix;
+import org.acme.vehiclerouting.domain.geo.SharedDrivingTimeMatrixCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DrivingTimeMatrixRegistryTest {
+
+    private final DrivingTimeMatrixRegistry registry = new DrivingTimeMatrixRegistry();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void constructorDoesNotBuildMatrix() {
+        VehicleRoutePlan plan = createPlan();
+
+        assertThat(plan.getDrivingTimeMatrix()).isNull();
+        assertThat(plan.getVisits().get(0).getLocation().getDrivingTimeMatrix()).isNull();
+    }
+
+    @Test
+    void attach() {
+        VehicleRoutePlan plan = createPlan();
+
+        DrivingTimeMatrix matrix = registry.attach(plan);
+
+        assertThat(matrix).isNotNull();
+        assertThat(matrix.size()).isEqualTo(3);
+        assertThat(plan.getDrivingTimeMatrix()).isSameAs(matrix);
+        Location depot = plan.getVehicles().get(0).getHomeLocation();
+        Location visitLocation = plan.getVisits().get(1).getLocation();
+        assertThat(depot.getDrivingTimeTo(visitLocation)).isPositive();
+    }
+
+    @Test
+    void orderVisitsLikeMatrixIndices() {
+        VehicleRoutePlan plan = createPlan();
+        Visit thane = plan.getVisits().get(1);
+        plan.getVisits().add(0, new Visit("3", "Pune Delivery", new Location(18.5204, 73.8567)));
+        plan.getVisits().add(new Visit("4", "Thane Pickup", new Location(19.2183, 72.9781)));
+
+        registry.orderVisits(plan);
+        registry.attach(plan);
+
+        List<Visit> visits = plan.getVisits();
+        assertThat(visits).hasSize(4);
+        for (int i = 1; i < visits.size(); i++) {
+            assertThat(visits.get(i - 1).getLocation().getMatrixIndex())
+                    .isLessThanOrEqualTo(visits.get(i).getLocation().getMatrixIndex());
+        }
+        assertThat(visits.get(visits.indexOf(thane) + 1).getId()).isEqualTo("4");
+    }
+
+    @Test
+    void attachKeepsVisitOrder() {
+        VehicleRoutePlan plan = createPlan();
+        plan.getVisits().add(0, new Visit("3", "Pune Delivery", new Location(18.5204, 73.8567)));
+        List<Visit> visits = plan.getVisits();
+        List<Visit> expectedVisits = List.copyOf(visits);
+
+        registry.attach(plan);
+
+        assertThat(plan.getVisits()).isSameAs(visits);
+        assertThat(plan.getVisits()).containsExactly(expectedVisits.toArray(Visit[]::new));
+    }
+
+    @Test
+    void attachDerivedPlanSharesMatrix() {
+        VehicleRoutePlan plan = createPlan();
+        DrivingTimeMatrix matrix = registry.attach(plan);
+
+        VehicleRoutePlan derivedPlan = new VehicleRoutePlan(new ArrayList<>(plan.getVisits()),
+                new ArrayList<>(plan.getVehicles()));
+
+        assertThat(registry.attach(derivedPlan)).isSameAs(matrix);
+    }
+
+    @Test
+    void attachPlansOverSameLocationsShareMatrix() {
+        SharedDrivingTimeMatrixCache cache = new SharedDrivingTimeMatrixCache(0L);
+        DrivingTimeMatrixRegistry sharingRegistry = new DrivingTimeMatrixRegistry(Optional.empty(), cache);
+        VehicleRoutePlan plan = createPlan();
+        VehicleRoutePlan otherPlan = createPlan();
+        Collections.reverse(otherPlan.getVisits());
+
+        DrivingTimeMatrix matrix = sharingRegistry.attach(plan);
+        assertThat(sharingRegistry.attach(otherPlan)).isSameAs(matrix);
+        assertThat(sharingRegistry.attach(plan)).isSameAs(matrix);
+
+        sharingRegistry.release(matrix);
+        sharingRegistry.release(matrix);
+        assertThat(cache.size()).isEqualTo(1);
+        sharingRegistry.release(matrix);
+        assertThat(cache.size()).isEqualTo(0);
+    }
+
+    @Test
+    void retainKeepsMatrixUntilReleased() {
+        SharedDrivingTimeMatrixCache cache = new SharedDrivingTimeMatrixCache(0L);
+        DrivingTimeMatrixRegistry sharingRegistry = new DrivingTimeMatrixRegistry(Optional.empty(), cache);
+        VehicleRoutePlan plan = createPlan();
+        List<Visit> visits = plan.getVisits();
+
+        DrivingTimeMatrix matrix = sharingRegistry.attach(plan);
+        assertThat(sharingRegistry.retain(matrix)).isSameAs(matrix);
+        assertThat(plan.getVisits()).isSameAs(visits);
+
+        sharingRegistry.release(matrix);
+        assertThat(cache.size()).isEqualTo(1);
+        sharingRegistry.release(matrix);
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(sharingRegistry.retain(null)).isNull();
+    }
+
+    @Test
+    void attachExternalMatrixById() throws IOException {
+        Path drivingTimeCsvFile = Files.writeString(directory.resolve("times.csv"), """
+                ,vehicle-1,1,2
+                vehicle-1,0,600,900
+                1,620,0,20
+                2,910,30,0
+                """);
+        Path matrixFile = directory.resolve("matrix.bin");
+        ExternalDrivingTimeMatrixCsvConverter.convert(drivingTimeCsvFile, null, matrixFile);
+        ExternalDrivingTimeMatrix externalDrivingTimeMatrix = ExternalDrivingTimeMatrix.open(matrixFile);
+        VehicleRoutePlan plan = createPlan();
+        // Both visits at the same address, but the customer's matrix has a row for each.
+        Location sharedLocation = plan.getVisits().get(0).getLocation();
+        plan.getVisits().get(1).setLocation(sharedLocation);
+
+        assertThat(new DrivingTimeMatrixRegistry(Optional.of(externalDrivingTimeMatrix)).attach(plan))
+                .isSameAs(externalDrivingTimeMatrix);
+
+        Location depot = plan.getVehicles().get(0).getHomeLocation();
+        Visit visit1 = findVisit(plan, "1");
+        Visit visit2 = findVisit(plan, "2");
+        assertThat(visit1.getLocation()).isNotSameAs(visit2.getLocation());
+        assertThat(depot.getDrivingTimeTo(visit1.getLocation())).isEqualTo(600L);
+        assertThat(depot.getDrivingTimeTo(visit2.getLocation())).isEqualTo(900L);
+        assertThat(visit2.getLocation().getDrivingTimeTo(visit1.getLocation())).isEqualTo(30L);
+    }
+
+    @Test
+    void attachExternalMatrixRejectsUnknownId() throws IOException {
+        Path drivingTimeCsvFile = Files.writeString(directory.resolve("times.csv"), """
+                ,vehicle-1,1
+                vehicle-1,0,600
+                1,620,0
+                """);
+        Path matrixFile = directory.resolve("matrix.bin");
+        ExternalDrivingTimeMatrixCsvConverter.convert(drivingTimeCsvFile, null, matrixFile);
+        DrivingTimeMatrixRegistry externalRegistry =
+                new DrivingTimeMatrixRegistry(Optional.of(ExternalDrivingTimeMatrix.open(matrixFile)));
+
+        assertThatThrownBy(() -> externalRegistry.attach(createPlan()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("[2]");
+    }
+
+    @Test
+    void addAndRemoveVisitsIncrementally() {
+        DrivingTimeMatrixRegistry incrementalRegistry =
+                new DrivingTimeMatrixRegistry(Optional.empty(), new SharedDrivingTimeMatrixCache(0L), true);
+        VehicleRoutePlan plan = createPlan();
+        DrivingTimeMatrix matrix = incrementalRegistry.attach(plan);
+        Location depot = plan.getVehicles().get(0).getHomeLocation();
+        Visit pune = new Visit("3", "Pune Delivery", new Location(18.5204, 73.8567));
+
+        incrementalRegistry.addVisits(plan, List.of(pune));
+
+        assertThat(plan.getVisits()).hasSize(3).contains(pune);
+        assertThat(matrix.size()).isEqualTo(4);
+        assertThat(depot.getDrivingTimeTo(pune.getLocation()))
+                .isEqualTo(HaversineDrivingTimeCalculator.getInstance().calculateDrivingTime(depot, pune.getLocation()));
+
+        Visit thane = findVisit(plan, "2");
+        incrementalRegistry.removeVisits(plan, List.of(thane));
+
+        assertThat(plan.getVisits()).hasSize(2).doesNotContain(thane);
+        assertThat(thane.getLocation().getDrivingTimeMatrix()).isNull();
+        // The next visit reuses the freed index instead of growing the matrix.
+        Visit nashik = new Visit("4", "Nashik Delivery", new Location(19.9975, 73.7898));
+        incrementalRegistry.addVisits(plan, List.of(nashik));
+        assertThat(matrix.size()).isEqualTo(4);
+        assertThat(nashik.getLocation().getDrivingTimeTo(pune.getLocation()))
+                .isEqualTo(HaversineDrivingTimeCalculator.getInstance()
+                        .calculateDrivingTime(nashik.getLocation(), pune.getLocation()));
+    }
+
+    @Test
+    void addVisitsRequiresIncrementalMatrix() {
+        DrivingTimeMatrixRegistry sharingRegistry =
+                new DrivingTimeMatrixRegistry(Optional.empty(), new SharedDrivingTimeMatrixCache(0L), false);
+        VehicleRoutePlan plan = createPlan();
+        sharingRegistry.attach(plan);
+
+        assertThatThrownBy(() -> sharingRegistry.addVisits(plan,
+                List.of(new Visit("3", "Pune Delivery", new Location(18.5204, 73.8567)))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(IncrementalDrivingTimeMatrix.CONFIG_PROPERTY);
+    }
+
+    private static Visit findVisit(VehicleRoutePlan plan, String id) {
+        return plan.getVisits().stream().filter(visit -> visit.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static VehicleRoutePlan createPlan() {
+        Location depot = new Location(19.0760, 72.8777);
+        List<Vehicle> vehicles = new ArrayList<>(List.of(new Vehicle("vehicle-1", "van", depot)));
+        List<Visit> visits = new ArrayList<>(List.of(
+                new Visit("1", "Mumbai Delivery", new Location(19.0896, 72.8656)),
+                new Visit("2", "Thane Delivery", new Location(19.2183, 72.9781))));
+        return new VehicleRoutePlan(visits, vehicles);
+    }
+}
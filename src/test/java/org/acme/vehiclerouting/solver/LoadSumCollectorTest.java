@@ -0,0 +1,39 @@
+package org.acme.vehiclerouting.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.Visit;
+import org.junit.jupiter.api.Test;
+
+class LoadSumCollectorTest {
+
+    @Test
+    void sumAndUndo() {
+        LoadSumCollector collector = LoadSumCollector.sum();
+        LoadSumCollector.LoadSum loadSum = collector.supplier().get();
+        Runnable undoFirst = collector.accumulator().apply(loadSum, visit(300, 400));
+        collector.accumulator().apply(loadSum, visit(250, 600, 5));
+
+        assertThat(collector.finisher().apply(loadSum)).containsExactly(550L, 1000L, 5L);
+
+        undoFirst.run();
+        assertThat(collector.finisher().apply(loadSum)).containsExactly(250L, 600L, 5L);
+    }
+
+    @Test
+    void excessLoad() {
+        Vehicle vehicle = new Vehicle("1");
+        assertThat(LoadSumCollector.getExcessLoad(vehicle, new long[] { 550L, 1000L, 5L })).isEqualTo(0L);
+
+        vehicle.setCapacities(new int[] { 500, 900 });
+        assertThat(LoadSumCollector.getExcessLoad(vehicle, new long[] { 550L, 1000L, 5L })).isEqualTo(150L);
+        assertThat(LoadSumCollector.getExcessLoad(vehicle, new long[] { 400L })).isEqualTo(0L);
+    }
+
+    private static Visit visit(int... loads) {
+        Visit visit = new Visit();
+        visit.setLoads(loads);
+        return visit;
+    }
+}
@@ -0,0 +1,81 @@
+package org.acme.vehiclerouting.solver;
+
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.assignRoundRobin;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.calculateScore;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createConstrainedPlan;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createConstraintStreamScoreDirectorFactory;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createOpenPlan;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createSolutionManager;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.solveForScoreCalculationSpeed;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import ai.timefold.solver.core.api.score.analysis.ScoreAnalysis;
+import ai.timefold.solver.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import ai.timefold.solver.core.api.score.constraint.ConstraintRef;
+import ai.timefold.solver.core.config.score.director.ScoreDirectorFactoryConfig;
+
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scoring travel time per visit must give the same score as walking every route of every vehicle.
+ */
+class TravelTimeScoreTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TravelTimeScoreTest.class);
+
+    @Test
+    void perVisitScoreMatchesTotalDrivingTime() {
+        VehicleRoutePlan plan = createOpenPlan(new Random(37), 1000, 10);
+        assignRoundRobin(plan);
+
+        // Analyzing updates the shadow variables, so every vehicle knows its total driving time afterwards.
+        ScoreAnalysis<HardSoftLongScore> analysis =
+                createSolutionManager(createConstraintStreamScoreDirectorFactory()).analyze(plan);
+        long totalDrivingTimeSeconds = plan.getVehicles().stream().mapToLong(Vehicle::getTotalDrivingTimeSeconds).sum();
+
+        assertThat(totalDrivingTimeSeconds).isPositive();
+        assertThat(analysis.getConstraintAnalysis(ConstraintRef.of(VehicleRoutePlan.class.getPackageName(),
+                VehicleRoutingConstraintProvider.MINIMIZE_TRAVEL_TIME)).score())
+                .isEqualTo(HardSoftLongScore.ofSoft(-totalDrivingTimeSeconds));
+    }
+
+    @Test
+    void wholeRouteScoreMatchesPerVisitScore() {
+        VehicleRoutePlan plan = createConstrainedPlan(new Random(37), 200, 8);
+        assignRoundRobin(plan);
+
+        HardSoftLongScore perVisitScore = calculateScore(plan, createConstraintStreamScoreDirectorFactory());
+        HardSoftLongScore wholeRouteScore = calculateScore(plan, createWholeRouteScoreDirectorFactory());
+
+        assertThat(wholeRouteScore).isEqualTo(perVisitScore);
+    }
+
+    /**
+     * Solves the same plan scoring travel time per visit and per whole route, and logs how fast each one scores.
+     * Run it with {@code mvn test -Dtest=TravelTimeScoreTest -Dslowly=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "slowly", matches = "true")
+    void compareScoreCalculationSpeed() throws InterruptedException, ExecutionException {
+        Duration spentLimit = Duration.ofSeconds(30);
+        long wholeRouteSpeed = solveForScoreCalculationSpeed(createOpenPlan(new Random(37), 1000, 10),
+                createWholeRouteScoreDirectorFactory(), spentLimit);
+        long perVisitSpeed = solveForScoreCalculationSpeed(createOpenPlan(new Random(37), 1000, 10),
+                createConstraintStreamScoreDirectorFactory(), spentLimit);
+        LOGGER.info("Score calculation speed: whole route ({}/s), per visit ({}/s).", wholeRouteSpeed, perVisitSpeed);
+    }
+
+    private static ScoreDirectorFactoryConfig createWholeRouteScoreDirectorFactory() {
+        return new ScoreDirectorFactoryConfig()
+                .withEasyScoreCalculatorClass(WholeRouteEasyScoreCalculator.class);
+    }
+}
@@ -0,0 +1,149 @@
+package org.acme.vehiclerouting.solver;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.api.solver.SolverJob;
+import ai.timefold.solver.core.api.solver.SolverManager;
+import ai.timefold.solver.core.config.score.director.ScoreDirectorFactoryConfig;
+import ai.timefold.solver.core.config.solver.SolverConfig;
+
+import org.acme.vehiclerouting.domain.Location;
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.acme.vehiclerouting.domain.Visit;
+import org.acme.vehiclerouting.domain.geo.HaversineDrivingTimeCalculator;
+
+/**
+ * Random plans over Mumbai and the solver configuration to score them, shared by the score tests.
+ */
+final class VehicleRoutePlanFixture {
+
+    static final LocalDateTime START = LocalDateTime.of(2025, 1, 6, 7, 0);
+
+    private VehicleRoutePlanFixture() {
+    }
+
+    static ScoreDirectorFactoryConfig createConstraintStreamScoreDirectorFactory() {
+        return new ScoreDirectorFactoryConfig()
+                .withConstraintProviderClass(VehicleRoutingConstraintProvider.class);
+    }
+
+    static ScoreDirectorFactoryConfig createIncrementalScoreDirectorFactory() {
+        return new ScoreDirectorFactoryConfig()
+                .withIncrementalScoreCalculatorClass(VehicleRoutingIncrementalScoreCalculator.class);
+    }
+
+    static SolverConfig createSolverConfig(ScoreDirectorFactoryConfig scoreDirectorFactoryConfig) {
+        return new SolverConfig()
+                .withSolutionClass(VehicleRoutePlan.class)
+                .withEntityClasses(Vehicle.class, Visit.class)
+                .withScoreDirectorFactory(scoreDirectorFactoryConfig)
+                .withRandomSeed(0L);
+    }
+
+    static SolutionManager<VehicleRoutePlan, HardSoftLongScore> createSolutionManager(
+            ScoreDirectorFactoryConfig scoreDirectorFactoryConfig) {
+        return SolutionManager.create(SolverFactory.create(createSolverConfig(scoreDirectorFactoryConfig)));
+    }
+
+    /**
+     * Also updates the shadow variables of the plan.
+     */
+    static HardSoftLongScore calculateScore(VehicleRoutePlan plan,
+            ScoreDirectorFactoryConfig scoreDirectorFactoryConfig) {
+        return createSolutionManager(scoreDirectorFactoryConfig).update(plan);
+    }
+
+    /**
+     * For the opt-in benchmarks, which only log it: how fast depends on the machine.
+     *
+     * @return score calculations per second while solving the plan
+     */
+    static long solveForScoreCalculationSpeed(VehicleRoutePlan plan,
+            ScoreDirectorFactoryConfig scoreDirectorFactoryConfig, Duration spentLimit)
+            throws InterruptedException, ExecutionException {
+        SolverConfig solverConfig = createSolverConfig(scoreDirectorFactoryConfig)
+                .withTerminationSpentLimit(spentLimit);
+        try (SolverManager<VehicleRoutePlan, Long> solverManager = SolverManager.create(solverConfig)) {
+            SolverJob<VehicleRoutePlan, Long> solverJob = solverManager.solve(1L, plan);
+            solverJob.getFinalBestSolution();
+            return solverJob.getScoreCalculationSpeed();
+        }
+    }
+
+    /**
+     * Visits spread over Mumbai, open all day, served by vans with room for long routes,
+     * so neither time windows nor capacity cut them short.
+     */
+    static VehicleRoutePlan createOpenPlan(Random random, int visitCount, int vehicleCount) {
+        List<Vehicle> vehicles = new ArrayList<>(vehicleCount);
+        for (int i = 0; i < vehicleCount; i++) {
+            Vehicle vehicle = new Vehicle("vehicle-" + i, "van", randomLocation(random), START);
+            vehicle.setCapacity(visitCount);
+            vehicles.add(vehicle);
+        }
+        List<Visit> visits = new ArrayList<>(visitCount);
+        for (int i = 0; i < visitCount; i++) {
+            visits.add(new Visit(String.valueOf(i), "Visit " + i, randomLocation(random), 1, START,
+                    START.plusDays(1), Duration.ofMinutes(5)));
+        }
+        return createPlan(visits, vehicles);
+    }
+
+    /**
+     * Visits spread over Mumbai with time windows over the day, some with a soft end, and loads in two dimensions,
+     * served by vans too small to take them all.
+     */
+    static VehicleRoutePlan createConstrainedPlan(Random random, int visitCount, int vehicleCount) {
+        List<Vehicle> vehicles = new ArrayList<>(vehicleCount);
+        for (int i = 0; i < vehicleCount; i++) {
+            Vehicle vehicle = new Vehicle("vehicle-" + i, "van", randomLocation(random), START);
+            vehicle.setCapacity(visitCount / vehicleCount);
+            vehicle.setCapacities(new int[] { visitCount / vehicleCount, 2 * visitCount / vehicleCount });
+            vehicles.add(vehicle);
+        }
+        List<Visit> visits = new ArrayList<>(visitCount);
+        for (int i = 0; i < visitCount; i++) {
+            LocalDateTime minStartTime = START.plusMinutes(random.nextInt(8 * 60));
+            LocalDateTime maxEndTime = minStartTime.plusMinutes(60 + random.nextInt(3 * 60));
+            Visit visit = new Visit(String.valueOf(i), "Visit " + i, randomLocation(random), 1 + random.nextInt(2),
+                    minStartTime, maxEndTime, Duration.ofMinutes(5));
+            if (random.nextBoolean()) {
+                visit.setSoftMaxEndTime(maxEndTime.minusMinutes(45));
+            }
+            if (random.nextBoolean()) {
+                visit.setLoads(new int[] { random.nextInt(3), random.nextInt(4) });
+            }
+            visits.add(visit);
+        }
+        return createPlan(visits, vehicles);
+    }
+
+    /**
+     * Deals the visits out to the vehicles in turn, regardless of distance.
+     */
+    static void assignRoundRobin(VehicleRoutePlan plan) {
+        List<Vehicle> vehicles = plan.getVehicles();
+        for (int i = 0; i < plan.getVisits().size(); i++) {
+            vehicles.get(i % vehicles.size()).getVisits().add(plan.getVisits().get(i));
+        }
+    }
+
+    private static VehicleRoutePlan createPlan(List<Visit> visits, List<Vehicle> vehicles) {
+        VehicleRoutePlan plan = new VehicleRoutePlan(visits, vehicles);
+        HaversineDrivingTimeCalculator.getInstance().initDrivingTimeMaps(plan.getLocations());
+        return plan;
+    }
+
+    private static Location randomLocation(Random random) {
+        return new Location(18.9 + random.nextDouble() * 0.3, 72.8 + random.nextDouble() * 0.2);
+    }
+}
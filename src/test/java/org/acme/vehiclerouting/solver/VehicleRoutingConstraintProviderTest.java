@@ -53,6 +53,45 @@ class VehicleRoutingConstraintProviderTest {
     }
 
 
+    @Test
+    void vehicleCapacityPenalized() {
+        LocalDateTime tomorrow_07_00 = LocalDateTime.of(TOMORROW, LocalTime.of(7, 0));
+        LocalDateTime tomorrow_08_00 = LocalDateTime.of(TOMORROW, LocalTime.of(8, 0));
+        LocalDateTime tomorrow_10_00 = LocalDateTime.of(TOMORROW, LocalTime.of(10, 0));
+        Vehicle vehicleA = new Vehicle("1", "van", LOCATION_1, 100, tomorrow_07_00);
+        Visit visit1 = new Visit("2", "John", LOCATION_2, 80, tomorrow_08_00, tomorrow_10_00);
+        Visit visit2 = new Visit("3", "Paul", LOCATION_3, 40, tomorrow_08_00, tomorrow_10_00);
+        connect(vehicleA, visit1, visit2);
+
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::vehicleCapacity)
+                .given(vehicleA, visit1, visit2)
+                .penalizesBy(20L);
+    }
+
+    @Test
+    void vehicleCapacityPerDimension() {
+        LocalDateTime tomorrow_07_00 = LocalDateTime.of(TOMORROW, LocalTime.of(7, 0));
+        LocalDateTime tomorrow_08_00 = LocalDateTime.of(TOMORROW, LocalTime.of(8, 0));
+        LocalDateTime tomorrow_10_00 = LocalDateTime.of(TOMORROW, LocalTime.of(10, 0));
+        // Weight in kg, volume in liters; parcels are unlimited.
+        Vehicle vehicleA = new Vehicle("1", "van", LOCATION_1, 100, tomorrow_07_00);
+        vehicleA.setCapacities(new int[] { 500, 1000 });
+        Visit visit1 = new Visit("2", "John", LOCATION_2, 1, tomorrow_08_00, tomorrow_10_00);
+        visit1.setLoads(new int[] { 300, 400, 5 });
+        Visit visit2 = new Visit("3", "Paul", LOCATION_3, 1, tomorrow_08_00, tomorrow_10_00);
+        visit2.setLoads(new int[] { 250, 600, 5 });
+        connect(vehicleA, visit1, visit2);
+
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::vehicleCapacityPerDimension)
+                .given(vehicleA, visit1, visit2)
+                .penalizesBy(50L);
+
+        vehicleA.setCapacities(null);
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::vehicleCapacityPerDimension)
+                .given(vehicleA, visit1, visit2)
+                .penalizesBy(0L);
+    }
+
     @Test
     void totalDrivingTime() {
         LocalDateTime tomorrow_07_00 = LocalDateTime.of(TOMORROW, LocalTime.of(7, 0));
@@ -60,11 +99,13 @@ class VehicleRoutingConstraintProviderTest {
         LocalDateTime tomorrow_10_00 = LocalDateTime.of(TOMORROW, LocalTime.of(10, 0));
         Vehicle vehicleA = new Vehicle("1", "truck", LOCATION_1, tomorrow_07_00);
         Visit visit1 = new Visit("2", "John", LOCATION_2, 80, tomorrow_08_00, tomorrow_10_00);
-        vehicleA.getVisits().add(visit1);
         Visit visit2 = new Visit("3", "Paul", LOCATION_3, 40, tomorrow_08_00, tomorrow_10_00);
-        vehicleA.getVisits().add(visit2);
+        connect(vehicleA, visit1, visit2);
 
-        
+        // The last visit also pays for the way back to the depot.
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::minimizeTravelTime)
+                .given(vehicleA, visit1, visit2)
+                .penalizesBy(843L + 639L + 941L);
     }
 
     @Test
@@ -85,11 +126,68 @@ class VehicleRoutingConstraintProviderTest {
 
         connect(vehicleA, visit1, visit2);
 
-        
+        // Paul's 30 minutes of service end at 11:00, 2 hours after his max end time.
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::serviceFinishedAfterMaxEndTime)
+                .given(visit1, visit2)
+                .penalizesBy(120L);
 
         visit2.setArrivalTime(tomorrow_08_00_01);
 
-        
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::serviceFinishedAfterMaxEndTime)
+                .given(visit1, visit2)
+                .penalizesBy(0L);
+    }
+
+    @Test
+    void serviceFinishedAfterMaxEndTimeRoundsUpToMinutes() {
+        LocalDateTime tomorrow_08_00 = LocalDateTime.of(TOMORROW, LocalTime.of(8, 0));
+        LocalDateTime tomorrow_08_30_01 = LocalDateTime.of(TOMORROW, LocalTime.of(8, 30, 1));
+        LocalDateTime tomorrow_09_00 = LocalDateTime.of(TOMORROW, LocalTime.of(9, 0));
+
+        Visit visit = new Visit("2", "John", LOCATION_2, 80, tomorrow_08_00, tomorrow_09_00);
+        visit.setArrivalTime(tomorrow_08_30_01);
+
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::serviceFinishedAfterMaxEndTime)
+                .given(visit)
+                .penalizesBy(1L);
+    }
+
+    @Test
+    void serviceFinishedAfterSoftMaxEndTime() {
+        LocalDateTime tomorrow_07_30 = LocalDateTime.of(TOMORROW, LocalTime.of(7, 30));
+        LocalDateTime tomorrow_08_00 = LocalDateTime.of(TOMORROW, LocalTime.of(8, 0));
+        LocalDateTime tomorrow_09_00 = LocalDateTime.of(TOMORROW, LocalTime.of(9, 0));
+        LocalDateTime tomorrow_10_00 = LocalDateTime.of(TOMORROW, LocalTime.of(10, 0));
+
+        // Early: the service starts at its min start time, waiting is not penalized.
+        Visit visit1 = new Visit("2", "John", LOCATION_2, 80, tomorrow_08_00, tomorrow_10_00);
+        visit1.setSoftMaxEndTime(tomorrow_09_00);
+        visit1.setArrivalTime(tomorrow_07_30);
+        // Late, but within the hard window: the 30 minutes of service end at 09:30.
+        Visit visit2 = new Visit("3", "Paul", LOCATION_3, 40, tomorrow_08_00, tomorrow_10_00);
+        visit2.setSoftMaxEndTime(tomorrow_09_00);
+        visit2.setArrivalTime(tomorrow_09_00);
+
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::serviceFinishedAfterSoftMaxEndTime)
+                .given(visit1, visit2)
+                .penalizesBy(30L);
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::serviceFinishedAfterMaxEndTime)
+                .given(visit1, visit2)
+                .penalizesBy(0L);
+    }
+
+    @Test
+    void serviceFinishedAfterSoftMaxEndTimeNeedsSoftMaxEndTime() {
+        LocalDateTime tomorrow_08_00 = LocalDateTime.of(TOMORROW, LocalTime.of(8, 0));
+        LocalDateTime tomorrow_09_30 = LocalDateTime.of(TOMORROW, LocalTime.of(9, 30));
+        LocalDateTime tomorrow_10_00 = LocalDateTime.of(TOMORROW, LocalTime.of(10, 0));
+
+        Visit visit = new Visit("2", "John", LOCATION_2, 80, tomorrow_08_00, tomorrow_10_00);
+        visit.setArrivalTime(tomorrow_09_30);
+
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::serviceFinishedAfterSoftMaxEndTime)
+                .given(visit)
+                .penalizesBy(0L);
     }
 
     static void connect(Vehicle vehicle, Visit... visits) {
@@ -100,6 +198,9 @@ class VehicleRoutingConstraintProviderTest {
             if (i > 0) {
                 visit.setPreviousVisit(visits[i - 1]);
             }
+            if (i < visits.length - 1) {
+                visit.setNextVisit(visits[i + 1]);
+            }
         }
     }
 }
@@ -0,0 +1,154 @@
+package org.acme.vehiclerouting.solver;
+
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.assignRoundRobin;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.calculateScore;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createConstrainedPlan;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createConstraintStreamScoreDirectorFactory;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createIncrementalScoreDirectorFactory;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createSolutionManager;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.createSolverConfig;
+import static org.acme.vehiclerouting.solver.VehicleRoutePlanFixture.solveForScoreCalculationSpeed;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import ai.timefold.solver.core.api.score.analysis.ConstraintAnalysis;
+import ai.timefold.solver.core.api.score.analysis.ScoreAnalysis;
+import ai.timefold.solver.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import ai.timefold.solver.core.api.solver.SolutionManager;
+import ai.timefold.solver.core.api.solver.SolverFactory;
+import ai.timefold.solver.core.config.solver.EnvironmentMode;
+import ai.timefold.solver.core.config.solver.SolverConfig;
+
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.acme.vehiclerouting.domain.Visit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The incremental score calculator must score every plan, and every step of a solve, like the constraint streams.
+ */
+class VehicleRoutingIncrementalScoreCalculatorTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VehicleRoutingIncrementalScoreCalculatorTest.class);
+
+    private static final String VISITS = "visits";
+
+    @Test
+    void scoreMatchesConstraintStreams() {
+        VehicleRoutePlan plan = createConstrainedPlan(new Random(37), 200, 8);
+        assignRoundRobin(plan);
+
+        HardSoftLongScore constraintStreamScore = calculateScore(plan, createConstraintStreamScoreDirectorFactory());
+        HardSoftLongScore incrementalScore = calculateScore(plan, createIncrementalScoreDirectorFactory());
+
+        assertThat(incrementalScore).isEqualTo(constraintStreamScore);
+        // Overloaded and late, past both soft and hard max end times, so every constraint counts.
+        assertThat(incrementalScore.hardScore()).isNegative();
+        assertThat(incrementalScore.softScore()).isNegative();
+    }
+
+    /**
+     * Explaining and analyzing a score must work with either score director, under the same constraint names.
+     */
+    @Test
+    void analysisMatchesConstraintStreams() {
+        VehicleRoutePlan plan = createConstrainedPlan(new Random(37), 200, 8);
+        assignRoundRobin(plan);
+
+        ScoreAnalysis<HardSoftLongScore> constraintStreamAnalysis =
+                createSolutionManager(createConstraintStreamScoreDirectorFactory()).analyze(plan);
+        ScoreAnalysis<HardSoftLongScore> incrementalAnalysis =
+                createSolutionManager(createIncrementalScoreDirectorFactory()).analyze(plan);
+
+        assertThat(incrementalAnalysis.score()).isEqualTo(constraintStreamAnalysis.score());
+        for (ConstraintAnalysis<HardSoftLongScore> constraintAnalysis : constraintStreamAnalysis.constraintAnalyses()) {
+            ConstraintAnalysis<HardSoftLongScore> incrementalConstraintAnalysis =
+                    incrementalAnalysis.getConstraintAnalysis(constraintAnalysis.constraintRef());
+            assertThat(incrementalConstraintAnalysis)
+                    .as("Analysis of constraint (%s).", constraintAnalysis.constraintName())
+                    .isNotNull();
+            assertThat(incrementalConstraintAnalysis.score()).isEqualTo(constraintAnalysis.score());
+            assertThat(incrementalConstraintAnalysis.matchCount()).isEqualTo(constraintAnalysis.matchCount());
+        }
+    }
+
+    /**
+     * Moves random visits to random positions, telling the calculator like the solver would,
+     * and compares its running score with the constraint streams from scratch after every move.
+     */
+    @Test
+    void scoreMatchesConstraintStreamsOverRandomMoves() {
+        Random random = new Random(37);
+        VehicleRoutePlan plan = createConstrainedPlan(random, 120, 6);
+        assignRoundRobin(plan);
+        SolutionManager<VehicleRoutePlan, HardSoftLongScore> constraintStreams =
+                createSolutionManager(createConstraintStreamScoreDirectorFactory());
+        constraintStreams.update(plan);
+        VehicleRoutingIncrementalScoreCalculator calculator = new VehicleRoutingIncrementalScoreCalculator();
+        calculator.resetWorkingSolution(plan);
+
+        List<Vehicle> vehicles = plan.getVehicles();
+        for (int move = 0; move < 500; move++) {
+            Vehicle fromVehicle = vehicles.get(random.nextInt(vehicles.size()));
+            if (fromVehicle.getVisits().isEmpty()) {
+                continue;
+            }
+            int fromIndex = random.nextInt(fromVehicle.getVisits().size());
+            calculator.beforeListVariableChanged(fromVehicle, VISITS, fromIndex, fromIndex + 1);
+            Visit visit = fromVehicle.getVisits().remove(fromIndex);
+            calculator.afterListVariableChanged(fromVehicle, VISITS, fromIndex, fromIndex);
+
+            Vehicle toVehicle = vehicles.get(random.nextInt(vehicles.size()));
+            int toIndex = random.nextInt(toVehicle.getVisits().size() + 1);
+            calculator.beforeListVariableChanged(toVehicle, VISITS, toIndex, toIndex);
+            toVehicle.getVisits().add(toIndex, visit);
+            calculator.afterListVariableChanged(toVehicle, VISITS, toIndex, toIndex + 1);
+
+            // Updating the shadow variables first, as the solver does before it calculates the score.
+            HardSoftLongScore constraintStreamScore = constraintStreams.update(plan);
+            assertThat(calculator.calculateScore())
+                    .as("Score after move (%d) of visit (%s).", move, visit.getId())
+                    .isEqualTo(constraintStreamScore);
+        }
+    }
+
+    /**
+     * Every step, the incremental score is checked against the constraint streams from scratch.
+     */
+    @Test
+    void fullAssert() {
+        SolverConfig solverConfig = createSolverConfig(createIncrementalScoreDirectorFactory()
+                .withAssertionScoreDirectorFactory(createConstraintStreamScoreDirectorFactory()))
+                .withEnvironmentMode(EnvironmentMode.FULL_ASSERT)
+                .withTerminationSpentLimit(Duration.ofSeconds(10));
+        VehicleRoutePlan solution = SolverFactory.<VehicleRoutePlan> create(solverConfig).buildSolver()
+                .solve(createConstrainedPlan(new Random(37), 60, 4));
+
+        assertThat(solution.getScore())
+                .isEqualTo(calculateScore(solution, createConstraintStreamScoreDirectorFactory()));
+    }
+
+    /**
+     * Solves the same plan with the constraint streams and with the incremental calculator,
+     * and logs how fast each one scores.
+     * Run it with {@code mvn test -Dtest=VehicleRoutingIncrementalScoreCalculatorTest -Dslowly=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "slowly", matches = "true")
+    void compareScoreCalculationSpeed() throws InterruptedException, ExecutionException {
+        Duration spentLimit = Duration.ofSeconds(30);
+        long constraintStreamSpeed = solveForScoreCalculationSpeed(createConstrainedPlan(new Random(37), 1000, 10),
+                createConstraintStreamScoreDirectorFactory(), spentLimit);
+        long incrementalSpeed = solveForScoreCalculationSpeed(createConstrainedPlan(new Random(37), 1000, 10),
+                createIncrementalScoreDirectorFactory(), spentLimit);
+        LOGGER.info("Score calculation speed: constraint streams ({}/s), incremental ({}/s).",
+                constraintStreamSpeed, incrementalSpeed);
+    }
+}
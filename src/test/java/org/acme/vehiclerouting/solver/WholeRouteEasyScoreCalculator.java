@@ -0,0 +1,53 @@
+package org.acme.vehiclerouting.solver;
+
+import java.util.Arrays;
+
+import ai.timefold.solver.core.api.score.buildin.hardsoftlong.HardSoftLongScore;
+import ai.timefold.solver.core.api.score.calculator.EasyScoreCalculator;
+
+import org.acme.vehiclerouting.domain.Vehicle;
+import org.acme.vehiclerouting.domain.VehicleRoutePlan;
+import org.acme.vehiclerouting.domain.Visit;
+
+/**
+ * Scores like {@link VehicleRoutingConstraintProvider}, but travel time as it was before it was scored per visit:
+ * the {@link Vehicle#getTotalDrivingTimeSeconds() total driving time} of every vehicle, walking its whole route.
+ * The baseline of the travel time benchmark in {@link TravelTimeScoreTest}.
+ * <p>
+ * Not a constraint provider, so Quarkus still finds only one of those.
+ */
+public class WholeRouteEasyScoreCalculator implements EasyScoreCalculator<VehicleRoutePlan, HardSoftLongScore> {
+
+    @Override
+    public HardSoftLongScore calculateScore(VehicleRoutePlan plan) {
+        long hardScore = 0L;
+        long softScore = 0L;
+        for (Vehicle vehicle : plan.getVehicles()) {
+            if (vehicle.getVisits().isEmpty()) {
+                continue;
+            }
+            long demand = 0L;
+            long[] load = new long[0];
+            for (Visit visit : vehicle.getVisits()) {
+                demand += visit.getDemand();
+                int[] loads = visit.getLoads();
+                if (loads != null) {
+                    if (loads.length > load.length) {
+                        load = Arrays.copyOf(load, loads.length);
+                    }
+                    for (int i = 0; i < loads.length; i++) {
+                        load[i] += loads[i];
+                    }
+                }
+                hardScore -= visit.getServiceFinishedDelayInMinutes();
+                softScore -= VehicleRoutingConstraintProvider.SOFT_DELAY_MINUTE_WEIGHT
+                        * visit.getServiceFinishedSoftDelayInMinutes();
+            }
+            hardScore -= Math.max(0L, demand - vehicle.getCapacity());
+            hardScore -= LoadSumCollector.getExcessLoad(vehicle, load);
+            softScore -= vehicle.getTotalDrivingTimeSeconds();
+            softScore--; // A used vehicle.
+        }
+        return HardSoftLongScore.of(hardScore, softScore);
+    }
+}